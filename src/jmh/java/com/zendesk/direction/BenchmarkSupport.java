@@ -0,0 +1,164 @@
+package com.zendesk.direction;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.zendesk.direction.controller.BaseController;
+import com.zendesk.direction.core.MrtDetailsLoader;
+import com.zendesk.direction.core.TransitGraph;
+import com.zendesk.direction.entity.MrtStation;
+import com.zendesk.direction.metrics.DirectionMetrics;
+import com.zendesk.direction.proxy.DirectionGeneratorProxy;
+import com.zendesk.direction.service.DirectionsGeneratorService;
+import com.zendesk.direction.utils.TimeBand;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Shared setup of the JMH benchmarks
+ * @author swapnil.janorkar
+ *
+ */
+public final class BenchmarkSupport {
+
+	/**
+	 * Number of station pairs benchmarks cycle through
+	 */
+	public static final int PAIRS = 1024;
+
+	/**
+	 * private constructor
+	 */
+	private BenchmarkSupport() {
+
+	}
+
+	/**
+	 * Starts application context with the directions pipeline beans, without web server
+	 * @return application context
+	 */
+	public static AnnotationConfigApplicationContext startContext() {
+		return new AnnotationConfigApplicationContext(SimpleMeterRegistry.class, DirectionMetrics.class, MrtDetailsLoader.class,
+				DirectionsGeneratorService.class, DirectionGeneratorProxy.class, BaseController.class);
+	}
+
+	/**
+	 * Random station pairs, stations are weighted by square of lines they serve
+	 * so interchanges are picked more often as they are in real traffic
+	 * @param graph: mrt graph
+	 * @param count: number of pairs
+	 * @param seed: random seed
+	 * @return pairs of source and destination station names
+	 */
+	public static String[][] stationPairs(TransitGraph graph, int count, long seed) {
+		final int[] cumulative = new int[graph.getStationCount()];
+		int total = 0;
+		for (int station = 0; station < graph.getStationCount(); station++) {
+			final int lines = graph.firstPlatform(station + 1) - graph.firstPlatform(station);
+			total += lines * lines;
+			cumulative[station] = total;
+		}
+
+		final Random random = new Random(seed);
+		final String[][] pairs = new String[count][];
+		for (int i = 0; i < count; i++) {
+			int from = pick(cumulative, random.nextInt(total));
+			int to = pick(cumulative, random.nextInt(total));
+			while (to == from) {
+				to = pick(cumulative, random.nextInt(total));
+			}
+			pairs[i] = new String[] { graph.getStationName(from), graph.getStationName(to) };
+		}
+		return pairs;
+	}
+
+	/**
+	 * Synthetic regional network of copies of given network, standing in for larger networks loaded from csv.
+	 * Every copy gets its own line codes and station names, and two of its stations are merged with stations
+	 * of the previous copy so copies are chained by interchanges
+	 * @param stations: mrt stations of one network
+	 * @param copies: number of copies, 1 returns the network itself
+	 * @return mrt stations of all copies
+	 */
+	public static List<MrtStation> regionalNetwork(List<MrtStation> stations, int copies) {
+		final String firstLink = stations.get(0).getName();
+		final String secondLink = stations.get(stations.size() / 2).getName();
+		final String previousFirst = stations.get(stations.size() - 1).getName();
+		final String previousSecond = stations.get(stations.size() / 3).getName();
+		final List<String> lines = new ArrayList<>();
+		for (MrtStation station : stations) {
+			if (!lines.contains(station.getLine())) {
+				lines.add(station.getLine());
+			}
+		}
+
+		if ((copies + 1) * lines.size() + 36 > 36 * 36) {
+			throw new IllegalArgumentException("Too many copies for two character line codes");
+		}
+
+		final List<MrtStation> network = new ArrayList<>(stations.size() * copies);
+		network.addAll(stations);
+		for (int copy = 1; copy < copies; copy++) {
+			for (MrtStation station : stations) {
+				final String name;
+				if (station.getName().equals(firstLink)) {
+					name = previousFirst + suffix(copy - 1);
+				} else if (station.getName().equals(secondLink)) {
+					name = previousSecond + suffix(copy - 1);
+				} else {
+					name = station.getName() + suffix(copy);
+				}
+				final MrtStation replica = new MrtStation();
+				// lower case base 36 line codes never clash with the upper case codes of the network
+				replica.setId(Integer.toString(copy * lines.size() + lines.indexOf(station.getLine()) + 36, 36)
+						+ station.getId().substring(2));
+				replica.setName(name);
+				replica.setDate(station.getDateText());
+				network.add(replica);
+			}
+		}
+		return network;
+	}
+
+	/**
+	 * Future date & time that falls in given time band
+	 * @param band: time band
+	 * @return date & time of next year in given band
+	 */
+	public static LocalDateTime departure(TimeBand band) {
+		final LocalDate tuesday = LocalDate.now().plusYears(1).with(TemporalAdjusters.next(DayOfWeek.TUESDAY));
+		switch (band) {
+			case PEAK:
+				return tuesday.atTime(8, 30);
+			case NIGHT:
+				return tuesday.atTime(23, 0);
+			default:
+				return tuesday.atTime(14, 0);
+		}
+	}
+
+	private static String suffix(int copy) {
+		return copy == 0 ? "" : " " + copy;
+	}
+
+	private static int pick(int[] cumulative, int value) {
+		int low = 0;
+		int high = cumulative.length - 1;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (cumulative[mid] > value) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+}
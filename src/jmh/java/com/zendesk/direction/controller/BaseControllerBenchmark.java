@@ -0,0 +1,65 @@
+package com.zendesk.direction.controller;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.zendesk.direction.BenchmarkSupport;
+import com.zendesk.direction.core.MrtDetailsLoader;
+import com.zendesk.direction.exception.PastDateTimeException;
+import com.zendesk.direction.exception.StationClosedException;
+import com.zendesk.direction.exception.StationNotFoundException;
+import com.zendesk.direction.exception.StationNotReadyException;
+import com.zendesk.direction.utils.TimeBand;
+
+/**
+ * Success path of request validation
+ * @author swapnil.janorkar
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BaseControllerBenchmark {
+
+	private AnnotationConfigApplicationContext context;
+	private BaseController controller;
+	private String[][] pairs;
+	private LocalDateTime dateTime;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		context = BenchmarkSupport.startContext();
+		controller = context.getBean(BaseController.class);
+		pairs = BenchmarkSupport.stationPairs(context.getBean(MrtDetailsLoader.class).getGraph(), BenchmarkSupport.PAIRS, 42);
+		dateTime = BenchmarkSupport.departure(TimeBand.OFF_PEAK);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public void validateInput() throws StationNotFoundException, StationClosedException, StationNotReadyException,
+			PastDateTimeException {
+		final String[] pair = pairs[next++ & (BenchmarkSupport.PAIRS - 1)];
+		controller.validateInput(pair[0], pair[1], dateTime);
+	}
+}
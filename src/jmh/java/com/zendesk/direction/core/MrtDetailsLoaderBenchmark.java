@@ -0,0 +1,63 @@
+package com.zendesk.direction.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zendesk.direction.entity.StationClosure;
+
+/**
+ * Startup cost of parsing station_map.csv and building the mrt graph,
+ * against mapping the compiled network of the same csv
+ * @author swapnil.janorkar
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MrtDetailsLoaderBenchmark {
+
+	private Path compiled;
+
+	@Setup
+	public void setUp() throws IOException {
+		final MrtDetailsLoader loader = new MrtDetailsLoader();
+		loader.init();
+		compiled = Files.createTempFile("transit-directions", ".network");
+		CompiledNetwork.write(compiled, loader.getGraph(), 0, 0);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(compiled);
+	}
+
+	@Benchmark
+	public MrtDetailsLoader init() throws IOException {
+		final MrtDetailsLoader loader = new MrtDetailsLoader();
+		loader.init();
+		return loader;
+	}
+
+	@Benchmark
+	public NetworkSnapshot readCompiledNetwork() throws IOException {
+		return new NetworkSnapshot(CompiledNetwork.read(compiled, 0, 0), Collections.<StationClosure>emptyList(), 1, compiled.toString());
+	}
+}
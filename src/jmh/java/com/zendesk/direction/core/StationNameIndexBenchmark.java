@@ -0,0 +1,63 @@
+package com.zendesk.direction.core;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Station name resolution of exact, partly typed and misspelled names, and autocomplete suggestions
+ * @author swapnil.janorkar
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StationNameIndexBenchmark {
+
+	private static final String[] PREFIXES = { "tampines e", "little", "dhoby", "one n", "bukit", "ew1", "s", "harb" };
+	private static final String[] MISSPELLED = { "bouna vista", "jurog east", "harbourfrnt", "chinatwn", "serangon",
+			"tampnes ea", "onenorth", "paya lebr" };
+
+	private StationNameIndex index;
+	private int next;
+
+	@Setup
+	public void setUp() throws IOException {
+		final MrtDetailsLoader loader = new MrtDetailsLoader();
+		loader.init();
+		index = loader.getNameIndex();
+	}
+
+	@Benchmark
+	public int resolveExact() {
+		return index.resolve(index.getGraph().getStationName(next++ % index.getGraph().getStationCount()));
+	}
+
+	@Benchmark
+	public int resolveMisspelled() {
+		return index.resolve(MISSPELLED[next++ & (MISSPELLED.length - 1)]);
+	}
+
+	@Benchmark
+	public int[] suggest() {
+		return index.suggest(PREFIXES[next++ & (PREFIXES.length - 1)], 10);
+	}
+
+	@Benchmark
+	public StationNameIndex build() {
+		return new StationNameIndex(index.getGraph());
+	}
+}
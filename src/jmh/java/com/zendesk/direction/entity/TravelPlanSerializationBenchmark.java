@@ -0,0 +1,69 @@
+package com.zendesk.direction.entity;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zendesk.direction.BenchmarkSupport;
+import com.zendesk.direction.core.MrtDetailsLoader;
+import com.zendesk.direction.proxy.DirectionGeneratorProxy;
+import com.zendesk.direction.utils.TimeBand;
+
+/**
+ * Json serialization of text and compact travel plans, with the object mapper spring mvc configures
+ * @author swapnil.janorkar
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TravelPlanSerializationBenchmark {
+
+	private ObjectMapper mapper;
+	private TravelPlan[] plans;
+	private TravelPlan[] compactPlans;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		mapper = Jackson2ObjectMapperBuilder.json().build();
+		try (AnnotationConfigApplicationContext context = BenchmarkSupport.startContext()) {
+			final DirectionGeneratorProxy proxy = context.getBean(DirectionGeneratorProxy.class);
+			final String[][] pairs = BenchmarkSupport.stationPairs(context.getBean(MrtDetailsLoader.class).getGraph(), BenchmarkSupport.PAIRS, 42);
+			final LocalDateTime dateTime = BenchmarkSupport.departure(TimeBand.OFF_PEAK);
+			plans = new TravelPlan[pairs.length];
+			compactPlans = new TravelPlan[pairs.length];
+			for (int i = 0; i < pairs.length; i++) {
+				plans[i] = proxy.buildDirections(pairs[i][0], pairs[i][1], dateTime);
+				compactPlans[i] = proxy.buildDirections(pairs[i][0], pairs[i][1], dateTime, true);
+			}
+		}
+	}
+
+	@Benchmark
+	public byte[] serialize() throws JsonProcessingException {
+		return mapper.writeValueAsBytes(plans[next++ & (BenchmarkSupport.PAIRS - 1)]);
+	}
+
+	@Benchmark
+	public byte[] serializeCompact() throws JsonProcessingException {
+		return mapper.writeValueAsBytes(compactPlans[next++ & (BenchmarkSupport.PAIRS - 1)]);
+	}
+}
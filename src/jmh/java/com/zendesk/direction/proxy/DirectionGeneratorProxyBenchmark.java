@@ -0,0 +1,84 @@
+package com.zendesk.direction.proxy;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.zendesk.direction.BenchmarkSupport;
+import com.zendesk.direction.core.MrtDetailsLoader;
+import com.zendesk.direction.entity.MrtStation;
+import com.zendesk.direction.entity.TravelPlan;
+import com.zendesk.direction.service.DirectionsGeneratorService;
+import com.zendesk.direction.utils.TimeBand;
+
+/**
+ * Instruction generation for precomputed routes, and the cached end to end proxy path
+ * @author swapnil.janorkar
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DirectionGeneratorProxyBenchmark {
+
+	private AnnotationConfigApplicationContext context;
+	private DirectionGeneratorProxy proxy;
+	private String[][] pairs;
+	private List<List<MrtStation>> routes;
+	private LocalDateTime dateTime;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		context = BenchmarkSupport.startContext();
+		proxy = context.getBean(DirectionGeneratorProxy.class);
+		pairs = BenchmarkSupport.stationPairs(context.getBean(MrtDetailsLoader.class).getGraph(), BenchmarkSupport.PAIRS, 42);
+		dateTime = BenchmarkSupport.departure(TimeBand.OFF_PEAK);
+
+		final DirectionsGeneratorService service = context.getBean(DirectionsGeneratorService.class);
+		routes = new ArrayList<>(pairs.length);
+		for (String[] pair : pairs) {
+			routes.add(service.buildDirections(pair[0], pair[1], dateTime));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Object generateInstructions() {
+		final List<MrtStation> route = routes.get(next++ & (BenchmarkSupport.PAIRS - 1));
+		return DirectionGeneratorProxy.generateInstructions(route, dateTime);
+	}
+
+	@Benchmark
+	public TravelPlan buildDirections() {
+		final String[] pair = pairs[next++ & (BenchmarkSupport.PAIRS - 1)];
+		return proxy.buildDirections(pair[0], pair[1], dateTime);
+	}
+
+	@Benchmark
+	public TravelPlan buildCompactDirections() {
+		final String[] pair = pairs[next++ & (BenchmarkSupport.PAIRS - 1)];
+		return proxy.buildDirections(pair[0], pair[1], dateTime, true);
+	}
+}
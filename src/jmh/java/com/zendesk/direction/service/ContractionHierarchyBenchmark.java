@@ -0,0 +1,100 @@
+package com.zendesk.direction.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zendesk.direction.BenchmarkSupport;
+import com.zendesk.direction.core.LineGraph;
+import com.zendesk.direction.core.MrtDetailsLoader;
+import com.zendesk.direction.core.TransitGraph;
+import com.zendesk.direction.entity.MrtStation;
+import com.zendesk.direction.utils.TimeBand;
+
+/**
+ * Point to point queries on contraction hierarchies and the line graph against graph search, on the mrt network
+ * and on synthetic regional networks of several copies of it
+ * @author swapnil.janorkar
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ContractionHierarchyBenchmark {
+
+	@Param({ "1", "10", "40" })
+	private int copies;
+
+	private final int band = TimeBand.OFF_PEAK.ordinal();
+
+	private TransitGraph graph;
+	private ContractionHierarchy hierarchy;
+	private LineGraph lineGraph;
+	private int[][] pairs;
+	private int next;
+
+	@Setup
+	public void setUp() throws IOException {
+		final MrtDetailsLoader loader = new MrtDetailsLoader();
+		loader.init();
+		graph = new TransitGraph(BenchmarkSupport.regionalNetwork(loader.getMrtStations(), copies));
+		hierarchy = ContractionHierarchy.build(graph);
+		lineGraph = new LineGraph(graph);
+
+		final String[][] names = BenchmarkSupport.stationPairs(graph, BenchmarkSupport.PAIRS, 42);
+		pairs = new int[names.length][];
+		for (int i = 0; i < names.length; i++) {
+			pairs[i] = new int[] { graph.getStationIndex(names[i][0]), graph.getStationIndex(names[i][1]) };
+		}
+	}
+
+	@Benchmark
+	public List<MrtStation> contractionHierarchy() {
+		final int[] pair = pairs[next++ & (BenchmarkSupport.PAIRS - 1)];
+		return hierarchy.route(pair[0], pair[1], band);
+	}
+
+	/**
+	 * A* on networks small enough for the hop table, plain Dijkstra on larger ones
+	 * @return list of mrt stations to travel
+	 */
+	@Benchmark
+	public List<MrtStation> graphSearch() {
+		final int[] pair = pairs[next++ & (BenchmarkSupport.PAIRS - 1)];
+		final SearchWorkspace workspace = SearchWorkspace.begin(graph.getNodeCount());
+		final int target = GraphSearch.fastestPath(graph, band, pair[0], pair[1], null, workspace);
+		return GraphSearch.unroll(graph, workspace, target);
+	}
+
+	/**
+	 * Two level search, lines with fewest interchanges plus one first
+	 * @return list of mrt stations to travel
+	 */
+	@Benchmark
+	public List<MrtStation> lineGraph() {
+		final int[] pair = pairs[next++ & (BenchmarkSupport.PAIRS - 1)];
+		final SearchWorkspace workspace = SearchWorkspace.begin(graph.getNodeCount());
+		final int target = GraphSearch.fastestPath(lineGraph, band, pair[0], pair[1], null, 1, workspace);
+		return GraphSearch.unroll(graph, workspace, target);
+	}
+
+	@Benchmark
+	public ContractionHierarchy build() {
+		return ContractionHierarchy.build(graph);
+	}
+}
@@ -0,0 +1,72 @@
+package com.zendesk.direction.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.zendesk.direction.BenchmarkSupport;
+import com.zendesk.direction.core.MrtDetailsLoader;
+import com.zendesk.direction.entity.MrtStation;
+import com.zendesk.direction.utils.TimeBand;
+
+/**
+ * Route search between weighted random station pairs
+ * @author swapnil.janorkar
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DirectionsGeneratorServiceBenchmark {
+
+	@Param({ "PEAK", "NIGHT", "OFF_PEAK" })
+	private TimeBand band;
+
+	private AnnotationConfigApplicationContext context;
+	private DirectionsGeneratorService service;
+	private String[][] pairs;
+	private LocalDateTime dateTime;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		context = BenchmarkSupport.startContext();
+		service = context.getBean(DirectionsGeneratorService.class);
+		pairs = BenchmarkSupport.stationPairs(context.getBean(MrtDetailsLoader.class).getGraph(), BenchmarkSupport.PAIRS, 42);
+		dateTime = BenchmarkSupport.departure(band);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<MrtStation> buildDirections() {
+		final String[] pair = pairs[next++ & (BenchmarkSupport.PAIRS - 1)];
+		return service.buildDirections(pair[0], pair[1], dateTime);
+	}
+
+	@Benchmark
+	public List<List<MrtStation>> buildParetoRoutes() {
+		final String[] pair = pairs[next++ & (BenchmarkSupport.PAIRS - 1)];
+		return service.buildParetoRoutes(pair[0], pair[1], dateTime);
+	}
+}
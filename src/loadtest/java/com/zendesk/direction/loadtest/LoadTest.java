@@ -0,0 +1,292 @@
+package com.zendesk.direction.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Load generator for a locally started instance, replays the {@link TrafficProfile} request mix
+ * and reports throughput, latency percentiles and GC pauses of client and server.
+ * Without a rate every user sends its next request when the previous one completes. With a rate requests
+ * follow a fixed schedule and latency is measured from the scheduled send time, so a stalled server
+ * shows up in the percentiles instead of silently lowering the request rate.
+ * Arguments are key=value pairs: url, users, duration and warmup in seconds, rate in requests per second, seed
+ * @author swapnil.janorkar
+ *
+ */
+public final class LoadTest {
+
+	private static final long HIGHEST_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(2);
+	private static final int TIMEOUT_MILLIS = 30_000;
+
+	private final String url;
+	private final int users;
+	private final long durationNanos;
+	private final long warmupNanos;
+	private final double rate;
+	private final long seed;
+	private final TrafficProfile profile;
+
+	private final AtomicLong unexpectedStatus = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+
+	private LoadTest(Map<String, String> options) throws IOException {
+		this.url = options.getOrDefault("url", "http://localhost:8080");
+		this.users = Integer.parseInt(options.getOrDefault("users", "100"));
+		this.durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "60")));
+		this.warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("warmup", "10")));
+		this.rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+		this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+		this.profile = new TrafficProfile(LocalDate.now().plusDays(7));
+	}
+
+	public static void main(String[] args) throws Exception {
+		final Map<String, String> options = new HashMap<>();
+		for (String arg : args) {
+			final int split = arg.indexOf('=');
+			if (split < 0) {
+				throw new IllegalArgumentException("Arguments must be key=value, got " + arg);
+			}
+			options.put(arg.substring(0, split), arg.substring(split + 1));
+		}
+		new LoadTest(options).run();
+	}
+
+	/**
+	 * Runs warm up and measurement and prints the report
+	 * @throws InterruptedException if interrupted while waiting for users
+	 */
+	private void run() throws InterruptedException {
+		// keep one idle keep-alive connection per user
+		System.setProperty("http.maxConnections", String.valueOf(users));
+		System.out.printf("Load test of %s: %d users, %s, %d s warm up, %d s measured%n", url, users,
+				rate > 0 ? String.format("%.0f requests/s", rate) : "closed loop",
+				TimeUnit.NANOSECONDS.toSeconds(warmupNanos), TimeUnit.NANOSECONDS.toSeconds(durationNanos));
+
+		final long start = System.nanoTime();
+		final long measureFrom = start + warmupNanos;
+		final long end = measureFrom + durationNanos;
+		final User[] workers = new User[users];
+		final Thread[] threads = new Thread[users];
+		for (int i = 0; i < users; i++) {
+			workers[i] = new User(new Random(seed + i), start + (rate > 0 ? (long) (i * 1e9 / rate) : 0), measureFrom, end);
+			threads[i] = new Thread(workers[i], "load-user-" + i);
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+
+		TimeUnit.NANOSECONDS.sleep(Math.max(0, measureFrom - System.nanoTime()));
+		final GcPauses serverBefore = serverGcPauses();
+		final GcPauses clientBefore = clientGcPauses();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		final GcPauses serverAfter = serverGcPauses();
+		final GcPauses clientAfter = clientGcPauses();
+
+		final Map<String, Histogram> scenarios = new LinkedHashMap<>();
+		for (String scenario : TrafficProfile.scenarios()) {
+			scenarios.put(scenario, new Histogram(HIGHEST_LATENCY_NANOS, 3));
+		}
+		final Histogram total = new Histogram(HIGHEST_LATENCY_NANOS, 3);
+		for (User worker : workers) {
+			for (Map.Entry<String, Histogram> entry : worker.latencies.entrySet()) {
+				scenarios.get(entry.getKey()).add(entry.getValue());
+				total.add(entry.getValue());
+			}
+		}
+
+		final double seconds = durationNanos / 1e9;
+		System.out.printf("%-16s %10s %10s %10s %10s %10s %10s%n", "scenario", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+		for (Map.Entry<String, Histogram> entry : scenarios.entrySet()) {
+			print(entry.getKey(), entry.getValue(), seconds);
+		}
+		print("total", total, seconds);
+		System.out.printf("unexpected status %d, failed requests %d%n", unexpectedStatus.get(), failures.get());
+		System.out.println("client gc " + clientAfter.since(clientBefore));
+		System.out.println("server gc " + (serverBefore == null || serverAfter == null
+				? "not available, expose prometheus actuator endpoint" : serverAfter.since(serverBefore)));
+	}
+
+	private static void print(String name, Histogram histogram, double seconds) {
+		System.out.printf("%-16s %10d %10.1f %10.2f %10.2f %10.2f %10.2f%n", name, histogram.getTotalCount(),
+				histogram.getTotalCount() / seconds, millis(histogram.getValueAtPercentile(50)),
+				millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+				millis(histogram.getMaxValue()));
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1e6;
+	}
+
+	/**
+	 * Sends one request and reads the whole response so the connection can be reused
+	 * @param path: request path
+	 * @return http status
+	 * @throws IOException in case request fails
+	 */
+	private int send(String path) throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection) new URL(url + path).openConnection();
+		connection.setConnectTimeout(TIMEOUT_MILLIS);
+		connection.setReadTimeout(TIMEOUT_MILLIS);
+		final int status = connection.getResponseCode();
+		try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+			if (body != null) {
+				final byte[] buffer = new byte[8192];
+				while (body.read(buffer) >= 0) {
+					// drain
+				}
+			}
+		}
+		return status;
+	}
+
+	/**
+	 * Collection count and time of client collectors
+	 * @return client gc pauses so far
+	 */
+	private static GcPauses clientGcPauses() {
+		long count = 0;
+		long millis = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, collector.getCollectionCount());
+			millis += Math.max(0, collector.getCollectionTime());
+		}
+		return new GcPauses(count, millis, -1);
+	}
+
+	/**
+	 * Reads jvm_gc_pause_seconds of the server from the prometheus actuator endpoint
+	 * @return server gc pauses so far, null if endpoint is not available
+	 */
+	private GcPauses serverGcPauses() {
+		try {
+			final HttpURLConnection connection = (HttpURLConnection) new URL(url + "/actuator/prometheus").openConnection();
+			connection.setConnectTimeout(TIMEOUT_MILLIS);
+			connection.setReadTimeout(TIMEOUT_MILLIS);
+			if (connection.getResponseCode() != 200) {
+				return null;
+			}
+			double count = 0;
+			double seconds = 0;
+			double max = 0;
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+				for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+					if (line.startsWith("#")) {
+						continue;
+					}
+					final double value = Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+					if (line.startsWith("jvm_gc_pause_seconds_count")) {
+						count += value;
+					} else if (line.startsWith("jvm_gc_pause_seconds_sum")) {
+						seconds += value;
+					} else if (line.startsWith("jvm_gc_pause_seconds_max")) {
+						max = Math.max(max, value);
+					}
+				}
+			}
+			return new GcPauses((long) count, (long) (seconds * 1000), (long) (max * 1000));
+		} catch (IOException | RuntimeException exception) {
+			return null;
+		}
+	}
+
+	/**
+	 * One simulated rider sending requests back to back, or on its share of the schedule when a rate is set
+	 */
+	private final class User implements Runnable {
+
+		private final Random random;
+		private final long measureFrom;
+		private final long end;
+		private final long interval;
+		private final Map<String, Histogram> latencies = new HashMap<>();
+		private long next;
+
+		private User(Random random, long firstSend, long measureFrom, long end) {
+			this.random = random;
+			this.next = firstSend;
+			this.measureFrom = measureFrom;
+			this.end = end;
+			this.interval = rate > 0 ? (long) (users * 1e9 / rate) : 0;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				long scheduled = System.nanoTime();
+				if (interval > 0) {
+					scheduled = next;
+					next += interval;
+					final long wait = scheduled - System.nanoTime();
+					if (wait > 0) {
+						try {
+							TimeUnit.NANOSECONDS.sleep(wait);
+						} catch (InterruptedException exception) {
+							Thread.currentThread().interrupt();
+							return;
+						}
+					}
+				}
+				if (scheduled >= end) {
+					return;
+				}
+
+				final TrafficProfile.Request request = profile.next(random);
+				int status;
+				try {
+					status = send(request.path);
+				} catch (IOException exception) {
+					status = -1;
+				}
+				final long latency = System.nanoTime() - scheduled;
+				if (scheduled < measureFrom) {
+					continue;
+				}
+				if (status < 0) {
+					failures.incrementAndGet();
+				} else if (status != request.expectedStatus) {
+					unexpectedStatus.incrementAndGet();
+				}
+				latencies.computeIfAbsent(request.scenario, scenario -> new Histogram(HIGHEST_LATENCY_NANOS, 3))
+						.recordValue(Math.min(latency, HIGHEST_LATENCY_NANOS));
+			}
+		}
+	}
+
+	/**
+	 * Number and total time of gc pauses, and longest recent pause when known
+	 */
+	private static final class GcPauses {
+
+		private final long count;
+		private final long millis;
+		private final long maxMillis;
+
+		private GcPauses(long count, long millis, long maxMillis) {
+			this.count = count;
+			this.millis = millis;
+			this.maxMillis = maxMillis;
+		}
+
+		private String since(GcPauses before) {
+			return String.format("%d pauses, %d ms total%s", count - before.count, millis - before.millis,
+					maxMillis < 0 ? "" : ", longest recent pause " + maxMillis + " ms");
+		}
+	}
+}
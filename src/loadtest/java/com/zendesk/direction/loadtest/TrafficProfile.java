@@ -0,0 +1,240 @@
+package com.zendesk.direction.loadtest;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.zendesk.direction.core.AvailabilityCalendar;
+import com.zendesk.direction.core.MrtDetailsLoader;
+import com.zendesk.direction.core.NetworkSnapshot;
+import com.zendesk.direction.core.TransitGraph;
+import com.zendesk.direction.utils.Constants;
+import com.zendesk.direction.utils.TimeBand;
+
+/**
+ * Weighted mix of direction requests over the stations of station_map.csv.
+ * Trips start and end more often at interchanges, weight of a station is the square of its number of lines.
+ * Journeys are spread over peak, off-peak and night departures on all four direction routes, a share of
+ * requests is expected to fail: stations closed by the availability calendar and unknown station names
+ * @author swapnil.janorkar
+ *
+ */
+final class TrafficProfile {
+
+	static final String NAME_NOW = "name_now";
+	static final String NAME_DATETIME = "name_datetime";
+	static final String ID_NOW = "id_now";
+	static final String ID_DATETIME = "id_datetime";
+	static final String CLOSED_AT_NIGHT = "closed_at_night";
+	static final String UNKNOWN_STATION = "unknown_station";
+
+	private static final String[] SCENARIOS = { NAME_NOW, NAME_DATETIME, ID_NOW, ID_DATETIME, CLOSED_AT_NIGHT, UNKNOWN_STATION };
+	private static final int[] SCENARIO_WEIGHTS = { 20, 35, 10, 25, 6, 4 };
+
+	// share of departures per band of the datetime routes
+	private static final TimeBand[] BANDS = { TimeBand.PEAK, TimeBand.OFF_PEAK, TimeBand.NIGHT };
+	private static final int[] BAND_WEIGHTS = { 45, 40, 15 };
+
+	private static final String[] UNKNOWN_NAMES = { "atlantis", "hogwarts", "gotham", "springfield" };
+
+	private final TransitGraph graph;
+	private final AvailabilityCalendar calendar;
+	private final int[] stationWeights;
+	private final int[] nightClosed;
+	private final LocalDate travelDate;
+
+	/**
+	 * Loads stations of bundled station_map.csv
+	 * @param travelDate: first day of the week datetime route departures are spread over, must not be in the past
+	 * @throws IOException in case station csv can not be read
+	 */
+	TrafficProfile(LocalDate travelDate) throws IOException {
+		final MrtDetailsLoader loader = new MrtDetailsLoader();
+		loader.init();
+		final NetworkSnapshot snapshot = loader.getSnapshot();
+		this.graph = snapshot.getGraph();
+		this.calendar = snapshot.getAvailability();
+		this.travelDate = travelDate;
+
+		// stations open on some hour and closed on another hour of the first travel day
+		final long midnight = AvailabilityCalendar.minute(travelDate.atStartOfDay());
+		this.stationWeights = new int[graph.getStationCount()];
+		final List<Integer> closed = new ArrayList<>();
+		for (int station = 0; station < graph.getStationCount(); station++) {
+			final int lines = graph.firstPlatform(station + 1) - graph.firstPlatform(station);
+			stationWeights[station] = lines * lines;
+			int open = 0;
+			for (int hour = 0; hour < 24; hour++) {
+				open += calendar.isStationOpen(station, midnight + hour * 60) ? 1 : 0;
+			}
+			if (open > 0 && open < 24) {
+				closed.add(station);
+			}
+		}
+		this.nightClosed = closed.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Draws next request of the mix
+	 * @param random: random source of calling user
+	 * @return request path with expected status
+	 */
+	Request next(Random random) {
+		final String scenario = SCENARIOS[pick(random, SCENARIO_WEIGHTS)];
+		final boolean now = NAME_NOW.equals(scenario) || ID_NOW.equals(scenario);
+		if (CLOSED_AT_NIGHT.equals(scenario)) {
+			final int closed = nightClosed[random.nextInt(nightClosed.length)];
+			final LocalDateTime departure = closedDeparture(random, closed);
+			final int open = station(random, departure, closed);
+			final boolean fromClosed = random.nextBoolean();
+			return new Request(scenario, namePath(graph.getStationName(fromClosed ? closed : open),
+					graph.getStationName(fromClosed ? open : closed), departure), 400);
+		}
+		final LocalDateTime departure = now ? LocalDateTime.now() : departure(random);
+
+		if (UNKNOWN_STATION.equals(scenario)) {
+			final int station = station(random, departure, -1);
+			return new Request(scenario, namePath(UNKNOWN_NAMES[random.nextInt(UNKNOWN_NAMES.length)],
+					graph.getStationName(station), departure), 400);
+		}
+		final int from = station(random, departure, -1);
+		final int to = station(random, departure, from);
+		final boolean byId = ID_NOW.equals(scenario) || ID_DATETIME.equals(scenario);
+		final String path = byId ? idPath(id(random, from), id(random, to), now ? null : departure)
+				: namePath(graph.getStationName(from), graph.getStationName(to), now ? null : departure);
+		return new Request(scenario, path, 200);
+	}
+
+	/**
+	 * All scenario names in report order
+	 * @return scenario names
+	 */
+	static String[] scenarios() {
+		return SCENARIOS.clone();
+	}
+
+	/**
+	 * Draws departure in the travel week by band weight
+	 * @param random: random source
+	 * @return departure date & time
+	 */
+	private LocalDateTime departure(Random random) {
+		final TimeBand band = BANDS[pick(random, BAND_WEIGHTS)];
+		while (true) {
+			final LocalDateTime candidate = candidate(random);
+			if (TimeBand.of(candidate) == band) {
+				return candidate;
+			}
+		}
+	}
+
+	/**
+	 * Draws departure in the travel week at which given station is closed
+	 * @param random: random source
+	 * @param station: station index
+	 * @return departure date & time
+	 */
+	private LocalDateTime closedDeparture(Random random, int station) {
+		while (true) {
+			final LocalDateTime candidate = candidate(random);
+			if (!calendar.isStationOpen(station, AvailabilityCalendar.minute(candidate))) {
+				return candidate;
+			}
+		}
+	}
+
+	/**
+	 * Draws any minute of the travel week
+	 * @param random: random source
+	 * @return departure date & time
+	 */
+	private LocalDateTime candidate(Random random) {
+		return LocalDateTime.of(travelDate.plusDays(random.nextInt(7)), LocalTime.of(random.nextInt(24), random.nextInt(60)));
+	}
+
+	/**
+	 * Draws station open at given departure by station weight
+	 * @param random: random source
+	 * @param departure: departure date & time
+	 * @param excluded: station index not to draw, -1 for none
+	 * @return station index
+	 */
+	private int station(Random random, LocalDateTime departure, int excluded) {
+		final long minute = AvailabilityCalendar.minute(departure);
+		while (true) {
+			final int station = pick(random, stationWeights);
+			if (station != excluded && calendar.isStationOpen(station, minute)) {
+				return station;
+			}
+		}
+	}
+
+	/**
+	 * Draws one code of given station
+	 * @param random: random source
+	 * @param station: station index
+	 * @return station code
+	 */
+	private String id(Random random, int station) {
+		final int first = graph.firstPlatform(station);
+		final int count = graph.firstPlatform(station + 1) - first;
+		return graph.getNode(graph.getPlatform(first + random.nextInt(count))).getId();
+	}
+
+	private static String namePath(String from, String to, LocalDateTime departure) {
+		return "/directions/mrt/from/" + encode(from) + "/to/" + encode(to) + datetime(departure);
+	}
+
+	private static String idPath(String from, String to, LocalDateTime departure) {
+		return "/directions/id/from/" + from + "/to/" + to + datetime(departure);
+	}
+
+	private static String datetime(LocalDateTime departure) {
+		return departure == null ? "" : "/datetime/" + encode(departure.format(Constants.REQUEST_DATE_TIME_FORMATTER));
+	}
+
+	private static String encode(String segment) {
+		return segment.replace(" ", "%20");
+	}
+
+	/**
+	 * Draws index with probability proportional to its weight
+	 * @param random: random source
+	 * @param weights: weights
+	 * @return drawn index
+	 */
+	private static int pick(Random random, int[] weights) {
+		int total = 0;
+		for (int weight : weights) {
+			total += weight;
+		}
+		int draw = random.nextInt(total);
+		for (int i = 0; i < weights.length; i++) {
+			draw -= weights[i];
+			if (draw < 0) {
+				return i;
+			}
+		}
+		return weights.length - 1;
+	}
+
+	/**
+	 * Request path with scenario and expected http status
+	 */
+	static final class Request {
+
+		final String scenario;
+		final String path;
+		final int expectedStatus;
+
+		private Request(String scenario, String path, int expectedStatus) {
+			this.scenario = scenario;
+			this.path = path;
+			this.expectedStatus = expectedStatus;
+		}
+	}
+}
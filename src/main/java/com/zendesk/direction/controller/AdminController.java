@@ -0,0 +1,129 @@
+package com.zendesk.direction.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.zendesk.direction.core.MrtDetailsLoader;
+import com.zendesk.direction.core.NetworkSnapshot;
+import com.zendesk.direction.entity.NetworkStatus;
+import com.zendesk.direction.utils.Constants;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+
+/**
+ * Network administration endpoint serving controller
+ * @author swapnil.janorkar
+ *
+ */
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AdminController.class);
+
+	@Autowired
+	private MrtDetailsLoader mrtDetails;
+
+	@Value("${directions.admin.reload-enabled:false}")
+	private boolean reloadEnabled;
+
+	@Value("${directions.admin.token:}")
+	private String token;
+
+	private volatile String lastError;
+
+	/**
+	 * Returns details of loaded mrt network
+	 * @return network version, source and size
+	 */
+	@Operation(
+		summary="Get loaded network details",
+		description="Get version, source csv and size of the mrt network serving requests",
+		responses = {
+				@ApiResponse(responseCode="200", description="Loaded network details")
+		}
+	)
+	@RequestMapping(value="/network", method=RequestMethod.GET)
+	public ResponseEntity<NetworkStatus> getNetwork() {
+		return ResponseEntity.ok().body(buildStatus());
+	}
+
+	/**
+	 * Starts rebuilding mrt network from csv in the background, requests are served by current network until it is swapped.
+	 * Only when reload is enabled and, if a token is configured, given token matches it
+	 * @param adminToken: value of X-Admin-Token header
+	 * @return details of network serving requests while reload is running, 403 if reload is not allowed
+	 */
+	@Operation(
+		summary="Reload network",
+		description="Rebuild mrt network from configured csv in the background and swap it in when complete",
+		responses = {
+				@ApiResponse(responseCode="202", description="Reload started, current network details"),
+				@ApiResponse(responseCode="403", description="Reload disabled or admin token missing or wrong")
+		}
+	)
+	@RequestMapping(value="/network/reload", method=RequestMethod.POST)
+	public ResponseEntity<NetworkStatus> reloadNetwork(@RequestHeader(value="X-Admin-Token", required=false) String adminToken) {
+		if (!isReloadAllowed(adminToken)) {
+			LOGGER.warn("Network reload refused, {}", reloadEnabled ? "admin token missing or wrong" : "reload is disabled");
+			return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+		}
+		lastError = null;
+		mrtDetails.reload().whenComplete((snapshot, exception) -> {
+			if (exception != null) {
+				lastError = exception.getMessage();
+			}
+		});
+		return ResponseEntity.status(HttpStatus.ACCEPTED).body(buildStatus());
+	}
+
+	/**
+	 * Check if network reload is enabled and given token matches the configured one
+	 * @param adminToken: token sent with the request, may be null
+	 * @return true if reload may start
+	 */
+	private boolean isReloadAllowed(String adminToken) {
+		if (!reloadEnabled) {
+			return false;
+		}
+		if (token.isEmpty()) {
+			return true;
+		}
+		// constant time comparison, response time does not reveal matching prefixes
+		return adminToken != null && MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), adminToken.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Creates details of current network snapshot
+	 * @return network status
+	 */
+	private NetworkStatus buildStatus() {
+		final NetworkSnapshot snapshot = mrtDetails.getSnapshot();
+		final NetworkStatus status = new NetworkStatus();
+		status.setVersion(snapshot.getVersion());
+		status.setSource(snapshot.getSource());
+		status.setLoadedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(snapshot.getLoadedAt()), ZoneId.systemDefault())
+				.format(Constants.REQUEST_DATE_TIME_FORMATTER));
+		status.setStations(snapshot.getGraph().getStationCount());
+		status.setLines(snapshot.getGraph().getLineCount());
+		status.setClosures(snapshot.getAvailability().getClosureCount());
+		status.setReloading(mrtDetails.isReloading());
+		status.setError(lastError);
+		return status;
+	}
+}
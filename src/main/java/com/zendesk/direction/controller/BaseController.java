@@ -1,23 +1,34 @@
 package com.zendesk.direction.controller;
 
-import java.text.ParseException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.util.Date;
+import java.time.format.DateTimeParseException;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 
+import com.zendesk.direction.core.AvailabilityCalendar;
 import com.zendesk.direction.core.MrtDetailsLoader;
-import com.zendesk.direction.entity.MrtStation;
+import com.zendesk.direction.core.NetworkSnapshot;
+import com.zendesk.direction.core.StationNameIndex;
+import com.zendesk.direction.core.TransitGraph;
+import com.zendesk.direction.entity.DirectionQuery;
+import com.zendesk.direction.entity.StationSuggestion;
+import com.zendesk.direction.exception.InvalidAlternativesException;
+import com.zendesk.direction.exception.InvalidDepartureWindowException;
 import com.zendesk.direction.exception.PastDateTimeException;
 import com.zendesk.direction.exception.StationClosedException;
 import com.zendesk.direction.exception.StationNotFoundException;
 import com.zendesk.direction.exception.StationNotReadyException;
+import com.zendesk.direction.metrics.DirectionMetrics;
 import com.zendesk.direction.utils.Constants;
 
 /**
@@ -30,9 +41,14 @@ public class BaseController {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(BaseController.class);
 	
+	private static final ZoneRules ZONE_RULES = ZoneId.systemDefault().getRules();
+	
 	@Autowired
 	private MrtDetailsLoader mrtDetails;
 	
+	@Autowired
+	private DirectionMetrics metrics;
+	
 	/**
 	 * Check if mrt station is valid or not
 	 * @param id : mrt station id
@@ -45,130 +61,289 @@ public class BaseController {
 	}
 	
 	/**
-	 * Validate the user input
+	 * Validate the user input, allocates nothing when input is valid
 	 * @param from : source mrt station
 	 * @param to: destination mrt station
 	 * @param dateTime: Date and time of travel
 	 * @throws StationNotFoundException : if station is not present
-	 * @throws ParseException: if Datetime is invalid
 	 * @throws StationClosedException: if station is closed at night
 	 * @throws StationNotReadyException: if station is not ready yet
 	 * @throws PastDateTimeException : if datetime is less than current datetime
 	 */
-	protected void validateInput(String from, String to, LocalDateTime dateTime) throws StationNotFoundException, ParseException, StationClosedException, StationNotReadyException, PastDateTimeException {
+	protected void validateInput(String from, String to, LocalDateTime dateTime) throws StationNotFoundException, StationClosedException, StationNotReadyException, PastDateTimeException {
+		final long start = System.nanoTime();
+		try {
+			checkInput(from, to, dateTime);
+		} catch (StationNotFoundException | StationClosedException | StationNotReadyException | PastDateTimeException exception) {
+			metrics.recordRejection(exception);
+			throw exception;
+		} finally {
+			metrics.recordValidation(System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * Checks the user input, allocates nothing when input is valid
+	 * @param from : source mrt station
+	 * @param to: destination mrt station
+	 * @param dateTime: Date and time of travel
+	 * @throws StationNotFoundException : if station is not present
+	 * @throws StationClosedException: if station is closed at given date & time
+	 * @throws StationNotReadyException: if station is not ready yet
+	 * @throws PastDateTimeException : if datetime is less than current datetime
+	 */
+	private void checkInput(String from, String to, LocalDateTime dateTime) throws StationNotFoundException, StationClosedException, StationNotReadyException, PastDateTimeException {
 		
 		if (isPastDate(dateTime)) {
 			throw new PastDateTimeException();
 		}
-		if (!isStationExist(from)) {
+		
+		final NetworkSnapshot snapshot = mrtDetails.getSnapshot();
+		final TransitGraph graph = snapshot.getGraph();
+		final int source = graph.getStationIndex(from);
+		final int destination = graph.getStationIndex(to);
+		
+		if (source < 0) {
 			throw new StationNotFoundException("Station name " + from);
 		}
 		
-		if (!isStationExist(to)) {
+		if (destination < 0) {
 			throw new StationNotFoundException("Station name " + to);
 		}
 		
-		if (!isReady(from, dateTime)) {
+		final long day = dateTime.toLocalDate().toEpochDay();
+		if (!isReady(graph, source, day)) {
 			throw new StationNotReadyException("Station name " + from);
 		}
 		
-		if (!isReady(to, dateTime)) {
+		if (!isReady(graph, destination, day)) {
 			throw new StationNotReadyException("Station name " + to);
 		}
 		
-		if (isClose(from, dateTime)) {
+		final AvailabilityCalendar calendar = snapshot.getAvailability();
+		final long minute = AvailabilityCalendar.minute(dateTime);
+		if (!calendar.isStationOpen(source, minute)) {
 			throw new StationClosedException("Station name " + from);
 		}
 		
-		if (isClose(to, dateTime)) {
+		if (!calendar.isStationOpen(destination, minute)) {
 			throw new StationClosedException("Station name " + to);
 		}
 	}
 	
 	/**
-	 * Check if datetime is less than current datetime  
-	 * @param dateTime : datetime
-	 * @return true is datetime is less than current datetime else false
+	 * Validate stations and departure window of a departure sweep, stations closed or not ready during part
+	 * of the window are valid, departures at those times are reported as closed
+	 * @param from : source mrt station
+	 * @param to: destination mrt station
+	 * @param start: earliest departure date & time
+	 * @param end: latest departure date & time
+	 * @throws StationNotFoundException : if station is not present
+	 * @throws PastDateTimeException : if window starts before current datetime
+	 * @throws InvalidDepartureWindowException: if window ends before it starts or is too long
 	 */
-	private boolean isPastDate(LocalDateTime dateTime) {
-		final LocalDateTime now = LocalDateTime.now();
-		if (dateTime.isBefore(now)) {
-			return true;
+	protected void validateWindow(String from, String to, LocalDateTime start, LocalDateTime end) throws StationNotFoundException, PastDateTimeException, InvalidDepartureWindowException {
+		final long begin = System.nanoTime();
+		try {
+			if (isPastDate(start)) {
+				throw new PastDateTimeException();
+			}
+			if (end.isBefore(start) || end.isAfter(start.plusHours(Constants.MAX_DEPARTURE_WINDOW_HOURS))) {
+				throw new InvalidDepartureWindowException();
+			}
+			final TransitGraph graph = mrtDetails.getGraph();
+			if (graph.getStationIndex(from) < 0) {
+				throw new StationNotFoundException("Station name " + from);
+			}
+			if (graph.getStationIndex(to) < 0) {
+				throw new StationNotFoundException("Station name " + to);
+			}
+		} catch (StationNotFoundException | PastDateTimeException exception) {
+			metrics.recordRejection(exception);
+			throw exception;
+		} finally {
+			metrics.recordValidation(System.nanoTime() - begin);
 		}
-		return false;
 	}
+	
 	/**
-	 * Get mrt station name for given station id
-	 * @param id: mrt station id
-	 * @return Associated mrt station name
+	 * Validate one query of a batch request, sets lower case station names and departure date & time on the query
+	 * @param query: source, destination and optional date & time in format dd-MM-yyyy HH:mm
+	 * @return error message, null if query is valid
 	 */
-	protected String getMrtName(String id) {
-		return mrtDetails.getMrtName(id);
+	protected String validateQuery(DirectionQuery query) {
+		if (query == null || query.getFrom() == null || query.getTo() == null) {
+			return "Source and destination station names are required";
+		}
+		
+		final LocalDateTime dateTime;
+		try {
+			dateTime = StringUtils.isBlank(query.getDatetime()) ? LocalDateTime.now()
+					: LocalDateTime.parse(query.getDatetime(), Constants.REQUEST_DATE_TIME_FORMATTER);
+		} catch (DateTimeParseException exception) {
+			return "Datetime must be in format " + Constants.REQUEST_DATE_TIME_FORMAT_STR;
+		}
+		
+		query.setFrom(resolveStationName(query.getFrom()));
+		query.setTo(resolveStationName(query.getTo()));
+		query.setDeparture(dateTime);
+		try {
+			validateInput(query.getFrom(), query.getTo(), dateTime);
+		} catch (Exception exception) {
+			return exception.getMessage();
+		}
+		return null;
 	}
 	
 	/**
-	 * check if given mrt station exists
-	 * @param station: mrt station name
-	 * @return true if mrt station is present else false
+	 * Validate stations of a travel time matrix request
+	 * @param snapshot: network snapshot to resolve station names on
+	 * @param names: mrt station names, null or empty for every station open at given date & time
+	 * @param dateTime: date & time to start journey
+	 * @return station indices in given order
+	 * @throws StationNotFoundException : if station is not present
+	 * @throws StationClosedException: if station is closed at given date & time
+	 * @throws StationNotReadyException: if station is not ready yet
+	 * @throws PastDateTimeException : if datetime is less than current datetime
 	 */
-	private boolean isStationExist(String station) {
-		boolean exist = true;
-		Map<String, List<MrtStation>> stations = mrtDetails.getStations();
-
-		if (!stations.containsKey(station) && mrtDetails.getMrtName(station) == null) {
-			exist = false;
+	protected int[] validateStations(NetworkSnapshot snapshot, List<String> names, LocalDateTime dateTime) throws StationNotFoundException, StationClosedException, StationNotReadyException, PastDateTimeException {
+		if (isPastDate(dateTime)) {
+			throw new PastDateTimeException();
 		}
-
-		return exist;
+		
+		final TransitGraph graph = snapshot.getGraph();
+		final AvailabilityCalendar calendar = snapshot.getAvailability();
+		final long day = dateTime.toLocalDate().toEpochDay();
+		final long minute = AvailabilityCalendar.minute(dateTime);
+		
+		if (names == null || names.isEmpty()) {
+			final int[] open = new int[graph.getStationCount()];
+			int count = 0;
+			for (int station = 0; station < graph.getStationCount(); station++) {
+				if (calendar.isStationOpen(station, minute)) {
+					open[count++] = station;
+				}
+			}
+			return Arrays.copyOf(open, count);
+		}
+		
+		final int[] stations = new int[names.size()];
+		for (int i = 0; i < stations.length; i++) {
+			final String name = names.get(i) == null ? null : resolveStationName(names.get(i));
+			final int station = name == null ? -1 : graph.getStationIndex(name);
+			if (station < 0) {
+				throw new StationNotFoundException("Station name " + name);
+			}
+			if (!isReady(graph, station, day)) {
+				throw new StationNotReadyException("Station name " + name);
+			}
+			if (!calendar.isStationOpen(station, minute)) {
+				throw new StationClosedException("Station name " + name);
+			}
+			stations[i] = station;
+		}
+		return stations;
 	}
-
+	
 	/**
-	 * Check if mrt station is ready
-	 * @param station: mrt station name
-	 * @param dateTimes: date time to start journey
-	 * @return true if station is ready else false
-	 * @throws ParseException: if date time is invalid
+	 * Resolves typed station name to the name of the only station it matches: exact name or code,
+	 * prefix of one station only or closest misspelling
+	 * @param name: typed station name or code
+	 * @return matched station name, lower cased typed name if it matches no station or more than one
 	 */
-	private boolean isReady(String station, LocalDateTime dateTimes) throws ParseException {
-		boolean ready = true;
-		Map<String, List<MrtStation>> stations = mrtDetails.getStations();
-		final Date date = Date.from(dateTimes.atZone(ZoneId.systemDefault()).toInstant());
-		
-		for (MrtStation st : stations.get(station)) {
-			if (st.getDate().compareTo(date) == 1) {
-				ready = false;
-			} else {
-				ready = true;
+	protected String resolveStationName(String name) {
+		final StationNameIndex index = mrtDetails.getNameIndex();
+		final int station = index.resolve(name);
+		return station < 0 ? name.toLowerCase() : index.getGraph().getStationName(station);
+	}
+	
+	/**
+	 * Suggests stations for partly typed station name or code
+	 * @param query: partly typed station name or code
+	 * @param limit: maximum number of stations
+	 * @return station names with their codes, best match first
+	 */
+	protected List<StationSuggestion> suggestStations(String query, int limit) {
+		final StationNameIndex index = mrtDetails.getNameIndex();
+		final TransitGraph graph = index.getGraph();
+		final int[] stations = index.suggest(query, limit);
+		final List<StationSuggestion> suggestions = new ArrayList<>(stations.length);
+		for (int station : stations) {
+			final List<String> ids = new ArrayList<>();
+			for (int k = graph.firstPlatform(station); k < graph.firstPlatform(station + 1); k++) {
+				ids.add(graph.getNode(graph.getPlatform(k)).getId());
 			}
+			final StationSuggestion suggestion = new StationSuggestion();
+			suggestion.setName(graph.getStationName(station));
+			suggestion.setIds(ids);
+			suggestions.add(suggestion);
 		}
-
-		return ready;
+		return suggestions;
 	}
 	
 	/**
-	 * Check if mrt station is closed 
-	 * @param station: mrt station name
-	 * @param dateTime: date time to start journey
-	 * @return true if station is closed else false
+	 * Check number of requested alternative routes
+	 * @param alternatives: number of alternative routes
+	 * @throws InvalidAlternativesException: if number is negative or above maximum
 	 */
-	private boolean isClose(String station, LocalDateTime dateTime) {
-		boolean close = true;
-		Map<String, List<MrtStation>> stations = mrtDetails.getStations();
-
-		for (MrtStation st : stations.get(station)) {
-			if (st.getLine().equals(Constants.CHANGI_GREEN) 
-					|| st.getLine().equals(Constants.DOWN_TOWN) 
-					|| st.getLine().equals(Constants.CIRCLE_EXTENSION)) {
-				if (dateTime.getHour() >= 22 || dateTime.getHour() < 6) {
-					close = close && Boolean.TRUE;
-				} else {
-					close = close && Boolean.FALSE;
-				}
-			} else {
-				close = close && Boolean.FALSE;
-			}
+	protected void validateAlternatives(int alternatives) throws InvalidAlternativesException {
+		if (alternatives < 0 || alternatives > Constants.MAX_ALTERNATIVES) {
+			throw new InvalidAlternativesException();
 		}
-
-		return close;
+	}
+	
+	/**
+	 * Check if client asked for compact structured response
+	 * @param format: requested response format
+	 * @return true if format is compact else false
+	 */
+	protected boolean isCompact(String format) {
+		return Constants.COMPACT_FORMAT.equalsIgnoreCase(format);
+	}
+	
+	/**
+	 * Check if datetime is before the current minute, journeys can start any time in current minute
+	 * @param dateTime : datetime
+	 * @return true is datetime is less than current datetime else false
+	 */
+	private boolean isPastDate(LocalDateTime dateTime) {
+		final long epochSecond = dateTime.toEpochSecond(ZONE_RULES.getOffset(dateTime));
+		return Math.floorDiv(epochSecond, 60) < System.currentTimeMillis() / 60_000;
+	}
+	
+	/**
+	 * Get graph of current network snapshot
+	 * @return mrt graph
+	 */
+	protected TransitGraph getGraph() {
+		return mrtDetails.getGraph();
+	}
+	
+	/**
+	 * Get current network snapshot, graph and availability calendar
+	 * @return network snapshot
+	 */
+	protected NetworkSnapshot getSnapshot() {
+		return mrtDetails.getSnapshot();
+	}
+	
+	/**
+	 * Get mrt station name for given station id
+	 * @param id: mrt station id
+	 * @return Associated mrt station name
+	 */
+	protected String getMrtName(String id) {
+		return mrtDetails.getMrtName(id);
+	}
+	
+	/**
+	 * Check if mrt station is ready
+	 * @param graph: mrt graph
+	 * @param station: station index
+	 * @param epochDay: epoch day to start journey
+	 * @return true if station is ready else false
+	 */
+	private boolean isReady(TransitGraph graph, int station, long epochDay) {
+		return graph.getOpeningEpochDay(station) <= epochDay;
 	}
 }
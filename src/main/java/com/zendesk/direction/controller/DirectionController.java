@@ -1,23 +1,46 @@
 package com.zendesk.direction.controller;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.text.ParseException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zendesk.direction.core.NetworkSnapshot;
+import com.zendesk.direction.entity.CacheStatistics;
+import com.zendesk.direction.entity.CompactTravelPlan;
+import com.zendesk.direction.entity.DepartureProfile;
+import com.zendesk.direction.entity.DirectionQuery;
+import com.zendesk.direction.entity.MatrixQuery;
+import com.zendesk.direction.entity.StationSuggestion;
 import com.zendesk.direction.entity.TravelPlan;
 import com.zendesk.direction.proxy.DirectionGeneratorProxy;
+import com.zendesk.direction.utils.Constants;
 
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.Operation;
@@ -53,10 +76,19 @@ public class DirectionController extends BaseController {
 	@Autowired
 	private DirectionGeneratorProxy routeGenerator;
 	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Value("${directions.batch.maximum-size:1000}")
+	private int batchSize;
+	
 	/**
 	 * Generates directions for given source and destination mrt station name for current time
 	 * @param from: source mrt station name
 	 * @param to: destination mrt station name
+	 * @param format: text for human readable instructions, compact for structured route
+	 * @param alternatives: number of alternative routes ranked by travel time
+	 * @param pareto: attach routes with fewer interchanges instead of alternatives
 	 * @return Travel plan between source and destination station
 	 * @throws ParseException: if datetime is invalid
 	 */
@@ -65,28 +97,30 @@ public class DirectionController extends BaseController {
 		description="Get travel plan for source and destination station according to current time",
 		responses = {
 				@ApiResponse(responseCode="200", description="Route description between given MRT stations"),
-				@ApiResponse(responseCode="400", description="Invalid station name/id, Station either closed or not started yet")
+				@ApiResponse(responseCode="400", description="Invalid station name/id, Station either closed or not started yet"),
+				@ApiResponse(responseCode="503", description="Too many direction requests in progress")
 		}
 	)
 	@SuppressWarnings("unchecked")
 	@RequestMapping(value="/mrt/from/{from}/to/{to}", method=RequestMethod.GET)
-	public ResponseEntity<TravelPlan> getRouteByStationName(
+	public CompletableFuture<ResponseEntity<TravelPlan>> getRouteByStationName(
 			@Parameter(description="Source MRT station name", required=true) @PathVariable("from") String from,
-			@Parameter(description="Destination MRT station name", required=true) @PathVariable("to") String to) throws ParseException {
+			@Parameter(description="Destination MRT station name", required=true) @PathVariable("to") String to,
+			@Parameter(description="Response format, text (default) or compact") @RequestParam(value="format", required=false, defaultValue=Constants.TEXT_FORMAT) String format,
+			@Parameter(description="Number of alternative routes, 0 to 5") @RequestParam(value="alternatives", required=false, defaultValue="0") int alternatives,
+			@Parameter(description="Attach slower routes with fewer interchanges") @RequestParam(value="pareto", required=false, defaultValue="false") boolean pareto) throws ParseException {
 		
 		final LocalDateTime dateTime = LocalDateTime.now();
-		TravelPlan plan = new TravelPlan();
 		try { 
-			from = from.toLowerCase();
-			to = to.toLowerCase();
+			from = resolveStationName(from);
+			to = resolveStationName(to);
+			validateAlternatives(alternatives);
 			super.validateInput(from, to, dateTime);
 		} catch(Exception exception){
-			plan.setError(exception.getMessage());
-			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(plan);
+			return badRequest(exception.getMessage(), isCompact(format));
 		}
 
-		plan = routeGenerator.buildDirections(from, to, dateTime);
-		return ResponseEntity.ok().body(plan);
+		return directions(from, to, dateTime, isCompact(format), alternatives, pareto);
 	}
 	
 	/**
@@ -94,6 +128,9 @@ public class DirectionController extends BaseController {
 	 * @param from: source mrt station name
 	 * @param to: destination mrt station name
 	 * @param datetime: date & time to start journey
+	 * @param format: text for human readable instructions, compact for structured route
+	 * @param alternatives: number of alternative routes ranked by travel time
+	 * @param pareto: attach routes with fewer interchanges instead of alternatives
 	 * @return Travel plan between source and destination station
 	 * @throws ParseException: if datetime is invalid
 	 */
@@ -102,30 +139,32 @@ public class DirectionController extends BaseController {
 		description="Get travel plan for source and destination station according to given time",
 		responses = {
 				@ApiResponse(responseCode="200", description="Route description between given MRT stations"),
-				@ApiResponse(responseCode="400", description="Invalid station name/id, Station either closed or not started yet")
+				@ApiResponse(responseCode="400", description="Invalid station name/id, Station either closed or not started yet"),
+				@ApiResponse(responseCode="503", description="Too many direction requests in progress")
 		}
 	)
 	@SuppressWarnings("unchecked")
 	@RequestMapping(value="/mrt/from/{from}/to/{to}/datetime/{dateTime}", method=RequestMethod.GET)
-	public ResponseEntity<TravelPlan> getRouteByStationName(
+	public CompletableFuture<ResponseEntity<TravelPlan>> getRouteByStationName(
 			@Parameter(description="Source MRT station name", required=true) @PathVariable("from") String from,
 			@Parameter(description="Destination MRT station name", required=true) @PathVariable("to") String to, 
-			@Parameter(description="Time to start journey", required=true) @PathVariable("dateTime") @DateTimeFormat(pattern="dd-MM-yyyy HH:mm") Date date) throws ParseException {
+			@Parameter(description="Time to start journey", required=true) @PathVariable("dateTime") @DateTimeFormat(pattern="dd-MM-yyyy HH:mm") Date date,
+			@Parameter(description="Response format, text (default) or compact") @RequestParam(value="format", required=false, defaultValue=Constants.TEXT_FORMAT) String format,
+			@Parameter(description="Number of alternative routes, 0 to 5") @RequestParam(value="alternatives", required=false, defaultValue="0") int alternatives,
+			@Parameter(description="Attach slower routes with fewer interchanges") @RequestParam(value="pareto", required=false, defaultValue="false") boolean pareto) throws ParseException {
 		
 		final LocalDateTime dateTime = LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
 		
 		try { 
-			from = from.toLowerCase();
-			to = to.toLowerCase();
+			from = resolveStationName(from);
+			to = resolveStationName(to);
+			validateAlternatives(alternatives);
 			super.validateInput(from, to, dateTime);
 		} catch(Exception exception){
-			TravelPlan plan = new TravelPlan();
-			plan.setError(exception.getMessage());
-			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(plan);
+			return badRequest(exception.getMessage(), isCompact(format));
 		}
 		
-		TravelPlan plan = routeGenerator.buildDirections(from, to, dateTime);
-		return ResponseEntity.ok().body(plan);
+		return directions(from, to, dateTime, isCompact(format), alternatives, pareto);
 	}
 	
 	
@@ -133,6 +172,9 @@ public class DirectionController extends BaseController {
 	 * Generates directions for given source and destination mrt station ids for current time
 	 * @param from: source mrt station id
 	 * @param to: destination mrt station id
+	 * @param format: text for human readable instructions, compact for structured route
+	 * @param alternatives: number of alternative routes ranked by travel time
+	 * @param pareto: attach routes with fewer interchanges instead of alternatives
 	 * @return Travel plan between source and destination station
 	 * @throws ParseException: if datetime is invalid
 	 */
@@ -141,14 +183,18 @@ public class DirectionController extends BaseController {
 		description="Get travel plan for source and destination station according to current time",
 		responses = {
 				@ApiResponse(responseCode="200", description="Route description between given MRT stations"),
-				@ApiResponse(responseCode="400", description="Invalid station name/id, Station is either closed or not started yet")
+				@ApiResponse(responseCode="400", description="Invalid station name/id, Station is either closed or not started yet"),
+				@ApiResponse(responseCode="503", description="Too many direction requests in progress")
 		}
 	)
 	@SuppressWarnings("unchecked")
 	@RequestMapping(value="/id/from/{from}/to/{to}", method=RequestMethod.GET)
-	public ResponseEntity<TravelPlan> getRouteByStationId(
+	public CompletableFuture<ResponseEntity<TravelPlan>> getRouteByStationId(
 			@Parameter(description="Source MRT station id", required=true) @PathVariable("from") String fromId,
-			@Parameter(description="Destination MRT station id", required=true) @PathVariable("to") String toId) throws ParseException {
+			@Parameter(description="Destination MRT station id", required=true) @PathVariable("to") String toId,
+			@Parameter(description="Response format, text (default) or compact") @RequestParam(value="format", required=false, defaultValue=Constants.TEXT_FORMAT) String format,
+			@Parameter(description="Number of alternative routes, 0 to 5") @RequestParam(value="alternatives", required=false, defaultValue="0") int alternatives,
+			@Parameter(description="Attach slower routes with fewer interchanges") @RequestParam(value="pareto", required=false, defaultValue="false") boolean pareto) throws ParseException {
 		
 		final LocalDateTime dateTime = LocalDateTime.now();
 		final String from = super.getMrtName(fromId);
@@ -157,15 +203,13 @@ public class DirectionController extends BaseController {
 		try { 
 			validateStationId(fromId);
 			validateStationId(toId);
+			validateAlternatives(alternatives);
 			validateInput(from, to, dateTime);
 		} catch(Exception exception){
-			TravelPlan plan = new TravelPlan();
-			plan.setError(exception.getMessage());
-			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(plan);
+			return badRequest(exception.getMessage(), isCompact(format));
 		}
 
-		TravelPlan plan = routeGenerator.buildDirections(from, to, dateTime);
-		return ResponseEntity.ok().body(plan);
+		return directions(from, to, dateTime, isCompact(format), alternatives, pareto);
 	}
 	
 	/**
@@ -173,6 +217,9 @@ public class DirectionController extends BaseController {
 	 * @param from: source mrt station id
 	 * @param to: destination mrt station id
 	 * @param dateTime: date & time to start journey
+	 * @param format: text for human readable instructions, compact for structured route
+	 * @param alternatives: number of alternative routes ranked by travel time
+	 * @param pareto: attach routes with fewer interchanges instead of alternatives
 	 * @return Travel plan between source and destination station
 	 * @throws ParseException: if datetime is invalid
 	 */
@@ -181,15 +228,19 @@ public class DirectionController extends BaseController {
 		description="Get travel plan for source and destination station according to current time",
 		responses = {
 				@ApiResponse(responseCode="200", description="Route description between given MRT stations"),
-				@ApiResponse(responseCode="400", description="Invalid station name/id, Station is either closed or not started yet")
+				@ApiResponse(responseCode="400", description="Invalid station name/id, Station is either closed or not started yet"),
+				@ApiResponse(responseCode="503", description="Too many direction requests in progress")
 		}
 	)
 	@SuppressWarnings("unchecked")
 	@RequestMapping(value="/id/from/{from}/to/{to}/datetime/{dateTime}", method=RequestMethod.GET)
-	public ResponseEntity<TravelPlan> getRouteByStationId(
+	public CompletableFuture<ResponseEntity<TravelPlan>> getRouteByStationId(
 			@Parameter(description="Source MRT station id", required=true) @PathVariable("from") String fromId,
 			@Parameter(description="Source MRT station id", required=true) @PathVariable("to") String toId, 
-			@Parameter(description="Time to start journey", required=true) @PathVariable("dateTime") @DateTimeFormat(pattern="dd-mm-yyyy HH:mm") Date date) throws ParseException {
+			@Parameter(description="Time to start journey", required=true) @PathVariable("dateTime") @DateTimeFormat(pattern="dd-MM-yyyy HH:mm") Date date,
+			@Parameter(description="Response format, text (default) or compact") @RequestParam(value="format", required=false, defaultValue=Constants.TEXT_FORMAT) String format,
+			@Parameter(description="Number of alternative routes, 0 to 5") @RequestParam(value="alternatives", required=false, defaultValue="0") int alternatives,
+			@Parameter(description="Attach slower routes with fewer interchanges") @RequestParam(value="pareto", required=false, defaultValue="false") boolean pareto) throws ParseException {
 		
 		final LocalDateTime dateTime = LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
 		final String from = super.getMrtName(fromId);
@@ -198,14 +249,290 @@ public class DirectionController extends BaseController {
 		try { 
 			validateStationId(fromId);
 			validateStationId(toId);
+			validateAlternatives(alternatives);
 			validateInput(from, to, dateTime);
 		} catch(Exception exception){
-			TravelPlan plan = new TravelPlan();
-			plan.setError(exception.getMessage());
-			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(plan);
+			return badRequest(exception.getMessage(), isCompact(format));
 		}
 
-		TravelPlan plan = routeGenerator.buildDirections(from, to, dateTime);
-		return ResponseEntity.ok().body(plan);
+		return directions(from, to, dateTime, isCompact(format), alternatives, pareto);
+	}
+	
+	/**
+	 * Generates arrival time of every departure within given window for source and destination mrt station name
+	 * @param from: source mrt station name
+	 * @param to: destination mrt station name
+	 * @param startDate: earliest date & time to start journey
+	 * @param endDate: latest date & time to start journey
+	 * @return departure intervals sharing route and travel time, with fastest departure of the window
+	 */
+	@Operation(
+		summary="Get arrival times for departures within a window",
+		description="Get travel time and arrival time of every departure between given start and end time (dd-MM-yyyy HH:mm), at most "
+				+ Constants.MAX_DEPARTURE_WINDOW_HOURS + " hours, grouped in intervals of equal travel time with fastest departure",
+		responses = {
+				@ApiResponse(responseCode="200", description="Departure intervals in departure order, closed intervals carry an error"),
+				@ApiResponse(responseCode="400", description="Invalid station name or departure window"),
+				@ApiResponse(responseCode="503", description="Too many direction requests in progress")
+		}
+	)
+	@RequestMapping(value="/mrt/from/{from}/to/{to}/departures/{start}/{end}", method=RequestMethod.GET)
+	public CompletableFuture<ResponseEntity<DepartureProfile>> getDepartureProfile(
+			@Parameter(description="Source MRT station name", required=true) @PathVariable("from") String from,
+			@Parameter(description="Destination MRT station name", required=true) @PathVariable("to") String to,
+			@Parameter(description="Earliest time to start journey", required=true) @PathVariable("start") @DateTimeFormat(pattern="dd-MM-yyyy HH:mm") Date startDate,
+			@Parameter(description="Latest time to start journey", required=true) @PathVariable("end") @DateTimeFormat(pattern="dd-MM-yyyy HH:mm") Date endDate) {
+		
+		final LocalDateTime start = LocalDateTime.ofInstant(startDate.toInstant(), ZoneId.systemDefault());
+		final LocalDateTime end = LocalDateTime.ofInstant(endDate.toInstant(), ZoneId.systemDefault());
+		final DepartureProfile profile = new DepartureProfile();
+		try {
+			from = resolveStationName(from);
+			to = resolveStationName(to);
+			validateWindow(from, to, start, end);
+		} catch (Exception exception) {
+			profile.setError(exception.getMessage());
+			return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(profile));
+		}
+		
+		try {
+			return routeGenerator.buildDepartureProfileAsync(from, to, start, end).thenApply(body -> ResponseEntity.ok().body(body));
+		} catch (RejectedExecutionException exception) {
+			profile.setError("Too many direction requests in progress, please try again");
+			return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(profile));
+		}
+	}
+	
+	/**
+	 * Routes validated request on the routing pool, the request thread is released meanwhile
+	 * @param from: source mrt station name
+	 * @param to: destination mrt station name
+	 * @param dateTime: date & time to start journey
+	 * @param compact: structured route instead of human readable instructions
+	 * @param alternatives: number of alternative routes ranked by travel time
+	 * @param pareto: attach routes with fewer interchanges instead of alternatives
+	 * @return future completing with travel plan, service unavailable if too many requests are being routed
+	 */
+	private CompletableFuture<ResponseEntity<TravelPlan>> directions(String from, String to, LocalDateTime dateTime, boolean compact, int alternatives, boolean pareto) {
+		try {
+			return routeGenerator.buildDirectionsAsync(from, to, dateTime, compact, alternatives, pareto)
+					.thenApply(plan -> ResponseEntity.ok().body(plan));
+		} catch (RejectedExecutionException exception) {
+			final TravelPlan plan = compact ? new CompactTravelPlan() : new TravelPlan();
+			plan.setError("Too many direction requests in progress, please try again");
+			return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(plan));
+		}
+	}
+	
+	/**
+	 * Creates bad request response of direction endpoints
+	 * @param error: error message
+	 * @param compact: compact format was requested
+	 * @return completed future of travel plan with error
+	 */
+	private CompletableFuture<ResponseEntity<TravelPlan>> badRequest(String error, boolean compact) {
+		final TravelPlan plan = compact ? new CompactTravelPlan() : new TravelPlan();
+		plan.setError(error);
+		return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(plan));
+	}
+	
+	/**
+	 * Generates directions for many source and destination station names in one call.
+	 * Invalid queries get a travel plan with error, valid ones are routed in parallel on the routing pool
+	 * @param queries: source, destination station names and optional date & time
+	 * @param format: text for human readable instructions, compact for structured routes
+	 * @return future completing with travel plans in query order, service unavailable if too many requests are being routed
+	 */
+	@Operation(
+		summary="Get travel plans for many station name pairs",
+		description="Get travel plans for list of source station, destination station and optional date & time (dd-MM-yyyy HH:mm)",
+		responses = {
+				@ApiResponse(responseCode="200", description="Route descriptions in query order, invalid queries carry an error"),
+				@ApiResponse(responseCode="400", description="Too many queries in one batch"),
+				@ApiResponse(responseCode="503", description="Too many direction requests in progress")
+		}
+	)
+	@RequestMapping(value="/batch", method=RequestMethod.POST)
+	public CompletableFuture<ResponseEntity<List<TravelPlan>>> getRoutes(
+			@Parameter(description="Source and destination station names with date & time", required=true) @RequestBody List<DirectionQuery> queries,
+			@Parameter(description="Response format, text (default) or compact") @RequestParam(value="format", required=false, defaultValue=Constants.TEXT_FORMAT) String format) {
+		
+		if (queries.size() > batchSize) {
+			TravelPlan plan = isCompact(format) ? new CompactTravelPlan() : new TravelPlan();
+			plan.setError("Batch must not contain more than " + batchSize + " queries");
+			return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Collections.singletonList(plan)));
+		}
+		
+		final TravelPlan[] plans = new TravelPlan[queries.size()];
+		final List<DirectionQuery> valid = new ArrayList<>(queries.size());
+		final List<Integer> positions = new ArrayList<>(queries.size());
+		for (int i = 0; i < queries.size(); i++) {
+			final String error = validateQuery(queries.get(i));
+			if (error != null) {
+				plans[i] = isCompact(format) ? new CompactTravelPlan() : new TravelPlan();
+				plans[i].setError(error);
+			} else {
+				valid.add(queries.get(i));
+				positions.add(i);
+			}
+		}
+		
+		try {
+			return routeGenerator.buildDirectionsAsync(valid, isCompact(format)).thenApply(routed -> {
+				for (int i = 0; i < routed.size(); i++) {
+					plans[positions.get(i)] = routed.get(i);
+				}
+				return ResponseEntity.ok().body(Arrays.asList(plans));
+			});
+		} catch (RejectedExecutionException exception) {
+			final TravelPlan plan = isCompact(format) ? new CompactTravelPlan() : new TravelPlan();
+			plan.setError("Too many direction requests in progress, please try again");
+			return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Collections.singletonList(plan)));
+		}
+	}
+	
+	/**
+	 * Generates travel time matrix between many source and destination station names.
+	 * Every source station is searched once on the routing pool, response is streamed row by row
+	 * @param query: source station names, optional destination station names and optional date & time
+	 * @return travel time and stations to travel matrix, -1 for unreachable stations, service unavailable if too many requests are being routed
+	 * @throws IOException in case response body can not be created
+	 */
+	@Operation(
+		summary="Get travel time matrix for given station names",
+		description="Get travel time in minutes and stations to travel from every source to every destination station (all open stations if omitted) for optional date & time (dd-MM-yyyy HH:mm)",
+		responses = {
+				@ApiResponse(responseCode="200", description="One row of travel times and stations to travel per source station"),
+				@ApiResponse(responseCode="400", description="Invalid station name or datetime, Station either closed or not started yet"),
+				@ApiResponse(responseCode="503", description="Too many direction requests in progress")
+		}
+	)
+	@RequestMapping(value="/matrix", method=RequestMethod.POST, produces=MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<ResponseBodyEmitter> getTravelTimeMatrix(
+			@Parameter(description="Source and destination station names with date & time", required=true) @RequestBody MatrixQuery query) throws IOException {
+		
+		final NetworkSnapshot snapshot = getSnapshot();
+		final LocalDateTime dateTime;
+		final int[] origins;
+		final int[] destinations;
+		try {
+			dateTime = StringUtils.isBlank(query.getDatetime()) ? LocalDateTime.now()
+					: LocalDateTime.parse(query.getDatetime(), Constants.REQUEST_DATE_TIME_FORMATTER);
+			if (query.getOrigins() == null || query.getOrigins().isEmpty()) {
+				return matrixError("Source station names are required");
+			}
+			if (query.getOrigins().size() > batchSize) {
+				return matrixError("Matrix must not contain more than " + batchSize + " source stations");
+			}
+			origins = validateStations(snapshot, query.getOrigins(), dateTime);
+			destinations = validateStations(snapshot, query.getDestinations(), dateTime);
+		} catch (DateTimeParseException exception) {
+			return matrixError("Datetime must be in format " + Constants.REQUEST_DATE_TIME_FORMAT_STR);
+		} catch (Exception exception) {
+			return matrixError(exception.getMessage());
+		}
+		
+		final ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+		final JsonGenerator generator = objectMapper.getFactory().createGenerator(new EmitterOutputStream(emitter));
+		try {
+			routeGenerator.writeTravelTimeMatrixAsync(snapshot, origins, destinations, dateTime, generator).whenComplete((done, failure) -> {
+				if (failure == null) {
+					emitter.complete();
+				} else {
+					emitter.completeWithError(failure);
+				}
+			});
+		} catch (RejectedExecutionException exception) {
+			return matrixError(HttpStatus.SERVICE_UNAVAILABLE, "Too many direction requests in progress, please try again");
+		}
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(emitter);
+	}
+	
+	/**
+	 * Creates bad request response of travel time matrix endpoint
+	 * @param error: error message
+	 * @return travel plan with error as response body
+	 * @throws IOException in case response body can not be created
+	 */
+	private ResponseEntity<ResponseBodyEmitter> matrixError(String error) throws IOException {
+		return matrixError(HttpStatus.BAD_REQUEST, error);
+	}
+	
+	/**
+	 * Creates error response of travel time matrix endpoint
+	 * @param status: response status
+	 * @param error: error message
+	 * @return travel plan with error as response body
+	 * @throws IOException in case response body can not be created
+	 */
+	private ResponseEntity<ResponseBodyEmitter> matrixError(HttpStatus status, String error) throws IOException {
+		final TravelPlan plan = new TravelPlan();
+		plan.setError(error);
+		final ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+		emitter.send(plan, MediaType.APPLICATION_JSON);
+		emitter.complete();
+		return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(emitter);
+	}
+	
+	/**
+	 * Output stream handing every written chunk to a response body emitter, so the matrix can be written
+	 * from a routing thread
+	 */
+	private static final class EmitterOutputStream extends OutputStream {
+		
+		private final ResponseBodyEmitter emitter;
+		
+		private EmitterOutputStream(ResponseBodyEmitter emitter) {
+			this.emitter = emitter;
+		}
+		
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (len > 0) {
+				emitter.send(Arrays.copyOfRange(b, off, off + len), MediaType.APPLICATION_JSON);
+			}
+		}
+	}
+	
+	/**
+	 * Suggests stations for partly typed or misspelled station name or code
+	 * @param query: partly typed station name or code
+	 * @param limit: maximum number of stations, 1 to 20
+	 * @return station names with their codes, best match first
+	 */
+	@Operation(
+		summary="Get stations matching partly typed name",
+		description="Get stations whose name, a word of the name or a code starts with given text, followed by close misspellings",
+		responses = {
+				@ApiResponse(responseCode="200", description="Matching station names with their codes, best match first")
+		}
+	)
+	@RequestMapping(value="/stations/autocomplete", method=RequestMethod.GET)
+	public ResponseEntity<List<StationSuggestion>> getStationSuggestions(
+			@Parameter(description="Partly typed station name or code", required=true) @RequestParam("q") String query,
+			@Parameter(description="Maximum number of stations, 1 to 20") @RequestParam(value="limit", required=false, defaultValue="10") int limit) {
+		final int size = Math.max(1, Math.min(limit, Constants.MAX_SUGGESTIONS));
+		return ResponseEntity.ok().body(suggestStations(query, size));
+	}
+	
+	/**
+	 * Returns travel plan cache counters
+	 * @return hit, miss and eviction counters of travel plan cache
+	 */
+	@Operation(
+		summary="Get travel plan cache statistics",
+		description="Get hit, miss and eviction counters of travel plan cache",
+		responses = {
+				@ApiResponse(responseCode="200", description="Travel plan cache counters")
+		}
+	)
+	@RequestMapping(value="/cache/stats", method=RequestMethod.GET)
+	public ResponseEntity<CacheStatistics> getCacheStatistics() {
+		return ResponseEntity.ok().body(routeGenerator.getCacheStatistics());
 	}
 }
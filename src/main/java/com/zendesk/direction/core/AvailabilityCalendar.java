@@ -0,0 +1,368 @@
+package com.zendesk.direction.core;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.zendesk.direction.entity.StationClosure;
+import com.zendesk.direction.utils.Constants;
+
+/**
+ * Closures of every platform (node) of one graph, from the opening date of its station code and from the
+ * availability calendar file, where a line code closes all its platforms and a station name all platforms of the station.
+ * Closures are kept as sorted, merged interval arrays per node, one for single closures in epoch minutes of local time
+ * and one for closures repeated every day in minutes of day, so every availability check is a binary search.
+ * Searches take the closed platforms of their journey start as a bitset, built once per closure period.
+ * A station is open while any of its platforms is open
+ * @author swapnil.janorkar
+ *
+ */
+public final class AvailabilityCalendar {
+
+	private static final long MINUTES_PER_DAY = 24 * 60;
+
+	private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+
+	private final TransitGraph graph;
+	private final int closureCount;
+
+	// closures per node, single ones in epoch minutes and daily ones in minutes of day
+	private final Intervals dated;
+	private final Intervals daily;
+
+	// closures of any node, tells whether the whole network is open
+	private final Intervals anyDated;
+	private final Intervals anyDaily;
+
+	// availability of every node is constant between two consecutive boundaries
+	private final long[] datedBoundaries;
+	private final long[] dailyBoundaries;
+
+	// closed nodes per closure period, built on first use
+	private final AtomicReferenceArray<BitSet> closedNodes;
+
+	/**
+	 * Builds closure intervals of every node of given graph
+	 * @param graph: mrt graph
+	 * @param closures: closures of the availability calendar file
+	 * @throws IllegalArgumentException in case a closure names an unknown line or station or has an invalid period
+	 */
+	public AvailabilityCalendar(TransitGraph graph, List<StationClosure> closures) {
+		this.graph = graph;
+		this.closureCount = closures.size();
+
+		// entries are node, from, until
+		final List<long[]> datedEntries = new ArrayList<>();
+		final List<long[]> dailyEntries = new ArrayList<>();
+		for (int node = 0; node < graph.getNodeCount(); node++) {
+			datedEntries.add(new long[] { node, Long.MIN_VALUE, graph.getNode(node).getOpeningEpochDay() * MINUTES_PER_DAY });
+		}
+
+		for (int i = 0; i < closures.size(); i++) {
+			final StationClosure closure = closures.get(i);
+			try {
+				final int[] nodes = nodesOf(closure.getTarget());
+				final String from = closure.getFrom().trim();
+				final String until = closure.getUntil().trim();
+				if (from.length() <= 5 && until.length() <= 5) {
+					final long start = LocalTime.parse(from, TIME_FORMATTER).toSecondOfDay() / 60;
+					final long end = LocalTime.parse(until, TIME_FORMATTER).toSecondOfDay() / 60;
+					if (start == end) {
+						throw new IllegalArgumentException("closure must not start and end at the same time");
+					}
+					for (int node : nodes) {
+						// closures over midnight are split in two
+						if (start < end) {
+							dailyEntries.add(new long[] { node, start, end });
+						} else {
+							dailyEntries.add(new long[] { node, start, MINUTES_PER_DAY });
+							dailyEntries.add(new long[] { node, 0, end });
+						}
+					}
+				} else {
+					final long start = minute(LocalDateTime.parse(from, Constants.REQUEST_DATE_TIME_FORMATTER));
+					final long end = minute(LocalDateTime.parse(until, Constants.REQUEST_DATE_TIME_FORMATTER));
+					if (end <= start) {
+						throw new IllegalArgumentException("closure must end after it starts");
+					}
+					for (int node : nodes) {
+						datedEntries.add(new long[] { node, start, end });
+					}
+				}
+			} catch (DateTimeParseException | IllegalArgumentException exception) {
+				throw new IllegalArgumentException("Closure " + (i + 1) + " of " + closure.getTarget() + ": " + exception.getMessage(), exception);
+			}
+		}
+
+		this.dated = new Intervals(datedEntries, graph.getNodeCount());
+		this.daily = new Intervals(dailyEntries, graph.getNodeCount());
+		this.anyDated = new Intervals(anyNode(datedEntries), 1);
+		this.anyDaily = new Intervals(anyNode(dailyEntries), 1);
+		this.datedBoundaries = dated.boundaries(Long.MIN_VALUE, Long.MAX_VALUE);
+		this.dailyBoundaries = daily.boundaries(0, MINUTES_PER_DAY);
+		this.closedNodes = new AtomicReferenceArray<>((datedBoundaries.length + 1) * (dailyBoundaries.length + 1));
+	}
+
+	/**
+	 * Returns nodes closed by given calendar target
+	 * @param target: line code or station name
+	 * @return node indices
+	 */
+	private int[] nodesOf(String target) {
+		final String name = target == null ? "" : target.trim();
+		final int line = graph.getLineIndex(name);
+		if (line >= 0) {
+			final int[] nodes = new int[graph.firstLineStop(line + 1) - graph.firstLineStop(line)];
+			for (int i = 0; i < nodes.length; i++) {
+				nodes[i] = graph.getLineStop(graph.firstLineStop(line) + i);
+			}
+			return nodes;
+		}
+		final int station = graph.getStationIndex(name.toLowerCase());
+		if (station >= 0) {
+			final int[] nodes = new int[graph.firstPlatform(station + 1) - graph.firstPlatform(station)];
+			for (int i = 0; i < nodes.length; i++) {
+				nodes[i] = graph.getPlatform(graph.firstPlatform(station) + i);
+			}
+			return nodes;
+		}
+		throw new IllegalArgumentException("unknown line or station " + name);
+	}
+
+	/**
+	 * Copies entries onto node 0 so their merged intervals tell when any node is closed
+	 * @param entries: node, from, until entries
+	 * @return entries of node 0
+	 */
+	private static List<long[]> anyNode(List<long[]> entries) {
+		final List<long[]> any = new ArrayList<>(entries.size());
+		for (long[] entry : entries) {
+			any.add(new long[] { 0, entry[1], entry[2] });
+		}
+		return any;
+	}
+
+	/**
+	 * Returns minute given date & time calendar lookups take, minutes since epoch in local time
+	 * @param dateTime: date & time
+	 * @return minute
+	 */
+	public static long minute(LocalDateTime dateTime) {
+		return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+	}
+
+	/**
+	 * Check if given platform is open at given minute
+	 * @param node: node index
+	 * @param minute: minute, see {@link #minute(LocalDateTime)}
+	 * @return true if node is open else false
+	 */
+	public boolean isOpen(int node, long minute) {
+		return !dated.contains(node, minute) && !daily.contains(node, Math.floorMod(minute, MINUTES_PER_DAY));
+	}
+
+	/**
+	 * Check if any platform of given station is open at given minute
+	 * @param station: station index
+	 * @param minute: minute, see {@link #minute(LocalDateTime)}
+	 * @return true if station is open else false
+	 */
+	public boolean isStationOpen(int station, long minute) {
+		for (int k = graph.firstPlatform(station); k < graph.firstPlatform(station + 1); k++) {
+			if (isOpen(graph.getPlatform(k), minute)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Check if any platform of the network is closed at given minute
+	 * @param minute: minute, see {@link #minute(LocalDateTime)}
+	 * @return true if some node is closed else false
+	 */
+	public boolean isAnyClosed(long minute) {
+		return anyDated.contains(0, minute) || anyDaily.contains(0, Math.floorMod(minute, MINUTES_PER_DAY));
+	}
+
+	/**
+	 * Returns platforms closed at given minute, shared by all minutes of the same closure period
+	 * @param minute: minute, see {@link #minute(LocalDateTime)}
+	 * @return bitset of closed node indices, empty if every platform is open, must not be modified
+	 */
+	public BitSet closedNodes(long minute) {
+		final int period = (int) period(minute);
+		final BitSet cached = closedNodes.get(period);
+		if (cached != null) {
+			return cached;
+		}
+		// racing threads build equal bitsets, either one may be kept
+		final BitSet closed = new BitSet(graph.getNodeCount());
+		if (isAnyClosed(minute)) {
+			for (int node = 0; node < graph.getNodeCount(); node++) {
+				closed.set(node, !isOpen(node, minute));
+			}
+		}
+		closedNodes.compareAndSet(period, null, closed);
+		return closedNodes.get(period);
+	}
+
+	/**
+	 * Returns identifier of the period between two closure boundaries given minute falls in,
+	 * every node is open or closed alike at minutes of the same period
+	 * @param minute: minute, see {@link #minute(LocalDateTime)}
+	 * @return period identifier, not negative
+	 */
+	public long period(long minute) {
+		return (long) upperBound(datedBoundaries, minute) * (dailyBoundaries.length + 1)
+				+ upperBound(dailyBoundaries, Math.floorMod(minute, MINUTES_PER_DAY));
+	}
+
+	/**
+	 * Returns first minute after given minute at which a node opens or closes
+	 * @param minute: minute, see {@link #minute(LocalDateTime)}
+	 * @return minute of next closure boundary, Long.MAX_VALUE if availability never changes again
+	 */
+	public long nextChange(long minute) {
+		long next = Long.MAX_VALUE;
+		final int d = upperBound(datedBoundaries, minute);
+		if (d < datedBoundaries.length) {
+			next = datedBoundaries[d];
+		}
+		if (dailyBoundaries.length > 0) {
+			final long day = minute - Math.floorMod(minute, MINUTES_PER_DAY);
+			final int k = upperBound(dailyBoundaries, minute - day);
+			next = Math.min(next, k < dailyBoundaries.length ? day + dailyBoundaries[k] : day + MINUTES_PER_DAY + dailyBoundaries[0]);
+		}
+		return next;
+	}
+
+	/**
+	 * Returns graph the calendar was built for
+	 * @return mrt graph
+	 */
+	public TransitGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Returns number of closures read from the availability calendar file
+	 * @return number of closures
+	 */
+	public int getClosureCount() {
+		return closureCount;
+	}
+
+	/**
+	 * Returns number of values of given sorted array not greater than given value
+	 * @param values: sorted values
+	 * @param value: value
+	 * @return position of first greater value
+	 */
+	private static int upperBound(long[] values, long value) {
+		int low = 0;
+		int high = values.length;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (values[middle] <= value) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Sorted, merged, half open intervals per row, stored as CSR arrays
+	 */
+	private static final class Intervals {
+
+		private final int[] offsets;
+		private final long[] from;
+		private final long[] until;
+
+		/**
+		 * Sorts entries by row and start and merges overlapping or touching intervals of a row
+		 * @param entries: row, from, until entries
+		 * @param rows: number of rows
+		 */
+		private Intervals(List<long[]> entries, int rows) {
+			entries.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+			final long[] starts = new long[entries.size()];
+			final long[] ends = new long[entries.size()];
+			this.offsets = new int[rows + 1];
+			int count = 0;
+			for (int i = 0; i < entries.size(); i++) {
+				final long[] entry = entries.get(i);
+				final int row = (int) entry[0];
+				if (i > 0 && entries.get(i - 1)[0] == row && entry[1] <= ends[count - 1]) {
+					ends[count - 1] = Math.max(ends[count - 1], entry[2]);
+					continue;
+				}
+				starts[count] = entry[1];
+				ends[count++] = entry[2];
+				offsets[row + 1] = count;
+			}
+			for (int row = 0; row < rows; row++) {
+				offsets[row + 1] = Math.max(offsets[row + 1], offsets[row]);
+			}
+			this.from = Arrays.copyOf(starts, count);
+			this.until = Arrays.copyOf(ends, count);
+		}
+
+		/**
+		 * Check if given value lies in an interval of given row
+		 * @param row: row
+		 * @param value: value
+		 * @return true if value is inside an interval else false
+		 */
+		private boolean contains(int row, long value) {
+			int low = offsets[row];
+			int high = offsets[row + 1];
+			while (low < high) {
+				final int middle = (low + high) >>> 1;
+				if (from[middle] <= value) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low > offsets[row] && value < until[low - 1];
+		}
+
+		/**
+		 * Returns distinct interval ends of all rows, leaving out given bounds
+		 * @param min: lowest value, not a boundary
+		 * @param max: highest value, not a boundary
+		 * @return sorted distinct boundaries
+		 */
+		private long[] boundaries(long min, long max) {
+			final long[] values = new long[from.length * 2];
+			int count = 0;
+			for (int i = 0; i < from.length; i++) {
+				if (from[i] != min) {
+					values[count++] = from[i];
+				}
+				if (until[i] != max) {
+					values[count++] = until[i];
+				}
+			}
+			Arrays.sort(values, 0, count);
+			int distinct = 0;
+			for (int i = 0; i < count; i++) {
+				if (distinct == 0 || values[distinct - 1] != values[i]) {
+					values[distinct++] = values[i];
+				}
+			}
+			return Arrays.copyOf(values, distinct);
+		}
+	}
+}
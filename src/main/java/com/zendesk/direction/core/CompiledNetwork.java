@@ -0,0 +1,195 @@
+package com.zendesk.direction.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import com.zendesk.direction.entity.MrtStation;
+
+/**
+ * Compact binary form of a loaded network: interned station names and line codes, station codes with opening
+ * dates and the graph adjacency. The header records length and CRC32 of the csv it was compiled from and
+ * CRC32 of the payload, a file compiled from another csv or damaged on disk is never used
+ * @author swapnil.janorkar
+ *
+ */
+final class CompiledNetwork {
+
+	private static final int MAGIC = 0x54444e31;
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * magic, format version, csv length, csv crc, payload length, payload crc
+	 */
+	private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4 + 4;
+
+	/**
+	 * private constructor
+	 */
+	private CompiledNetwork() {
+
+	}
+
+	/**
+	 * Maps compiled network file and rebuilds the graph from it
+	 * @param file: compiled network file
+	 * @param sourceLength: length of current csv in bytes
+	 * @param sourceCrc: CRC32 of current csv
+	 * @return mrt graph, null if file is missing, stale or damaged
+	 * @throws IOException in case file can not be read
+	 */
+	static TransitGraph read(Path file, long sourceLength, int sourceCrc) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+				return null;
+			}
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+					|| buffer.getLong() != sourceLength || buffer.getInt() != sourceCrc) {
+				return null;
+			}
+			final int payloadLength = buffer.getInt();
+			final int payloadCrc = buffer.getInt();
+			if (payloadLength != size - HEADER_BYTES) {
+				return null;
+			}
+			final CRC32 crc = new CRC32();
+			crc.update(buffer.duplicate());
+			if ((int) crc.getValue() != payloadCrc) {
+				return null;
+			}
+
+			final String[] stationNames = readStrings(buffer);
+			final String[] lines = readStrings(buffer);
+			final MrtStation[] nodes = new MrtStation[buffer.getInt()];
+			final int[] nodeStation = new int[nodes.length];
+			final short[] nodeLine = new short[nodes.length];
+			for (int node = 0; node < nodes.length; node++) {
+				final MrtStation station = new MrtStation();
+				station.setId(readString(buffer));
+				station.setDate(readString(buffer));
+				nodeStation[node] = buffer.getInt();
+				nodeLine[node] = buffer.getShort();
+				station.setName(stationNames[nodeStation[node]]);
+				nodes[node] = station;
+			}
+			final int[] lineOffsets = readInts(buffer);
+			final int[] lineStops = readInts(buffer);
+			final int[] offsets = readInts(buffer);
+			final int[] targets = readInts(buffer);
+			final short[] edgeLine = new short[buffer.getInt()];
+			buffer.asShortBuffer().get(edgeLine);
+
+			return new TransitGraph(new GraphLayout(nodes, nodeStation, nodeLine, stationNames, lines,
+					lineOffsets, lineStops, offsets, targets, edgeLine));
+		} catch (NoSuchFileException exception) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes compiled network of given graph, replacing file atomically
+	 * @param file: compiled network file
+	 * @param graph: mrt graph compiled from csv
+	 * @param sourceLength: length of csv in bytes
+	 * @param sourceCrc: CRC32 of csv
+	 * @throws IOException in case file can not be written
+	 */
+	static void write(Path file, TransitGraph graph, long sourceLength, int sourceCrc) throws IOException {
+		final GraphLayout layout = graph.getLayout();
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			writeStrings(out, layout.stationNames);
+			writeStrings(out, layout.lines);
+			out.writeInt(layout.nodes.length);
+			for (int node = 0; node < layout.nodes.length; node++) {
+				writeString(out, layout.nodes[node].getId());
+				writeString(out, layout.nodes[node].getDateText());
+				out.writeInt(layout.nodeStation[node]);
+				out.writeShort(layout.nodeLine[node]);
+			}
+			writeInts(out, layout.lineOffsets);
+			writeInts(out, layout.lineStops);
+			writeInts(out, layout.offsets);
+			writeInts(out, layout.targets);
+			out.writeInt(layout.edgeLine.length);
+			for (short line : layout.edgeLine) {
+				out.writeShort(line);
+			}
+		}
+		final byte[] payload = bytes.toByteArray();
+		final CRC32 crc = new CRC32();
+		crc.update(payload);
+
+		final Path parent = file.toAbsolutePath().getParent();
+		final Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeLong(sourceLength);
+				out.writeInt(sourceCrc);
+				out.writeInt(payload.length);
+				out.writeInt((int) crc.getValue());
+				out.write(payload);
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		final byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(utf8.length);
+		out.write(utf8);
+	}
+
+	private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+		out.writeInt(values.length);
+		for (String value : values) {
+			writeString(out, value);
+		}
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		out.writeInt(values.length);
+		for (int value : values) {
+			out.writeInt(value);
+		}
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		final byte[] utf8 = new byte[buffer.getInt()];
+		buffer.get(utf8);
+		return new String(utf8, StandardCharsets.UTF_8);
+	}
+
+	private static String[] readStrings(ByteBuffer buffer) {
+		final String[] values = new String[buffer.getInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = readString(buffer);
+		}
+		return values;
+	}
+
+	private static int[] readInts(ByteBuffer buffer) {
+		final int[] values = new int[buffer.getInt()];
+		buffer.asIntBuffer().get(values);
+		// through Buffer, ByteBuffer.position(int) only exists from java 9 on
+		((Buffer) buffer).position(buffer.position() + values.length * Integer.BYTES);
+		return values;
+	}
+}
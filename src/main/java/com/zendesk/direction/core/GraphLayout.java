@@ -0,0 +1,147 @@
+package com.zendesk.direction.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.zendesk.direction.entity.MrtStation;
+
+/**
+ * Structure of the mrt graph: interned station names and line codes, node to station and line,
+ * stop order of every line and CSR adjacency. Built from csv rows or read back from a compiled network,
+ * everything else {@link TransitGraph} keeps is derived from it
+ * @author swapnil.janorkar
+ *
+ */
+final class GraphLayout {
+
+	final MrtStation[] nodes;
+	final int[] nodeStation;
+	final short[] nodeLine;
+	final String[] stationNames;
+	final String[] lines;
+	final int[] lineOffsets;
+	final int[] lineStops;
+	final int[] offsets;
+	final int[] targets;
+	final short[] edgeLine;
+
+	GraphLayout(MrtStation[] nodes, int[] nodeStation, short[] nodeLine, String[] stationNames, String[] lines,
+			int[] lineOffsets, int[] lineStops, int[] offsets, int[] targets, short[] edgeLine) {
+		this.nodes = nodes;
+		this.nodeStation = nodeStation;
+		this.nodeLine = nodeLine;
+		this.stationNames = stationNames;
+		this.lines = lines;
+		this.lineOffsets = lineOffsets;
+		this.lineStops = lineStops;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.edgeLine = edgeLine;
+	}
+
+	/**
+	 * Interns names and line codes in csv order, orders line stops by station number and connects
+	 * consecutive stops of a line and platforms sharing a station name
+	 * @param mrtStations: mrt stations in csv order
+	 * @return graph layout
+	 */
+	static GraphLayout of(List<MrtStation> mrtStations) {
+		final int nodeCount = mrtStations.size();
+		final MrtStation[] nodes = mrtStations.toArray(new MrtStation[nodeCount]);
+		final int[] nodeStation = new int[nodeCount];
+		final short[] nodeLine = new short[nodeCount];
+
+		final Map<String, Integer> stationIds = new LinkedHashMap<>();
+		final Map<String, Integer> lineIds = new LinkedHashMap<>();
+		final List<List<Integer>> lineNodes = new ArrayList<>();
+		final List<List<Integer>> platforms = new ArrayList<>();
+
+		for (int node = 0; node < nodeCount; node++) {
+			final MrtStation station = nodes[node];
+			Integer stationId = stationIds.get(station.getName());
+			if (stationId == null) {
+				stationId = stationIds.size();
+				stationIds.put(station.getName(), stationId);
+				platforms.add(new ArrayList<>());
+			}
+			Integer lineId = lineIds.get(station.getLine());
+			if (lineId == null) {
+				lineId = lineIds.size();
+				lineIds.put(station.getLine(), lineId);
+				lineNodes.add(new ArrayList<>());
+			}
+			nodeStation[node] = stationId;
+			nodeLine[node] = lineId.shortValue();
+			platforms.get(stationId).add(node);
+			lineNodes.get(lineId).add(node);
+		}
+
+		// consecutive codes of a line are adjacent, codes sharing a name are interchanges
+		final int[] degree = new int[nodeCount];
+		final int[] lineOffsets = new int[lineNodes.size() + 1];
+		final int[] lineStops = new int[nodeCount];
+		for (int lineId = 0, k = 0; lineId < lineNodes.size(); lineId++) {
+			final List<Integer> line = lineNodes.get(lineId);
+			line.sort((a, b) -> Integer.compare(codeNumber(nodes[a]), codeNumber(nodes[b])));
+			lineOffsets[lineId] = k;
+			for (int i = 0; i < line.size(); i++) {
+				lineStops[k++] = line.get(i);
+				if (i > 0) {
+					degree[line.get(i - 1)]++;
+					degree[line.get(i)]++;
+				}
+			}
+			lineOffsets[lineId + 1] = k;
+		}
+		for (int node = 0; node < nodeCount; node++) {
+			degree[node] += platforms.get(nodeStation[node]).size() - 1;
+		}
+
+		final int[] offsets = new int[nodeCount + 1];
+		for (int node = 0; node < nodeCount; node++) {
+			offsets[node + 1] = offsets[node] + degree[node];
+		}
+		final int[] targets = new int[offsets[nodeCount]];
+		final short[] edgeLine = new short[offsets[nodeCount]];
+
+		final int[] fill = Arrays.copyOf(offsets, nodeCount);
+		for (int lineId = 0; lineId < lineNodes.size(); lineId++) {
+			final List<Integer> line = lineNodes.get(lineId);
+			for (int i = 1; i < line.size(); i++) {
+				final int a = line.get(i - 1);
+				final int b = line.get(i);
+				targets[fill[a]] = b;
+				edgeLine[fill[a]++] = (short) lineId;
+				targets[fill[b]] = a;
+				edgeLine[fill[b]++] = (short) lineId;
+			}
+		}
+		for (int node = 0; node < nodeCount; node++) {
+			for (int platform : platforms.get(nodeStation[node])) {
+				if (platform != node) {
+					targets[fill[node]] = platform;
+					edgeLine[fill[node]++] = TransitGraph.INTERCHANGE;
+				}
+			}
+		}
+
+		return new GraphLayout(nodes, nodeStation, nodeLine, stationIds.keySet().toArray(new String[0]),
+				lineIds.keySet().toArray(new String[0]), lineOffsets, lineStops, offsets, targets, edgeLine);
+	}
+
+	/**
+	 * Numeric part of station code, used to order stations along a line
+	 * @param station: mrt station
+	 * @return station number on its line
+	 */
+	private static int codeNumber(MrtStation station) {
+		try {
+			return Integer.parseInt(station.getId().substring(2));
+		} catch (NumberFormatException exception) {
+			return Integer.MAX_VALUE;
+		}
+	}
+}
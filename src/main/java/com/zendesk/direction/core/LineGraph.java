@@ -0,0 +1,303 @@
+package com.zendesk.direction.core;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import com.zendesk.direction.utils.TimeBand;
+
+/**
+ * Line level view of the mrt graph: lines are nodes and two lines are adjacent when they share an interchange station.
+ * Minimum number of interchanges between every pair of lines and, per time band, minimum travel time between every
+ * station and every line are precomputed, so the lines worth searching between two stations are picked by looking at
+ * every line once. The station search that follows still runs over all stations of the picked lines
+ * @author swapnil.janorkar
+ *
+ */
+public final class LineGraph {
+
+	/**
+	 * Interchanges between lines not connected at all
+	 */
+	public static final int UNREACHABLE = Short.MAX_VALUE;
+
+	/**
+	 * Largest line x station table kept per time band for travel time lower bounds, bigger networks get no bounds
+	 */
+	private static final int TIME_TABLE_LIMIT = 1 << 22;
+
+	private final TransitGraph graph;
+	private final int lineCount;
+	private final short[] transfers;
+	private final char[][] lineTimes;
+
+	/**
+	 * Connects lines of platforms joined by an interchange edge, counts interchanges between all lines and
+	 * searches travel times from every line
+	 * @param graph: mrt graph
+	 */
+	public LineGraph(TransitGraph graph) {
+		this.graph = graph;
+		this.lineCount = graph.getLineCount();
+		this.transfers = buildTransfers();
+		this.lineTimes = (long) lineCount * graph.getStationCount() <= TIME_TABLE_LIMIT ? buildLineTimes() : null;
+	}
+
+	/**
+	 * Breadth first search over the line graph from every line
+	 * @return interchanges indexed by from * lineCount + to
+	 */
+	private short[] buildTransfers() {
+		final boolean[] adjacent = new boolean[lineCount * lineCount];
+		for (int node = 0; node < graph.getNodeCount(); node++) {
+			for (int edge = graph.firstEdge(node); edge < graph.firstEdge(node + 1); edge++) {
+				if (graph.getEdgeLine(edge) == TransitGraph.INTERCHANGE) {
+					adjacent[graph.getNodeLine(node) * lineCount + graph.getNodeLine(graph.getTarget(edge))] = true;
+				}
+			}
+		}
+
+		// interchanges are symmetric
+		final short[] transfers = new short[lineCount * lineCount];
+		Arrays.fill(transfers, (short) UNREACHABLE);
+		final int[] queue = new int[lineCount];
+		for (int from = 0; from < lineCount; from++) {
+			final int row = from * lineCount;
+			int head = 0;
+			int tail = 0;
+			transfers[row + from] = 0;
+			queue[tail++] = from;
+			while (head < tail) {
+				final int line = queue[head++];
+				for (int next = 0; next < lineCount; next++) {
+					if (adjacent[line * lineCount + next] && transfers[row + next] == UNREACHABLE) {
+						transfers[row + next] = (short) (transfers[row + line] + 1);
+						queue[tail++] = next;
+					}
+				}
+			}
+		}
+		return transfers;
+	}
+
+	/**
+	 * Dijkstra search from all stops of every line for every time band. Travel times are symmetric,
+	 * so the time from a line to a station is also the time from the station to the line
+	 * @return per time band, travel time indexed by line * stationCount + station, saturated at Character.MAX_VALUE
+	 */
+	private char[][] buildLineTimes() {
+		final int nodeCount = graph.getNodeCount();
+		final int stationCount = graph.getStationCount();
+		final TimeBand[] bands = TimeBand.values();
+		final char[][] times = new char[bands.length][lineCount * stationCount];
+		final int[] dist = new int[nodeCount];
+		long[] heap = new long[nodeCount + 1];
+
+		for (TimeBand band : bands) {
+			final int[] time = graph.getTravelTimes(band.ordinal());
+			final char[] table = times[band.ordinal()];
+			Arrays.fill(table, Character.MAX_VALUE);
+			for (int line = 0; line < lineCount; line++) {
+				Arrays.fill(dist, Integer.MAX_VALUE);
+				int size = 0;
+				for (int k = graph.firstLineStop(line); k < graph.firstLineStop(line + 1); k++) {
+					dist[graph.getLineStop(k)] = 0;
+					size = push(heap, size, graph.getLineStop(k));
+				}
+				while (size > 0) {
+					final long top = heap[0];
+					size = pop(heap, size);
+					final int node = (int) top;
+					if ((int) (top >>> 32) > dist[node]) {
+						continue;
+					}
+					final int cell = line * stationCount + graph.getNodeStation(node);
+					table[cell] = (char) Math.min(table[cell], Math.min(dist[node], Character.MAX_VALUE));
+					for (int edge = graph.firstEdge(node); edge < graph.firstEdge(node + 1); edge++) {
+						final int next = graph.getTarget(edge);
+						final int candidate = dist[node] + time[edge];
+						if (candidate < dist[next]) {
+							dist[next] = candidate;
+							if (size == heap.length) {
+								heap = Arrays.copyOf(heap, heap.length * 2);
+							}
+							size = push(heap, size, ((long) candidate << 32) | next);
+						}
+					}
+				}
+			}
+		}
+		return times;
+	}
+
+	/**
+	 * Adds entry to binary min heap of travel time in high and node in low 32 bits
+	 * @param heap: heap array
+	 * @param size: current heap size
+	 * @param entry: heap entry
+	 * @return new heap size
+	 */
+	private static int push(long[] heap, int size, long entry) {
+		int index = size;
+		while (index > 0) {
+			final int parent = (index - 1) >>> 1;
+			if (heap[parent] <= entry) {
+				break;
+			}
+			heap[index] = heap[parent];
+			index = parent;
+		}
+		heap[index] = entry;
+		return size + 1;
+	}
+
+	/**
+	 * Removes smallest entry of binary min heap
+	 * @param heap: heap array
+	 * @param size: current heap size
+	 * @return new heap size
+	 */
+	private static int pop(long[] heap, int size) {
+		final long last = heap[--size];
+		int index = 0;
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && heap[child + 1] < heap[child]) {
+				child++;
+			}
+			if (heap[child] >= last) {
+				break;
+			}
+			heap[index] = heap[child];
+			index = child;
+		}
+		if (size > 0) {
+			heap[index] = last;
+		}
+		return size;
+	}
+
+	/**
+	 * Returns graph the line indices belong to
+	 * @return mrt graph
+	 */
+	public TransitGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Returns minimum number of interchanges to get from one line to another
+	 * @param from: line index
+	 * @param to: line index
+	 * @return number of interchanges, {@link #UNREACHABLE} if lines are not connected
+	 */
+	public int getTransfers(int from, int to) {
+		return transfers[from * lineCount + to];
+	}
+
+	/**
+	 * Returns minimum number of interchanges between any line of given source station and any line of given destination station
+	 * @param source: source station index
+	 * @param destination: destination station index
+	 * @return number of interchanges, {@link #UNREACHABLE} if stations are not connected
+	 */
+	public int getMinimumTransfers(int source, int destination) {
+		int best = UNREACHABLE;
+		for (int line = 0; line < lineCount; line++) {
+			best = Math.min(best, viaTransfers(source, line, destination));
+		}
+		return Math.min(best, UNREACHABLE);
+	}
+
+	/**
+	 * Returns lines of every line sequence from given source station to given destination station with at most
+	 * given number of interchanges over the minimum. A line is kept when the fewest interchanges from the source
+	 * station to it plus the fewest from it to the destination station are within that bound
+	 * @param source: source station index
+	 * @param destination: destination station index
+	 * @param extraTransfers: interchanges allowed over the minimum
+	 * @return line indices, empty if stations are not connected
+	 */
+	public BitSet candidateLines(int source, int destination, int extraTransfers) {
+		final BitSet candidates = new BitSet(lineCount);
+		final int best = getMinimumTransfers(source, destination);
+		if (best >= UNREACHABLE) {
+			return candidates;
+		}
+		for (int line = 0; line < lineCount; line++) {
+			if (viaTransfers(source, line, destination) <= best + extraTransfers) {
+				candidates.set(line);
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Check if travel time lower bounds between stations and lines are kept
+	 * @return false for networks above the table limit
+	 */
+	public boolean hasTimeBounds() {
+		return lineTimes != null;
+	}
+
+	/**
+	 * Returns minimum travel time between given station and any stop of given line
+	 * @param station: station index
+	 * @param line: line index
+	 * @param band: time band ordinal
+	 * @return travel time in minutes, Character.MAX_VALUE if not connected or too far, 0 when bounds are not kept
+	 */
+	public int getLowerBound(int station, int line, int band) {
+		if (lineTimes == null) {
+			return 0;
+		}
+		return lineTimes[band][line * graph.getStationCount() + station];
+	}
+
+	/**
+	 * Returns lines a route between given stations could use without taking longer than given travel time.
+	 * A line is kept when the time from the source station to it plus from it to the destination station
+	 * is within that time, the fastest route only uses kept lines
+	 * @param source: source station index
+	 * @param destination: destination station index
+	 * @param band: time band ordinal
+	 * @param maxTime: travel time of any known route between the stations
+	 * @return line indices, every line when bounds are not kept
+	 */
+	public BitSet candidateLines(int source, int destination, int band, int maxTime) {
+		final BitSet candidates = new BitSet(lineCount);
+		for (int line = 0; line < lineCount; line++) {
+			if (getLowerBound(source, line, band) + getLowerBound(destination, line, band) <= maxTime) {
+				candidates.set(line);
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Returns fewest interchanges from any line of source station to given line plus from it to any line of destination station
+	 * @param source: source station index
+	 * @param line: line index
+	 * @param destination: destination station index
+	 * @return number of interchanges, {@link #UNREACHABLE} or more if not connected
+	 */
+	private int viaTransfers(int source, int line, int destination) {
+		return fewestTransfers(source, line) + fewestTransfers(destination, line);
+	}
+
+	/**
+	 * Returns fewest interchanges between any line of given station and given line
+	 * @param station: station index
+	 * @param line: line index
+	 * @return number of interchanges, {@link #UNREACHABLE} if not connected
+	 */
+	private int fewestTransfers(int station, int line) {
+		int fewest = UNREACHABLE;
+		for (int k = graph.firstPlatform(station); k < graph.firstPlatform(station + 1); k++) {
+			fewest = Math.min(fewest, transfers[graph.getNodeLine(graph.getPlatform(k)) * lineCount + line]);
+		}
+		return fewest;
+	}
+}
@@ -1,29 +1,46 @@
 package com.zendesk.direction.core;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
 
 import com.opencsv.bean.CsvToBean;
 import com.opencsv.bean.CsvToBeanBuilder;
 import com.zendesk.direction.entity.MrtStation;
+import com.zendesk.direction.entity.StationClosure;
 
 /**
- * Reads mrt station details from csv and generates appropriate data structure
+ * Reads mrt station details from csv and publishes them as an immutable network snapshot.
+ * The csv is compiled to a binary network file on first load and later loads map that file instead of
+ * parsing the csv while the csv is unchanged.
+ * Reloads build a new snapshot in the background and swap it in, readers never wait
  * @author swapnil.janorkar
  *
  */
@@ -32,15 +49,31 @@ public class MrtDetailsLoader {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(MrtDetailsLoader.class);
 	
-	private List<MrtStation> mrtStations;
+	private static final String CLASSPATH_NETWORK = "/station_map.csv";
 	
-	// lines
-	private Map<String, List<MrtStation>> mrtLines = new HashMap<>();
-	//stationLines
-	private Map<MrtStation, List<String>> stationLines = new HashMap<>();
-	private Map<String, Set<String>> linesInterchange = new HashMap<>();
-	private Map<String, List<MrtStation>> stations = new HashMap<>();
-	private Map<String, String> mrtIdNameMap = new HashMap<>();
+	private static final String CLASSPATH_AVAILABILITY = "/availability.csv";
+
+	@Autowired(required = false)
+	private ApplicationEventPublisher eventPublisher;
+
+	@Value("${directions.network.file:}")
+	private String networkFile;
+
+	@Value("${directions.network.compiled-file:${java.io.tmpdir}/transit-directions.network}")
+	private String compiledFile;
+
+	@Value("${directions.availability.file:}")
+	private String availabilityFile;
+
+	private volatile NetworkSnapshot snapshot;
+
+	private final AtomicReference<CompletableFuture<NetworkSnapshot>> pendingReload = new AtomicReference<>();
+
+	private final ExecutorService reloadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+		final Thread thread = new Thread(runnable, "network-reload");
+		thread.setDaemon(true);
+		return thread;
+	});
 	
 	/**
 	 * Reads mrt station information from csv file
@@ -48,106 +81,162 @@ public class MrtDetailsLoader {
 	 */
 	@PostConstruct
 	public void init() throws IOException {
-		LOGGER.debug("loading station_map.csv");
-		try (InputStream inputStream = getClass().getResourceAsStream("/station_map.csv");
-				BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-
-			CsvToBean<MrtStation> csvToBean = new CsvToBeanBuilder<MrtStation>(reader)
-					.withType(MrtStation.class)
-					.withIgnoreLeadingWhiteSpace(true)
-					.withSkipLines(1)
-					.build();
+		snapshot = loadSnapshot(1);
+	}
 
-			this.mrtStations = csvToBean.parse();
-		}
-		for (MrtStation mrt : mrtStations) {
-			buildMrtLine(mrt);
-			associateStationToLine(mrt);
-			associateNameToStation(mrt.getName(), mrt);
-			mrtIdNameMap.put(mrt.getId(), mrt.getName());
-		}
-		
-		buildLinesInterchangeMap();
-		LOGGER.debug("loaded station_map.csv successfuly");
+	/**
+	 * Stops background reloads
+	 */
+	@PreDestroy
+	public void destroy() {
+		reloadExecutor.shutdownNow();
 	}
-	
+
 	/**
-	 * Station and interchange lines map
+	 * Rebuilds network snapshot from csv in the background and swaps it in when complete.
+	 * Requests keep using the current snapshot meanwhile, concurrent calls share one reload
+	 * @return future completing with new snapshot, or exceptionally if csv could not be loaded
 	 */
-	private void buildLinesInterchangeMap() {
-		LOGGER.debug("Associating MRT station with MRT lines");
-		
-		for (Entry<MrtStation, List<String>> entry : stationLines.entrySet()) {
-			if (linesInterchange.containsKey(entry.getKey().getLine())) {
-				linesInterchange.get(entry.getKey().getLine()).addAll(entry.getValue());
-			} else {
-				Set<String> tempSet = new HashSet<>(entry.getValue());
-				linesInterchange.put(entry.getKey().getLine(), tempSet);
+	public CompletableFuture<NetworkSnapshot> reload() {
+		final CompletableFuture<NetworkSnapshot> future = new CompletableFuture<>();
+		while (!pendingReload.compareAndSet(null, future)) {
+			final CompletableFuture<NetworkSnapshot> running = pendingReload.get();
+			if (running != null) {
+				return running;
 			}
 		}
 
-		for (Entry<String, Set<String>> entry : linesInterchange.entrySet()) {
-			for (String str : entry.getValue()) {
-				linesInterchange.get(str).add(entry.getKey());
+		reloadExecutor.execute(() -> {
+			try {
+				final NetworkSnapshot next = loadSnapshot(snapshot.getVersion() + 1);
+				snapshot = next;
+				LOGGER.info("Network snapshot {} loaded from {}, {} stations", next.getVersion(), next.getSource(),
+						next.getGraph().getStationCount());
+				if (eventPublisher != null) {
+					eventPublisher.publishEvent(new NetworkReloadedEvent(this, next));
+				}
+				pendingReload.set(null);
+				future.complete(next);
+			} catch (Exception exception) {
+				LOGGER.error("Network reload failed, keeping snapshot {}", snapshot.getVersion(), exception);
+				pendingReload.set(null);
+				future.completeExceptionally(exception);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Check if a reload is running
+	 * @return true if reload is running else false
+	 */
+	public boolean isReloading() {
+		return pendingReload.get() != null;
+	}
+
+	/**
+	 * Reads configured csv file, or the bundled one if no file is configured, into a new snapshot.
+	 * Uses the compiled network when it was compiled from the same csv, otherwise parses the csv and compiles it.
+	 * The availability calendar is read on every load
+	 * @param version: version of new snapshot
+	 * @return network snapshot
+	 * @throws IOException in case station info file is not present
+	 */
+	private NetworkSnapshot loadSnapshot(long version) throws IOException {
+		final String source = StringUtils.isBlank(networkFile) ? "classpath:" + CLASSPATH_NETWORK : networkFile;
+		LOGGER.debug("loading {}", source);
+
+		final long start = System.nanoTime();
+		final List<StationClosure> closures = readClosures();
+		final byte[] csv = readSource(source);
+		final CRC32 crc = new CRC32();
+		crc.update(csv);
+		final Path compiled = StringUtils.isBlank(compiledFile) ? null : Paths.get(compiledFile);
+		if (compiled != null) {
+			try {
+				final TransitGraph graph = CompiledNetwork.read(compiled, csv.length, (int) crc.getValue());
+				if (graph != null) {
+					LOGGER.info("Loaded compiled network {} of {} in {} ms", compiled, source, (System.nanoTime() - start) / 1_000_000);
+					return new NetworkSnapshot(graph, closures, version, source);
+				}
+				LOGGER.info("Compiled network {} is missing, stale or damaged, parsing {}", compiled, source);
+			} catch (IOException | RuntimeException exception) {
+				LOGGER.warn("Compiled network {} could not be read, parsing {}", compiled, source, exception);
 			}
 		}
 
-		for (Entry<String, Set<String>> entry : linesInterchange.entrySet()) {
-			entry.getValue().remove(entry.getKey());
+		final List<MrtStation> mrtStations;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8))) {
+
+			CsvToBean<MrtStation> csvToBean = new CsvToBeanBuilder<MrtStation>(reader)
+					.withType(MrtStation.class)
+					.withIgnoreLeadingWhiteSpace(true)
+					.withSkipLines(1)
+					.build();
+
+			mrtStations = csvToBean.parse();
+		}
+		
+		final NetworkSnapshot loaded = new NetworkSnapshot(mrtStations, closures, version, source);
+		LOGGER.info("Parsed {} in {} ms", source, (System.nanoTime() - start) / 1_000_000);
+		if (compiled != null) {
+			try {
+				CompiledNetwork.write(compiled, loaded.getGraph(), csv.length, (int) crc.getValue());
+			} catch (IOException exception) {
+				LOGGER.warn("Compiled network could not be written to {}", compiled, exception);
+			}
 		}
+		return loaded;
 	}
 	
 	/**
-	 * Associate given station name to appropriate MrtStation object
-	 * @param stationStr: station name in string format
-	 * @param station: MrtStation object
+	 * Reads closures of configured availability calendar file, or of the bundled one if no file is configured
+	 * @return closures in file order
+	 * @throws IOException in case availability calendar file is not present
 	 */
-	private void associateNameToStation(String stationStr, MrtStation station) {
-		LOGGER.debug("Associating MRT stations names with MRT station object");
+	private List<StationClosure> readClosures() throws IOException {
+		final boolean bundled = StringUtils.isBlank(availabilityFile);
+		try (InputStream inputStream = bundled ? getClass().getResourceAsStream(CLASSPATH_AVAILABILITY) : Files.newInputStream(Paths.get(availabilityFile))) {
+			if (inputStream == null) {
+				throw new FileNotFoundException("classpath:" + CLASSPATH_AVAILABILITY);
+			}
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+			CsvToBean<StationClosure> csvToBean = new CsvToBeanBuilder<StationClosure>(reader)
+					.withType(StationClosure.class)
+					.withIgnoreLeadingWhiteSpace(true)
+					.withSkipLines(1)
+					.build();
 		
-		if (stations.containsKey(stationStr)) {
-			stations.get(stationStr).add(station);
-		} else {
-			List<MrtStation> list = new ArrayList<>();
-			list.add(station);
-			stations.put(stationStr, list);
+			final List<StationClosure> closures = csvToBean.parse();
+			LOGGER.debug("Read {} closures from {}", closures.size(), bundled ? "classpath:" + CLASSPATH_AVAILABILITY : availabilityFile);
+			return closures;
 		}
 	}
 	
 	/**
-	 * Associate MrtStation to appropriate line
-	 * @param station: mrt station 
+	 * Reads whole csv, it is small and its checksum decides whether the compiled network is current
+	 * @param source: csv location
+	 * @return csv bytes
+	 * @throws IOException in case station info file is not present
 	 */
-	private void buildMrtLine(MrtStation station) {
-		LOGGER.debug("Associating MRT stations with MRT lines");
-		
-		if (mrtLines.containsKey(station.getLine())) {
-			mrtLines.get(station.getLine()).add(station);
-		} else {
-			List<MrtStation> tempStations = new ArrayList<>();
-			tempStations.add(station);
-			mrtLines.put(station.getLine(), tempStations);
+	private byte[] readSource(String source) throws IOException {
+		if (StringUtils.isNotBlank(networkFile)) {
+			return Files.readAllBytes(Paths.get(networkFile));
+		}
+		try (InputStream inputStream = getClass().getResourceAsStream(CLASSPATH_NETWORK)) {
+			if (inputStream == null) {
+				throw new FileNotFoundException(source);
+			}
+			return StreamUtils.copyToByteArray(inputStream);
 		}
 	}
 	
 	/**
-	 * Associate MrtStation appropriate lines.
-	 * Some of the mrt stations belongs to multiple line, this data structure keeps track of that
-	 * @param station MrtStation
+	 * Returns current network snapshot, use it for several lookups that must see the same network
+	 * @return network snapshot
 	 */
-	private void associateStationToLine(MrtStation station) {
-		LOGGER.debug("Associating MRT stations with MRT lines");
-		
-		if (stationLines.containsKey(station)) {
-			List<String> tempLines = stationLines.get(station);
-			tempLines.add(station.getLine());
-			stationLines.put(station, tempLines);
-
-		} else {
-			List<String> tempLines = new ArrayList<>();
-			tempLines.add(station.getLine());
-			stationLines.put(station, tempLines);
-		}
+	public NetworkSnapshot getSnapshot() {
+		return snapshot;
 	}
 
 	/**
@@ -155,7 +244,7 @@ public class MrtDetailsLoader {
 	 * @return list of MrtStation
 	 */
 	public List<MrtStation> getMrtStations() {
-		return this.mrtStations;
+		return snapshot.getMrtStations();
 	}
 
 	/**
@@ -163,7 +252,7 @@ public class MrtDetailsLoader {
 	 * @return mrt line and associated stations
 	 */
 	public Map<String, List<MrtStation>> getMrtLines() {
-		return mrtLines;
+		return snapshot.getMrtLines();
 	}
 
 	/**
@@ -171,7 +260,7 @@ public class MrtDetailsLoader {
 	 * @return MrtStation and associates lines map
 	 */
 	public Map<MrtStation, List<String>> getStationLines() {
-		return stationLines;
+		return snapshot.getStationLines();
 	}
 
 	/**
@@ -179,7 +268,7 @@ public class MrtDetailsLoader {
 	 * @return line interchange map
 	 */
 	public Map<String, Set<String>> getLinesInterchange() {
-		return linesInterchange;
+		return snapshot.getLinesInterchange();
 	}
 
 	/**
@@ -187,7 +276,23 @@ public class MrtDetailsLoader {
 	 * @return map of station name to MrtStation map
 	 */
 	public Map<String, List<MrtStation>> getStations() {
-		return stations;
+		return snapshot.getStations();
+	}
+
+	/**
+	 * Returns integer indexed graph of the mrt network
+	 * @return mrt network graph
+	 */
+	public TransitGraph getGraph() {
+		return snapshot.getGraph();
+	}
+
+	/**
+	 * Returns station name index of the mrt network
+	 * @return station name index
+	 */
+	public StationNameIndex getNameIndex() {
+		return snapshot.getNameIndex();
 	}
 	
 	/**
@@ -196,6 +301,6 @@ public class MrtDetailsLoader {
 	 * @return mrt name
 	 */
 	public String getMrtName(String id) {
-		return mrtIdNameMap.get(id);
+		return snapshot.getMrtName(id);
 	}
 }
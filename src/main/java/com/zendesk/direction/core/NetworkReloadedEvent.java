@@ -0,0 +1,24 @@
+package com.zendesk.direction.core;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published after a new network snapshot replaced the previous one
+ * @author swapnil.janorkar
+ *
+ */
+public class NetworkReloadedEvent extends ApplicationEvent {
+
+	private static final long serialVersionUID = 4410523218722917713L;
+
+	private final NetworkSnapshot snapshot;
+
+	public NetworkReloadedEvent(Object source, NetworkSnapshot snapshot) {
+		super(source);
+		this.snapshot = snapshot;
+	}
+
+	public NetworkSnapshot getSnapshot() {
+		return snapshot;
+	}
+}
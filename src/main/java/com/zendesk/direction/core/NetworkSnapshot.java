@@ -0,0 +1,224 @@
+package com.zendesk.direction.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.zendesk.direction.entity.MrtStation;
+import com.zendesk.direction.entity.StationClosure;
+
+/**
+ * Immutable view of the mrt network built from one station list.
+ * Published as a whole, readers holding a snapshot never see a partially loaded network
+ * @author swapnil.janorkar
+ *
+ */
+public final class NetworkSnapshot {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(NetworkSnapshot.class);
+
+	private final long version;
+	private final String source;
+	private final long loadedAt;
+	private final List<MrtStation> mrtStations;
+
+	// lines
+	private final Map<String, List<MrtStation>> mrtLines = new HashMap<>();
+	//stationLines
+	private final Map<MrtStation, List<String>> stationLines = new HashMap<>();
+	private final Map<String, Set<String>> linesInterchange = new HashMap<>();
+	private final Map<String, List<MrtStation>> stations = new HashMap<>();
+	private final Map<String, String> mrtIdNameMap = new HashMap<>();
+	private final TransitGraph graph;
+	private final StationNameIndex nameIndex;
+	private final AvailabilityCalendar availability;
+
+	/**
+	 * Builds lookup maps, graph and availability calendar for given stations
+	 * @param mrtStations: all mrt stations of the network
+	 * @param closures: closures of the availability calendar file
+	 * @param version: snapshot version, increases with every reload
+	 * @param source: location stations were read from
+	 */
+	public NetworkSnapshot(List<MrtStation> mrtStations, List<StationClosure> closures, long version, String source) {
+		this(mrtStations, new TransitGraph(mrtStations), closures, version, source);
+	}
+
+	/**
+	 * Builds lookup maps and availability calendar for stations of an already built graph
+	 * @param graph: mrt graph
+	 * @param closures: closures of the availability calendar file
+	 * @param version: snapshot version, increases with every reload
+	 * @param source: location stations were read from
+	 */
+	public NetworkSnapshot(TransitGraph graph, List<StationClosure> closures, long version, String source) {
+		this(nodesOf(graph), graph, closures, version, source);
+	}
+
+	private NetworkSnapshot(List<MrtStation> mrtStations, TransitGraph graph, List<StationClosure> closures, long version, String source) {
+		if (mrtStations.isEmpty()) {
+			throw new IllegalArgumentException("No mrt stations in " + source);
+		}
+		this.version = version;
+		this.source = source;
+		this.mrtStations = Collections.unmodifiableList(new ArrayList<>(mrtStations));
+
+		for (MrtStation mrt : mrtStations) {
+			buildMrtLine(mrt);
+			associateStationToLine(mrt);
+			associateNameToStation(mrt.getName(), mrt);
+			mrtIdNameMap.put(mrt.getId(), mrt.getName());
+		}
+
+		buildLinesInterchangeMap();
+		this.graph = graph;
+		this.nameIndex = new StationNameIndex(graph);
+		this.availability = new AvailabilityCalendar(graph, closures);
+		this.loadedAt = System.currentTimeMillis();
+	}
+
+	/**
+	 * Returns stations of every graph node in node order, which is csv order
+	 * @param graph: mrt graph
+	 * @return mrt stations
+	 */
+	private static List<MrtStation> nodesOf(TransitGraph graph) {
+		final List<MrtStation> nodes = new ArrayList<>(graph.getNodeCount());
+		for (int node = 0; node < graph.getNodeCount(); node++) {
+			nodes.add(graph.getNode(node));
+		}
+		return nodes;
+	}
+
+	/**
+	 * Station and interchange lines map
+	 */
+	private void buildLinesInterchangeMap() {
+		LOGGER.debug("Associating MRT station with MRT lines");
+
+		for (Entry<MrtStation, List<String>> entry : stationLines.entrySet()) {
+			if (linesInterchange.containsKey(entry.getKey().getLine())) {
+				linesInterchange.get(entry.getKey().getLine()).addAll(entry.getValue());
+			} else {
+				Set<String> tempSet = new HashSet<>(entry.getValue());
+				linesInterchange.put(entry.getKey().getLine(), tempSet);
+			}
+		}
+
+		for (Entry<String, Set<String>> entry : linesInterchange.entrySet()) {
+			for (String str : entry.getValue()) {
+				linesInterchange.get(str).add(entry.getKey());
+			}
+		}
+
+		for (Entry<String, Set<String>> entry : linesInterchange.entrySet()) {
+			entry.getValue().remove(entry.getKey());
+		}
+	}
+
+	/**
+	 * Associate given station name to appropriate MrtStation object
+	 * @param stationStr: station name in string format
+	 * @param station: MrtStation object
+	 */
+	private void associateNameToStation(String stationStr, MrtStation station) {
+		LOGGER.debug("Associating MRT stations names with MRT station object");
+
+		if (stations.containsKey(stationStr)) {
+			stations.get(stationStr).add(station);
+		} else {
+			List<MrtStation> list = new ArrayList<>();
+			list.add(station);
+			stations.put(stationStr, list);
+		}
+	}
+
+	/**
+	 * Associate MrtStation to appropriate line
+	 * @param station: mrt station
+	 */
+	private void buildMrtLine(MrtStation station) {
+		LOGGER.debug("Associating MRT stations with MRT lines");
+
+		if (mrtLines.containsKey(station.getLine())) {
+			mrtLines.get(station.getLine()).add(station);
+		} else {
+			List<MrtStation> tempStations = new ArrayList<>();
+			tempStations.add(station);
+			mrtLines.put(station.getLine(), tempStations);
+		}
+	}
+
+	/**
+	 * Associate MrtStation appropriate lines.
+	 * Some of the mrt stations belongs to multiple line, this data structure keeps track of that
+	 * @param station MrtStation
+	 */
+	private void associateStationToLine(MrtStation station) {
+		LOGGER.debug("Associating MRT stations with MRT lines");
+
+		if (stationLines.containsKey(station)) {
+			stationLines.get(station).add(station.getLine());
+		} else {
+			List<String> tempLines = new ArrayList<>();
+			tempLines.add(station.getLine());
+			stationLines.put(station, tempLines);
+		}
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public String getSource() {
+		return source;
+	}
+
+	public long getLoadedAt() {
+		return loadedAt;
+	}
+
+	public List<MrtStation> getMrtStations() {
+		return mrtStations;
+	}
+
+	public Map<String, List<MrtStation>> getMrtLines() {
+		return Collections.unmodifiableMap(mrtLines);
+	}
+
+	public Map<MrtStation, List<String>> getStationLines() {
+		return Collections.unmodifiableMap(stationLines);
+	}
+
+	public Map<String, Set<String>> getLinesInterchange() {
+		return Collections.unmodifiableMap(linesInterchange);
+	}
+
+	public Map<String, List<MrtStation>> getStations() {
+		return Collections.unmodifiableMap(stations);
+	}
+
+	public TransitGraph getGraph() {
+		return graph;
+	}
+
+	public StationNameIndex getNameIndex() {
+		return nameIndex;
+	}
+
+	public AvailabilityCalendar getAvailability() {
+		return availability;
+	}
+
+	public String getMrtName(String id) {
+		return mrtIdNameMap.get(id);
+	}
+}
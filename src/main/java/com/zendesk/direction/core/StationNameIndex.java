@@ -0,0 +1,370 @@
+package com.zendesk.direction.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Resolves typed station names to stations of one graph.
+ * Station names, every word of a name and station codes are kept as one sorted key array, a binary search
+ * gives the range of keys starting with a prefix. Misspelled names are found through a trigram index of
+ * station names, candidates sharing enough trigrams are scored by edit distance with transpositions
+ * @author swapnil.janorkar
+ *
+ */
+public final class StationNameIndex {
+
+	private static final byte NAME = 0;
+	private static final byte WORD = 1;
+	private static final byte ID = 2;
+
+	private final TransitGraph graph;
+	private final String[] names;
+
+	// sorted keys with the station and kind of each
+	private final String[] keys;
+	private final int[] keyStation;
+	private final byte[] keyKind;
+
+	// trigram postings of padded station names, grams sorted
+	private final long[] grams;
+	private final int[] gramOffsets;
+	private final int[] gramStations;
+
+	/**
+	 * Builds key and trigram index of every station of given graph
+	 * @param graph: mrt graph
+	 */
+	public StationNameIndex(TransitGraph graph) {
+		final int stationCount = graph.getStationCount();
+		this.graph = graph;
+		this.names = new String[stationCount];
+
+		final List<Key> entries = new ArrayList<>();
+		final List<long[]> postings = new ArrayList<>();
+		for (int station = 0; station < stationCount; station++) {
+			final String name = normalize(graph.getStationName(station));
+			names[station] = name;
+			entries.add(new Key(name, station, NAME));
+			for (int i = name.indexOf(' '); i >= 0; i = name.indexOf(' ', i + 1)) {
+				entries.add(new Key(name.substring(i + 1), station, WORD));
+			}
+			for (int k = graph.firstPlatform(station); k < graph.firstPlatform(station + 1); k++) {
+				entries.add(new Key(normalize(graph.getNode(graph.getPlatform(k)).getId()), station, ID));
+			}
+			for (long gram : trigrams(' ' + name + ' ')) {
+				postings.add(new long[] { gram, station });
+			}
+		}
+
+		entries.sort(Comparator.comparing((Key key) -> key.key).thenComparingInt(key -> key.kind));
+		this.keys = new String[entries.size()];
+		this.keyStation = new int[entries.size()];
+		this.keyKind = new byte[entries.size()];
+		for (int k = 0; k < keys.length; k++) {
+			keys[k] = entries.get(k).key;
+			keyStation[k] = entries.get(k).station;
+			keyKind[k] = entries.get(k).kind;
+		}
+
+		postings.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+		final long[] gramKeys = new long[postings.size()];
+		final int[] offsets = new int[postings.size() + 1];
+		final int[] stations = new int[postings.size()];
+		int gramCount = 0;
+		int postingCount = 0;
+		for (int i = 0; i < postings.size(); i++) {
+			final long gram = postings.get(i)[0];
+			final int station = (int) postings.get(i)[1];
+			if (gramCount == 0 || gramKeys[gramCount - 1] != gram) {
+				gramKeys[gramCount] = gram;
+				offsets[gramCount++] = postingCount;
+			} else if (stations[postingCount - 1] == station) {
+				continue;
+			}
+			stations[postingCount++] = station;
+		}
+		offsets[gramCount] = postingCount;
+		this.grams = Arrays.copyOf(gramKeys, gramCount);
+		this.gramOffsets = Arrays.copyOf(offsets, gramCount + 1);
+		this.gramStations = Arrays.copyOf(stations, postingCount);
+	}
+
+	/**
+	 * Resolves typed name to one station: an exact station name or code, a prefix of only one station's
+	 * name, words or codes, or else the only closest misspelling within the allowed edit distance
+	 * @param query: typed station name or code, any case
+	 * @return station index, -1 if no station or more than one station matches
+	 */
+	public int resolve(String query) {
+		final String key = normalize(query);
+		if (key.isEmpty()) {
+			return -1;
+		}
+
+		final int from = lowerBound(key);
+		int station = -1;
+		for (int k = from; k < keys.length && keys[k].startsWith(key); k++) {
+			if (keyKind[k] != WORD && keys[k].length() == key.length()) {
+				return keyStation[k];
+			}
+			if (station >= 0 && station != keyStation[k]) {
+				station = -2;
+			} else if (station == -1) {
+				station = keyStation[k];
+			}
+		}
+		if (station >= 0) {
+			return station;
+		}
+
+		final int[] scores = fuzzyScores(key);
+		int best = -1;
+		boolean tie = false;
+		for (int candidate = 0; candidate < scores.length; candidate++) {
+			if (scores[candidate] < 0) {
+				continue;
+			}
+			if (best < 0 || scores[candidate] < scores[best]) {
+				best = candidate;
+				tie = false;
+			} else if (scores[candidate] == scores[best]) {
+				tie = true;
+			}
+		}
+		return tie ? -1 : best;
+	}
+
+	/**
+	 * Suggests stations for partly typed name: exact name or code first, then stations whose name, a word of the name
+	 * or a code starts with it, shorter names first, followed by misspellings within the allowed edit distance, closest first
+	 * @param query: typed station name or code, any case
+	 * @param limit: maximum number of stations
+	 * @return station indices, best match first
+	 */
+	public int[] suggest(String query, int limit) {
+		final String key = normalize(query);
+		if (key.isEmpty() || limit <= 0) {
+			return new int[0];
+		}
+
+		final int stationCount = names.length;
+		final int[] rank = new int[stationCount];
+		Arrays.fill(rank, Integer.MAX_VALUE);
+		for (int k = lowerBound(key); k < keys.length && keys[k].startsWith(key); k++) {
+			// exact name or code before any prefix
+			final int kind = keyKind[k] != WORD && keys[k].length() == key.length() ? -1 : keyKind[k];
+			rank[keyStation[k]] = Math.min(rank[keyStation[k]], kind);
+		}
+		final int[] scores = fuzzyScores(key);
+		final List<Integer> matches = new ArrayList<>();
+		for (int station = 0; station < stationCount; station++) {
+			if (rank[station] == Integer.MAX_VALUE && scores[station] >= 0) {
+				// after every prefix match
+				rank[station] = ID + 1 + scores[station];
+			}
+			if (rank[station] != Integer.MAX_VALUE) {
+				matches.add(station);
+			}
+		}
+		matches.sort(Comparator.comparingInt((Integer station) -> rank[station])
+				.thenComparingInt(station -> names[station].length())
+				.thenComparing(station -> names[station]));
+
+		final int[] stations = new int[Math.min(limit, matches.size())];
+		for (int i = 0; i < stations.length; i++) {
+			stations[i] = matches.get(i);
+		}
+		return stations;
+	}
+
+	/**
+	 * Returns graph the index was built for
+	 * @return mrt graph
+	 */
+	public TransitGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Scores stations sharing enough trigrams with typed name by edit distance, twice the distance to the whole name
+	 * or, when name looks partly typed, twice the distance to the closest prefix of the name plus one
+	 * @param key: normalized typed name
+	 * @return score of every station, lower is closer, -1 for stations beyond the allowed edit distance
+	 */
+	private int[] fuzzyScores(String key) {
+		final int[] scores = new int[names.length];
+		Arrays.fill(scores, -1);
+		final int maxDistance = maxDistance(key);
+		if (maxDistance == 0) {
+			return scores;
+		}
+
+		// an edit changes at most four trigrams, short names are compared with every station
+		final long[] queryGrams = trigrams(' ' + key);
+		final int minShared = queryGrams.length - 4 * maxDistance;
+		final int[] shared = new int[names.length];
+		for (long gram : queryGrams) {
+			final int g = Arrays.binarySearch(grams, gram);
+			if (g >= 0) {
+				for (int p = gramOffsets[g]; p < gramOffsets[g + 1]; p++) {
+					shared[gramStations[p]]++;
+				}
+			}
+		}
+
+		final int[] previous = new int[key.length() + 1];
+		final int[] current = new int[key.length() + 1];
+		final int[] next = new int[key.length() + 1];
+		for (int station = 0; station < names.length; station++) {
+			if (shared[station] < minShared) {
+				continue;
+			}
+			final int score = distance(key, names[station], maxDistance, previous, current, next);
+			if (score >> 1 <= maxDistance) {
+				scores[station] = score;
+			}
+		}
+		return scores;
+	}
+
+	/**
+	 * Optimal string alignment distance of typed name against a station name and each of its prefixes,
+	 * computed column by column over the station name so every prefix distance is read off the last row
+	 * @param key: normalized typed name
+	 * @param name: normalized station name
+	 * @param maxDistance: allowed edit distance, computation stops once every cell of a column exceeds it
+	 * @param previous: column before the last, reused between calls
+	 * @param current: last column, reused between calls
+	 * @param next: column being computed, reused between calls
+	 * @return twice the distance to the whole name, or twice the distance to the closest prefix plus one if smaller
+	 */
+	private static int distance(String key, String name, int maxDistance, int[] previous, int[] current, int[] next) {
+		final int m = key.length();
+		for (int i = 0; i <= m; i++) {
+			current[i] = i;
+		}
+		int prefix = m;
+		int[] before = previous;
+		int[] last = current;
+		int[] column = next;
+		for (int j = 1; j <= name.length(); j++) {
+			final char c = name.charAt(j - 1);
+			column[0] = j;
+			int smallest = j;
+			for (int i = 1; i <= m; i++) {
+				final char k = key.charAt(i - 1);
+				int cell = Math.min(Math.min(last[i] + 1, column[i - 1] + 1), last[i - 1] + (k == c ? 0 : 1));
+				if (i > 1 && j > 1 && k == name.charAt(j - 2) && key.charAt(i - 2) == c) {
+					cell = Math.min(cell, before[i - 2] + 1);
+				}
+				column[i] = cell;
+				smallest = Math.min(smallest, cell);
+			}
+			prefix = Math.min(prefix, column[m]);
+			if (smallest > maxDistance) {
+				// whole name is out of reach, closest prefix is already seen
+				return 2 * prefix + 1;
+			}
+			final int[] recycled = before;
+			before = last;
+			last = column;
+			column = recycled;
+		}
+		return Math.min(2 * last[m], 2 * prefix + 1);
+	}
+
+	/**
+	 * Allowed edit distance for typed name, short names must be typed exactly
+	 * @param key: normalized typed name
+	 * @return allowed edit distance
+	 */
+	private static int maxDistance(String key) {
+		return key.length() < 4 ? 0 : key.length() < 7 ? 1 : 2;
+	}
+
+	/**
+	 * Returns position of first key not less than given key
+	 * @param key: normalized key
+	 * @return key position
+	 */
+	private int lowerBound(String key) {
+		int low = 0;
+		int high = keys.length;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (keys[middle].compareTo(key) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Distinct trigrams of given text, three chars packed in one long
+	 * @param text: text
+	 * @return sorted trigrams
+	 */
+	private static long[] trigrams(String text) {
+		if (text.length() < 3) {
+			return new long[0];
+		}
+		final long[] packed = new long[text.length() - 2];
+		for (int i = 0; i < packed.length; i++) {
+			packed[i] = (long) text.charAt(i) << 32 | (long) text.charAt(i + 1) << 16 | text.charAt(i + 2);
+		}
+		Arrays.sort(packed);
+		int count = 0;
+		for (int i = 0; i < packed.length; i++) {
+			if (count == 0 || packed[count - 1] != packed[i]) {
+				packed[count++] = packed[i];
+			}
+		}
+		return Arrays.copyOf(packed, count);
+	}
+
+	/**
+	 * Lower cases name and replaces every run of other chars than letters and digits by one space
+	 * @param name: typed or stored name
+	 * @return normalized name
+	 */
+	static String normalize(String name) {
+		if (name == null) {
+			return "";
+		}
+		final StringBuilder normalized = new StringBuilder(name.length());
+		boolean space = false;
+		for (int i = 0; i < name.length(); i++) {
+			final char c = Character.toLowerCase(name.charAt(i));
+			if (Character.isLetterOrDigit(c)) {
+				if (space && normalized.length() > 0) {
+					normalized.append(' ');
+				}
+				normalized.append(c);
+				space = false;
+			} else {
+				space = true;
+			}
+		}
+		return normalized.toString();
+	}
+
+	/**
+	 * Key of the sorted key array
+	 */
+	private static final class Key {
+
+		private final String key;
+		private final int station;
+		private final byte kind;
+
+		private Key(String key, int station, byte kind) {
+			this.key = key;
+			this.station = station;
+			this.kind = kind;
+		}
+	}
+}
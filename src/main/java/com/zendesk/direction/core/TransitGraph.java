@@ -0,0 +1,398 @@
+package com.zendesk.direction.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.zendesk.direction.entity.MrtStation;
+import com.zendesk.direction.utils.DirectionUtils;
+import com.zendesk.direction.utils.TimeBand;
+
+/**
+ * Immutable, integer indexed view of the mrt network.
+ * Every row of station_map.csv (station code) becomes a node, station names and line codes
+ * are interned to dense ints and adjacency is stored in CSR arrays.
+ * Edges between two codes sharing the same station name are interchange edges and are
+ * marked with {@link #INTERCHANGE} in {@link #getEdgeLine(int)}
+ * @author swapnil.janorkar
+ *
+ */
+public final class TransitGraph {
+
+	/**
+	 * Line index used for interchange edges
+	 */
+	public static final short INTERCHANGE = -1;
+
+	/**
+	 * Largest node x station table kept for the A* lower bound, bigger networks search without heuristic
+	 */
+	private static final int HOP_TABLE_LIMIT = 1 << 22;
+
+	private final MrtStation[] nodes;
+	private final int[] nodeStation;
+	private final short[] nodeLine;
+
+	private final String[] stationNames;
+	private final int[] stationOffsets;
+	private final int[] stationNodes;
+	private final long[] stationOpeningDay;
+
+	private final String[] lines;
+	private final int[] lineOffsets;
+	private final int[] lineStops;
+
+	private final int[] offsets;
+	private final int[] targets;
+	private final short[] edgeLine;
+	private final int[][] edgeTime;
+	private final int[] minEdgeTime;
+	private final short[] stationHops;
+
+	private final Map<String, Integer> stationIndex;
+	private final Map<String, Integer> nodeIndex;
+	private final Map<String, Integer> lineIndex;
+
+	/**
+	 * Builds the graph from parsed csv rows
+	 * @param mrtStations: mrt stations in csv order
+	 */
+	public TransitGraph(List<MrtStation> mrtStations) {
+		this(GraphLayout.of(mrtStations));
+	}
+
+	/**
+	 * Builds the graph from its structure, derives platforms, opening days, travel times and lookup maps
+	 * @param layout: graph structure
+	 */
+	TransitGraph(GraphLayout layout) {
+		this.nodes = layout.nodes;
+		this.nodeStation = layout.nodeStation;
+		this.nodeLine = layout.nodeLine;
+		this.stationNames = layout.stationNames;
+		this.lines = layout.lines;
+		this.lineOffsets = layout.lineOffsets;
+		this.lineStops = layout.lineStops;
+		this.offsets = layout.offsets;
+		this.targets = layout.targets;
+		this.edgeLine = layout.edgeLine;
+		final int nodeCount = nodes.length;
+
+		// platforms of a station in node order
+		this.stationOffsets = new int[stationNames.length + 1];
+		this.stationNodes = new int[nodeCount];
+		for (int node = 0; node < nodeCount; node++) {
+			stationOffsets[nodeStation[node] + 1]++;
+		}
+		for (int station = 0; station < stationNames.length; station++) {
+			stationOffsets[station + 1] += stationOffsets[station];
+		}
+		final int[] fill = Arrays.copyOf(stationOffsets, stationNames.length);
+		for (int node = 0; node < nodeCount; node++) {
+			stationNodes[fill[nodeStation[node]]++] = node;
+		}
+
+		// a station is open once any of its platforms is open
+		this.stationOpeningDay = new long[stationNames.length];
+		for (int station = 0; station < stationNames.length; station++) {
+			long openingDay = Long.MAX_VALUE;
+			for (int k = stationOffsets[station]; k < stationOffsets[station + 1]; k++) {
+				openingDay = Math.min(openingDay, nodes[stationNodes[k]].getOpeningEpochDay());
+			}
+			stationOpeningDay[station] = openingDay;
+		}
+
+		final TimeBand[] bands = TimeBand.values();
+		this.edgeTime = new int[bands.length][targets.length];
+		this.minEdgeTime = new int[bands.length];
+		for (TimeBand band : bands) {
+			final int[] time = edgeTime[band.ordinal()];
+			int min = Integer.MAX_VALUE;
+			for (int node = 0; node < nodeCount; node++) {
+				for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+					time[edge] = DirectionUtils.getTravelTime(nodes[node].getLine(), nodes[targets[edge]].getLine(), band);
+					min = Math.min(min, time[edge]);
+				}
+			}
+			minEdgeTime[band.ordinal()] = min == Integer.MAX_VALUE ? 0 : min;
+		}
+		this.stationHops = (long) nodeCount * stationNames.length <= HOP_TABLE_LIMIT ? buildStationHops() : null;
+
+		final Map<String, Integer> stationIds = new HashMap<>();
+		for (int station = 0; station < stationNames.length; station++) {
+			stationIds.put(stationNames[station], station);
+		}
+		final Map<String, Integer> lineIds = new HashMap<>();
+		for (int line = 0; line < lines.length; line++) {
+			lineIds.put(lines[line], line);
+		}
+		final Map<String, Integer> nodeIds = new HashMap<>();
+		for (int node = 0; node < nodeCount; node++) {
+			nodeIds.put(nodes[node].getId(), node);
+		}
+		this.stationIndex = Collections.unmodifiableMap(stationIds);
+		this.lineIndex = Collections.unmodifiableMap(lineIds);
+		this.nodeIndex = Collections.unmodifiableMap(nodeIds);
+	}
+
+	/**
+	 * Returns structure the graph was built from
+	 * @return graph layout
+	 */
+	GraphLayout getLayout() {
+		return new GraphLayout(nodes, nodeStation, nodeLine, stationNames, lines, lineOffsets, lineStops, offsets, targets, edgeLine);
+	}
+
+	/**
+	 * Breadth first search from every station, hop count from each node to each station.
+	 * Every edge costs at least minEdgeTime, so hops * minEdgeTime never overestimates travel time
+	 * @return hop table indexed by node * stationCount + station
+	 */
+	private short[] buildStationHops() {
+		final int nodeCount = nodes.length;
+		final int stationCount = stationNames.length;
+		final short[] hops = new short[nodeCount * stationCount];
+		final int[] queue = new int[nodeCount];
+		final int[] depth = new int[nodeCount];
+
+		for (int station = 0; station < stationCount; station++) {
+			Arrays.fill(depth, -1);
+			int head = 0;
+			int tail = 0;
+			for (int k = stationOffsets[station]; k < stationOffsets[station + 1]; k++) {
+				depth[stationNodes[k]] = 0;
+				queue[tail++] = stationNodes[k];
+			}
+			while (head < tail) {
+				final int node = queue[head++];
+				for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+					if (depth[targets[edge]] < 0) {
+						depth[targets[edge]] = depth[node] + 1;
+						queue[tail++] = targets[edge];
+					}
+				}
+			}
+			for (int node = 0; node < nodeCount; node++) {
+				// unreachable nodes get a zero bound, search will simply never reach the station from them
+				hops[node * stationCount + station] = (short) Math.max(0, Math.min(depth[node], Short.MAX_VALUE));
+			}
+		}
+		return hops;
+	}
+
+	/**
+	 * Returns total number of nodes (station codes)
+	 * @return number of nodes
+	 */
+	public int getNodeCount() {
+		return nodes.length;
+	}
+
+	/**
+	 * Returns total number of directed edges
+	 * @return number of edges
+	 */
+	public int getEdgeCount() {
+		return targets.length;
+	}
+
+	/**
+	 * Returns total number of distinct station names
+	 * @return number of stations
+	 */
+	public int getStationCount() {
+		return stationNames.length;
+	}
+
+	/**
+	 * Returns total number of lines
+	 * @return number of lines
+	 */
+	public int getLineCount() {
+		return lines.length;
+	}
+
+	/**
+	 * Returns MrtStation for given node
+	 * @param node: node index
+	 * @return MrtStation
+	 */
+	public MrtStation getNode(int node) {
+		return nodes[node];
+	}
+
+	/**
+	 * Returns station index of given node
+	 * @param node: node index
+	 * @return station index
+	 */
+	public int getNodeStation(int node) {
+		return nodeStation[node];
+	}
+
+	/**
+	 * Returns line index of given node
+	 * @param node: node index
+	 * @return line index
+	 */
+	public int getNodeLine(int node) {
+		return nodeLine[node];
+	}
+
+	/**
+	 * Returns first edge index of given node, edges of node are [firstEdge(node), firstEdge(node + 1))
+	 * @param node: node index
+	 * @return first edge index
+	 */
+	public int firstEdge(int node) {
+		return offsets[node];
+	}
+
+	/**
+	 * Returns target node of given edge
+	 * @param edge: edge index
+	 * @return target node index
+	 */
+	public int getTarget(int edge) {
+		return targets[edge];
+	}
+
+	/**
+	 * Returns line index of given edge or {@link #INTERCHANGE}
+	 * @param edge: edge index
+	 * @return line index
+	 */
+	public int getEdgeLine(int edge) {
+		return edgeLine[edge];
+	}
+
+	/**
+	 * Returns travel time of given edge for given time band
+	 * @param edge: edge index
+	 * @param band: time band ordinal
+	 * @return travel time in minutes
+	 */
+	public int getTravelTime(int edge, int band) {
+		return edgeTime[band][edge];
+	}
+
+	/**
+	 * Returns travel times of all edges for given time band, indexed by edge. Must not be modified
+	 * @param band: time band ordinal
+	 * @return travel time of each edge in minutes
+	 */
+	public int[] getTravelTimes(int band) {
+		return edgeTime[band];
+	}
+
+	/**
+	 * Returns admissible lower bound of travel time from given node to given station
+	 * @param node: node index
+	 * @param station: station index
+	 * @param band: time band ordinal
+	 * @return lower bound in minutes, 0 when hop table is not built
+	 */
+	public int getLowerBound(int node, int station, int band) {
+		if (stationHops == null) {
+			return 0;
+		}
+		return stationHops[node * stationNames.length + station] * minEdgeTime[band];
+	}
+
+	/**
+	 * Returns first platform position of given station, platforms of station are
+	 * [firstPlatform(station), firstPlatform(station + 1))
+	 * @param station: station index
+	 * @return position in platform array
+	 */
+	public int firstPlatform(int station) {
+		return stationOffsets[station];
+	}
+
+	/**
+	 * Returns node index at given platform position
+	 * @param position: platform position
+	 * @return node index
+	 */
+	public int getPlatform(int position) {
+		return stationNodes[position];
+	}
+
+	/**
+	 * Returns first stop position of given line, stops of line in travel order are
+	 * [firstLineStop(line), firstLineStop(line + 1)) and consecutive stops are adjacent
+	 * @param line: line index
+	 * @return position in line stop array
+	 */
+	public int firstLineStop(int line) {
+		return lineOffsets[line];
+	}
+
+	/**
+	 * Returns node index at given line stop position
+	 * @param position: line stop position
+	 * @return node index
+	 */
+	public int getLineStop(int position) {
+		return lineStops[position];
+	}
+
+	/**
+	 * Returns name of given station
+	 * @param station: station index
+	 * @return station name
+	 */
+	public String getStationName(int station) {
+		return stationNames[station];
+	}
+
+	/**
+	 * Returns epoch day from which given station is open
+	 * @param station: station index
+	 * @return opening epoch day
+	 */
+	public long getOpeningEpochDay(int station) {
+		return stationOpeningDay[station];
+	}
+
+	/**
+	 * Returns code of given line
+	 * @param line: line index
+	 * @return line code
+	 */
+	public String getLine(int line) {
+		return lines[line];
+	}
+
+	/**
+	 * Returns station index for given station name
+	 * @param name: lower case station name
+	 * @return station index or -1 if station is not present
+	 */
+	public int getStationIndex(String name) {
+		final Integer index = stationIndex.get(name);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Returns node index for given station code
+	 * @param id: station code
+	 * @return node index or -1 if station code is not present
+	 */
+	public int getNodeIndex(String id) {
+		final Integer index = nodeIndex.get(id);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Returns line index for given line code
+	 * @param line: line code
+	 * @return line index or -1 if line is not present
+	 */
+	public int getLineIndex(String line) {
+		final Integer index = lineIndex.get(line);
+		return index == null ? -1 : index;
+	}
+}
@@ -0,0 +1,59 @@
+package com.zendesk.direction.entity;
+
+/**
+ * Entity class for travel plan cache counters
+ * @author swapnil.janorkar
+ *
+ */
+public class CacheStatistics {
+
+	private long hits;
+
+	private long misses;
+
+	private long evictions;
+
+	private double hitRate;
+
+	private long size;
+
+	public long getHits() {
+		return hits;
+	}
+
+	public void setHits(long hits) {
+		this.hits = hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public void setMisses(long misses) {
+		this.misses = misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public void setEvictions(long evictions) {
+		this.evictions = evictions;
+	}
+
+	public double getHitRate() {
+		return hitRate;
+	}
+
+	public void setHitRate(double hitRate) {
+		this.hitRate = hitRate;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+}
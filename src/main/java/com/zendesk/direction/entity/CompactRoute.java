@@ -0,0 +1,47 @@
+package com.zendesk.direction.entity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.zendesk.direction.utils.TimeBand;
+
+/**
+ * Entity class for structured route of a travel plan, written by {@link CompactRouteSerializer}
+ * @author swapnil.janorkar
+ *
+ */
+@JsonSerialize(using = CompactRouteSerializer.class)
+public class CompactRoute {
+
+	private final List<MrtStation> stations;
+
+	private final TimeBand band;
+
+	private final int travelTime;
+
+	private final LocalDateTime arrival;
+
+	public CompactRoute(List<MrtStation> stations, TimeBand band, int travelTime, LocalDateTime arrival) {
+		this.stations = stations;
+		this.band = band;
+		this.travelTime = travelTime;
+		this.arrival = arrival;
+	}
+
+	public List<MrtStation> getStations() {
+		return stations;
+	}
+
+	public TimeBand getBand() {
+		return band;
+	}
+
+	public int getTravelTime() {
+		return travelTime;
+	}
+
+	public LocalDateTime getArrival() {
+		return arrival;
+	}
+}
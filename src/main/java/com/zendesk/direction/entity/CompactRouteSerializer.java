@@ -0,0 +1,74 @@
+package com.zendesk.direction.entity;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.zendesk.direction.utils.Constants;
+import com.zendesk.direction.utils.DirectionUtils;
+
+/**
+ * Writes route as station ids grouped in legs per line, with leg and transfer minutes.
+ * Legs are derived while writing, no instruction text is generated
+ * @author swapnil.janorkar
+ *
+ */
+public class CompactRouteSerializer extends StdSerializer<CompactRoute> {
+
+	private static final long serialVersionUID = -3154786310526794130L;
+
+	public CompactRouteSerializer() {
+		super(CompactRoute.class);
+	}
+
+	@Override
+	public void serialize(CompactRoute route, JsonGenerator generator, SerializerProvider provider) throws IOException {
+		final List<MrtStation> stations = route.getStations();
+		final MrtStation first = stations.get(0);
+		final MrtStation last = stations.get(stations.size() - 1);
+
+		generator.writeStartObject();
+		generator.writeStringField("from", first.getId());
+		generator.writeStringField("to", last.getId());
+		generator.writeNumberField("minutes", route.getTravelTime());
+		generator.writeStringField("arrival", Constants.REQUEST_DATE_TIME_FORMATTER.format(route.getArrival()));
+
+		int stops = 0;
+		int minutes = 0;
+		generator.writeArrayFieldStart("legs");
+		generator.writeStartObject();
+		generator.writeStringField("line", first.getLine());
+		generator.writeNumberField("transfer", 0);
+		generator.writeArrayFieldStart("stations");
+		generator.writeString(first.getId());
+		for (int i = 1; i < stations.size(); i++) {
+			final MrtStation prev = stations.get(i - 1);
+			final MrtStation curr = stations.get(i);
+			final int time = DirectionUtils.getTravelTime(prev.getLine(), curr.getLine(), route.getBand());
+			if (prev.getLine().equals(curr.getLine())) {
+				generator.writeString(curr.getId());
+				minutes += time;
+				stops++;
+			} else {
+				generator.writeEndArray();
+				generator.writeNumberField("minutes", minutes);
+				generator.writeEndObject();
+				generator.writeStartObject();
+				generator.writeStringField("line", curr.getLine());
+				generator.writeNumberField("transfer", time);
+				generator.writeArrayFieldStart("stations");
+				generator.writeString(curr.getId());
+				minutes = 0;
+			}
+		}
+		generator.writeEndArray();
+		generator.writeNumberField("minutes", minutes);
+		generator.writeEndObject();
+		generator.writeEndArray();
+
+		generator.writeNumberField("stops", stops);
+		generator.writeEndObject();
+	}
+}
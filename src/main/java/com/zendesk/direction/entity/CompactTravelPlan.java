@@ -0,0 +1,12 @@
+package com.zendesk.direction.entity;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Entity class for transport directions in compact format, fields not set are left out instead of written as null
+ * @author swapnil.janorkar
+ *
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CompactTravelPlan extends TravelPlan {
+}
@@ -0,0 +1,93 @@
+package com.zendesk.direction.entity;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Entity class for departures within a window sharing one route and travel time.
+ * Arrival grows minute by minute with departure, from arriveFrom to arriveTo
+ * @author swapnil.janorkar
+ *
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DepartureInterval {
+
+	private String departFrom;
+
+	private String departTo;
+
+	private String error;
+
+	private String band;
+
+	private Integer minutes;
+
+	private Integer stops;
+
+	private String arriveFrom;
+
+	private String arriveTo;
+
+	public String getDepartFrom() {
+		return departFrom;
+	}
+
+	public void setDepartFrom(String departFrom) {
+		this.departFrom = departFrom;
+	}
+
+	public String getDepartTo() {
+		return departTo;
+	}
+
+	public void setDepartTo(String departTo) {
+		this.departTo = departTo;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+	public String getBand() {
+		return band;
+	}
+
+	public void setBand(String band) {
+		this.band = band;
+	}
+
+	public Integer getMinutes() {
+		return minutes;
+	}
+
+	public void setMinutes(Integer minutes) {
+		this.minutes = minutes;
+	}
+
+	public Integer getStops() {
+		return stops;
+	}
+
+	public void setStops(Integer stops) {
+		this.stops = stops;
+	}
+
+	public String getArriveFrom() {
+		return arriveFrom;
+	}
+
+	public void setArriveFrom(String arriveFrom) {
+		this.arriveFrom = arriveFrom;
+	}
+
+	public String getArriveTo() {
+		return arriveTo;
+	}
+
+	public void setArriveTo(String arriveTo) {
+		this.arriveTo = arriveTo;
+	}
+}
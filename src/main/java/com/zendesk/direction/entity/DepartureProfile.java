@@ -0,0 +1,74 @@
+package com.zendesk.direction.entity;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Entity class for arrival time as a function of departure time within a window
+ * @author swapnil.janorkar
+ *
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DepartureProfile {
+
+	private String error;
+
+	private String from;
+
+	private String to;
+
+	private String fastestDeparture;
+
+	private Integer fastestMinutes;
+
+	private List<DepartureInterval> intervals;
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+	public String getFrom() {
+		return from;
+	}
+
+	public void setFrom(String from) {
+		this.from = from;
+	}
+
+	public String getTo() {
+		return to;
+	}
+
+	public void setTo(String to) {
+		this.to = to;
+	}
+
+	public String getFastestDeparture() {
+		return fastestDeparture;
+	}
+
+	public void setFastestDeparture(String fastestDeparture) {
+		this.fastestDeparture = fastestDeparture;
+	}
+
+	public Integer getFastestMinutes() {
+		return fastestMinutes;
+	}
+
+	public void setFastestMinutes(Integer fastestMinutes) {
+		this.fastestMinutes = fastestMinutes;
+	}
+
+	public List<DepartureInterval> getIntervals() {
+		return intervals;
+	}
+
+	public void setIntervals(List<DepartureInterval> intervals) {
+		this.intervals = intervals;
+	}
+}
@@ -0,0 +1,54 @@
+package com.zendesk.direction.entity;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Entity class for one source and destination query of a batch request
+ * @author swapnil.janorkar
+ *
+ */
+public class DirectionQuery {
+
+	private String from;
+
+	private String to;
+
+	private String datetime;
+
+	@JsonIgnore
+	private LocalDateTime departure;
+
+	public String getFrom() {
+		return from;
+	}
+
+	public void setFrom(String from) {
+		this.from = from;
+	}
+
+	public String getTo() {
+		return to;
+	}
+
+	public void setTo(String to) {
+		this.to = to;
+	}
+
+	public String getDatetime() {
+		return datetime;
+	}
+
+	public void setDatetime(String datetime) {
+		this.datetime = datetime;
+	}
+
+	public LocalDateTime getDeparture() {
+		return departure;
+	}
+
+	public void setDeparture(LocalDateTime departure) {
+		this.departure = departure;
+	}
+}
@@ -0,0 +1,41 @@
+package com.zendesk.direction.entity;
+
+import java.util.List;
+
+/**
+ * Entity class for travel time matrix request
+ * @author swapnil.janorkar
+ *
+ */
+public class MatrixQuery {
+
+	private List<String> origins;
+
+	private List<String> destinations;
+
+	private String datetime;
+
+	public List<String> getOrigins() {
+		return origins;
+	}
+
+	public void setOrigins(List<String> origins) {
+		this.origins = origins;
+	}
+
+	public List<String> getDestinations() {
+		return destinations;
+	}
+
+	public void setDestinations(List<String> destinations) {
+		this.destinations = destinations;
+	}
+
+	public String getDatetime() {
+		return datetime;
+	}
+
+	public void setDatetime(String datetime) {
+		this.datetime = datetime;
+	}
+}
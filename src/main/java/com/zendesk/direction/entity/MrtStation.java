@@ -1,6 +1,8 @@
 package com.zendesk.direction.entity;
 
 import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Date;
 
 import org.apache.commons.lang3.StringUtils;
@@ -26,6 +28,8 @@ public class MrtStation {
 	@CsvBindByPosition(position = 2)
 	private String date;
 	
+	private long openingEpochDay;
+	
 	public String getId() {
 		return id;
 	}
@@ -42,12 +46,34 @@ public class MrtStation {
 		this.name = name.toLowerCase();
 	}
 
+	/**
+	 * Returns opening date at start of day in the default time zone, derived from the date parsed in setDate
+	 * @return opening date
+	 * @throws ParseException kept for existing callers, the date is already parsed when it is set
+	 */
 	public Date getDate() throws ParseException {
-		return Constants.DATE_FORMAT.parse(date);
+		return Date.from(LocalDate.ofEpochDay(openingEpochDay).atStartOfDay(ZoneId.systemDefault()).toInstant());
+	}
+
+	/**
+	 * Returns opening date as read from station_map.csv
+	 * @return opening date in format d MMMM yyyy
+	 */
+	public String getDateText() {
+		return date;
 	}
 
+	/**
+	 * Opening date is parsed once when it is set, readiness checks compare epoch days
+	 * @param date: opening date in format d MMMM yyyy
+	 */
 	public void setDate(String date) {
 		this.date = date;
+		this.openingEpochDay = LocalDate.parse(date.trim(), Constants.DATE_FORMATTER).toEpochDay();
+	}
+
+	public long getOpeningEpochDay() {
+		return openingEpochDay;
 	}
 
 	public String getLine() {
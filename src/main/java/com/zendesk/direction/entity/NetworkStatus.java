@@ -0,0 +1,89 @@
+package com.zendesk.direction.entity;
+
+/**
+ * Entity class for loaded mrt network details
+ * @author swapnil.janorkar
+ *
+ */
+public class NetworkStatus {
+
+	private long version;
+
+	private String source;
+
+	private String loadedAt;
+
+	private int stations;
+
+	private int lines;
+
+	private int closures;
+
+	private boolean reloading;
+
+	private String error;
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
+	public String getSource() {
+		return source;
+	}
+
+	public void setSource(String source) {
+		this.source = source;
+	}
+
+	public String getLoadedAt() {
+		return loadedAt;
+	}
+
+	public void setLoadedAt(String loadedAt) {
+		this.loadedAt = loadedAt;
+	}
+
+	public int getStations() {
+		return stations;
+	}
+
+	public void setStations(int stations) {
+		this.stations = stations;
+	}
+
+	public int getLines() {
+		return lines;
+	}
+
+	public void setLines(int lines) {
+		this.lines = lines;
+	}
+
+	public int getClosures() {
+		return closures;
+	}
+
+	public void setClosures(int closures) {
+		this.closures = closures;
+	}
+
+	public boolean isReloading() {
+		return reloading;
+	}
+
+	public void setReloading(boolean reloading) {
+		this.reloading = reloading;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+}
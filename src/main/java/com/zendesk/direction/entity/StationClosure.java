@@ -0,0 +1,67 @@
+package com.zendesk.direction.entity;
+
+import com.opencsv.bean.CsvBindByPosition;
+
+/**
+ * Entity class for one closure of the availability calendar.
+ * availability.csv fields are mapped to this class
+ * @author swapnil.janorkar
+ *
+ */
+public class StationClosure {
+
+	@CsvBindByPosition(position = 0)
+	private String target;
+
+	@CsvBindByPosition(position = 1)
+	private String from;
+
+	@CsvBindByPosition(position = 2)
+	private String until;
+
+	public StationClosure() {
+
+	}
+
+	public StationClosure(String target, String from, String until) {
+		this.target = target;
+		this.from = from;
+		this.until = until;
+	}
+
+	/**
+	 * Line code or station name closed
+	 * @return line code or station name
+	 */
+	public String getTarget() {
+		return target;
+	}
+
+	public void setTarget(String target) {
+		this.target = target;
+	}
+
+	/**
+	 * Start of closure, HH:mm for a closure repeated every day or dd-MM-yyyy HH:mm for a single closure
+	 * @return start of closure
+	 */
+	public String getFrom() {
+		return from;
+	}
+
+	public void setFrom(String from) {
+		this.from = from;
+	}
+
+	/**
+	 * End of closure, exclusive, in the same format as start
+	 * @return end of closure
+	 */
+	public String getUntil() {
+		return until;
+	}
+
+	public void setUntil(String until) {
+		this.until = until;
+	}
+}
@@ -0,0 +1,31 @@
+package com.zendesk.direction.entity;
+
+import java.util.List;
+
+/**
+ * Entity class for station suggested for a partly typed name
+ * @author swapnil.janorkar
+ *
+ */
+public class StationSuggestion {
+
+	private String name;
+
+	private List<String> ids;
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public List<String> getIds() {
+		return ids;
+	}
+
+	public void setIds(List<String> ids) {
+		this.ids = ids;
+	}
+}
@@ -2,6 +2,8 @@ package com.zendesk.direction.entity;
 
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 /**
  * Entity class for transport directions
  * @author swapnil.janorkar
@@ -14,6 +16,12 @@ public class TravelPlan {
 	private List<String> summary;
 	
 	private List<String> step;
+	
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private CompactRoute route;
+	
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private List<TravelPlan> alternatives;
 
 	public String getError() {
 		return error;
@@ -38,4 +46,20 @@ public class TravelPlan {
 	public void setStep(List<String> step) {
 		this.step = step;
 	}
+
+	public CompactRoute getRoute() {
+		return route;
+	}
+
+	public void setRoute(CompactRoute route) {
+		this.route = route;
+	}
+
+	public List<TravelPlan> getAlternatives() {
+		return alternatives;
+	}
+
+	public void setAlternatives(List<TravelPlan> alternatives) {
+		this.alternatives = alternatives;
+	}
 }
@@ -0,0 +1,32 @@
+package com.zendesk.direction.exception;
+
+import com.zendesk.direction.utils.Constants;
+
+/**
+ * This exception is thrown when number of alternative routes is out of range
+ * @author swapnil.janorkar
+ *
+ */
+public class InvalidAlternativesException extends Exception {
+
+	private static final long serialVersionUID = -5312218867424105527L;
+
+	private String message = "Alternatives must be between 0 and " + Constants.MAX_ALTERNATIVES;
+	
+	public InvalidAlternativesException() {
+		super();
+	}
+	
+	public InvalidAlternativesException(String message) {
+		super(message);
+		this.message = message;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+}
@@ -0,0 +1,32 @@
+package com.zendesk.direction.exception;
+
+import com.zendesk.direction.utils.Constants;
+
+/**
+ * This exception is thrown when departure window is empty or too long
+ * @author swapnil.janorkar
+ *
+ */
+public class InvalidDepartureWindowException extends Exception {
+
+	private static final long serialVersionUID = 4417920386528814603L;
+
+	private String message = "Departure window must end after it starts and last at most " + Constants.MAX_DEPARTURE_WINDOW_HOURS + " hours";
+	
+	public InvalidDepartureWindowException() {
+		super();
+	}
+	
+	public InvalidDepartureWindowException(String message) {
+		super(message);
+		this.message = message;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+}
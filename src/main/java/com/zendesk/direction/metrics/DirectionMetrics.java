@@ -0,0 +1,298 @@
+package com.zendesk.direction.metrics;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.zendesk.direction.entity.CacheStatistics;
+import com.zendesk.direction.exception.PastDateTimeException;
+import com.zendesk.direction.exception.StationClosedException;
+import com.zendesk.direction.exception.StationNotFoundException;
+import com.zendesk.direction.exception.StationNotReadyException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Stage timers and outcome counters of the directions pipeline.
+ * Meters are registered once, recording is a lock free update of already registered meters. Recording can be
+ * suspended while the service warms up
+ * @author swapnil.janorkar
+ *
+ */
+@Component
+public class DirectionMetrics {
+
+	private static final String STAGE_TIMER = "directions.stage";
+	private static final String OUTCOME_COUNTER = "directions.outcome";
+	private static final String LINE_COUNTER = "directions.line.journeys";
+	private static final String COALESCED_COUNTER = "directions.coalesced";
+	private static final String PLAN_CACHE = "travelPlans";
+
+	@Autowired
+	private MeterRegistry registry;
+
+	private Timer validateTimer;
+	private Timer searchTimer;
+	private Timer routeTreeTimer;
+	private Timer instructionsTimer;
+	private Timer alternativesTimer;
+	private Timer paretoTimer;
+
+	private Counter routed;
+	private Counter noRoute;
+	private Counter stationNotFound;
+	private Counter stationClosed;
+	private Counter stationNotReady;
+	private Counter pastDateTime;
+	private Counter overloaded;
+	private Counter coalesced;
+
+	private final ConcurrentMap<String, Counter> lineCounters = new ConcurrentHashMap<>();
+
+	// set while synthetic warm-up queries run, nothing is recorded meanwhile
+	private volatile boolean suspended;
+
+	// function meters only keep weak references to the object they read
+	private Supplier<CacheStatistics> cacheStatistics;
+
+	/**
+	 * Registers stage timers and outcome counters
+	 */
+	@PostConstruct
+	public void init() {
+		validateTimer = stageTimer("validate");
+		searchTimer = stageTimer("search");
+		routeTreeTimer = stageTimer("route_tree");
+		instructionsTimer = stageTimer("instructions");
+		alternativesTimer = stageTimer("alternatives");
+		paretoTimer = stageTimer("pareto");
+
+		routed = outcomeCounter("routed");
+		noRoute = outcomeCounter("no_route");
+		stationNotFound = outcomeCounter("station_not_found");
+		stationClosed = outcomeCounter("station_closed");
+		stationNotReady = outcomeCounter("station_not_ready");
+		pastDateTime = outcomeCounter("past_datetime");
+		overloaded = outcomeCounter("overloaded");
+		coalesced = Counter.builder(COALESCED_COUNTER)
+				.description("Direction requests served by the search of an identical request in flight")
+				.register(registry);
+	}
+
+	/**
+	 * Percentile histogram timer of one pipeline stage, buckets span microsecond searches to second long outliers
+	 * @param stage: stage name
+	 * @return timer
+	 */
+	private Timer stageTimer(String stage) {
+		return Timer.builder(STAGE_TIMER)
+				.description("Time spent in one stage of the directions pipeline")
+				.tags("stage", stage)
+				.publishPercentileHistogram()
+				.minimumExpectedValue(Duration.ofNanos(1_000))
+				.maximumExpectedValue(Duration.ofSeconds(1))
+				.register(registry);
+	}
+
+	/**
+	 * Counter of one request outcome
+	 * @param outcome: outcome name
+	 * @return counter
+	 */
+	private Counter outcomeCounter(String outcome) {
+		return Counter.builder(OUTCOME_COUNTER)
+				.description("Direction requests by outcome")
+				.tags("outcome", outcome)
+				.register(registry);
+	}
+
+	/**
+	 * Stops recording until {@link #resume()}, for synthetic queries that must not show up on dashboards
+	 */
+	public void suspend() {
+		suspended = true;
+	}
+
+	/**
+	 * Records again after {@link #suspend()}
+	 */
+	public void resume() {
+		suspended = false;
+	}
+
+	/**
+	 * Records time spent validating request input
+	 * @param nanos: elapsed nano seconds
+	 */
+	public void recordValidation(long nanos) {
+		if (suspended) {
+			return;
+		}
+		validateTimer.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Records time spent searching fastest route between two stations
+	 * @param nanos: elapsed nano seconds
+	 */
+	public void recordSearch(long nanos) {
+		if (suspended) {
+			return;
+		}
+		searchTimer.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Records time spent searching fastest routes from one station to every station
+	 * @param nanos: elapsed nano seconds
+	 */
+	public void recordRouteTree(long nanos) {
+		if (suspended) {
+			return;
+		}
+		routeTreeTimer.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Records time spent searching alternative routes between two stations
+	 * @param nanos: elapsed nano seconds
+	 */
+	public void recordAlternatives(long nanos) {
+		if (suspended) {
+			return;
+		}
+		alternativesTimer.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Records time spent searching routes trading travel time against interchanges
+	 * @param nanos: elapsed nano seconds
+	 */
+	public void recordPareto(long nanos) {
+		if (suspended) {
+			return;
+		}
+		paretoTimer.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Records time spent rendering a travel plan, including generating instructions on the first render of a cached route
+	 * @param nanos: elapsed nano seconds
+	 */
+	public void recordInstructions(long nanos) {
+		if (suspended) {
+			return;
+		}
+		instructionsTimer.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Exposes travel plan cache counters, read on every scrape so they follow cache replacement on network reload
+	 * @param statistics: supplier of current cache counters
+	 */
+	public void bindCache(Supplier<CacheStatistics> statistics) {
+		this.cacheStatistics = statistics;
+		FunctionCounter.builder("cache.gets", statistics, s -> s.get().getHits())
+				.tags("cache", PLAN_CACHE, "result", "hit")
+				.description("Travel plan cache hits")
+				.register(registry);
+		FunctionCounter.builder("cache.gets", statistics, s -> s.get().getMisses())
+				.tags("cache", PLAN_CACHE, "result", "miss")
+				.description("Travel plan cache misses")
+				.register(registry);
+		FunctionCounter.builder("cache.evictions", statistics, s -> s.get().getEvictions())
+				.tags("cache", PLAN_CACHE)
+				.description("Travel plan cache evictions")
+				.register(registry);
+		Gauge.builder("cache.size", statistics, s -> s.get().getSize())
+				.tags("cache", PLAN_CACHE)
+				.description("Travel plans in cache")
+				.register(registry);
+	}
+
+	/**
+	 * Exposes number of direction requests waiting for a routing thread
+	 * @param queue: routing pool queue
+	 */
+	public void bindRoutingQueue(Collection<?> queue) {
+		Gauge.builder("directions.routing.queued", queue, Collection::size)
+				.description("Direction requests waiting for a routing thread")
+				.register(registry);
+	}
+
+	/**
+	 * Counts a request turned away because routing pool and its queue are full
+	 */
+	public void recordOverload() {
+		if (suspended) {
+			return;
+		}
+		overloaded.increment();
+	}
+
+	/**
+	 * Counts a request that joined the search of an identical request in flight
+	 */
+	public void recordCoalesced() {
+		if (suspended) {
+			return;
+		}
+		coalesced.increment();
+	}
+
+	/**
+	 * Counts a rejected request by exception type
+	 * @param exception: validation exception
+	 */
+	public void recordRejection(Exception exception) {
+		if (suspended) {
+			return;
+		}
+		if (exception instanceof StationNotFoundException) {
+			stationNotFound.increment();
+		} else if (exception instanceof StationClosedException) {
+			stationClosed.increment();
+		} else if (exception instanceof StationNotReadyException) {
+			stationNotReady.increment();
+		} else if (exception instanceof PastDateTimeException) {
+			pastDateTime.increment();
+		}
+	}
+
+	/**
+	 * Counts a served travel plan and every line it rides
+	 * @param lines: line codes of route legs, null if no route was found
+	 */
+	public void recordRoute(String[] lines) {
+		if (suspended) {
+			return;
+		}
+		if (lines == null) {
+			noRoute.increment();
+			return;
+		}
+		routed.increment();
+		for (String line : lines) {
+			Counter counter = lineCounters.get(line);
+			if (counter == null) {
+				counter = lineCounters.computeIfAbsent(line, code -> Counter.builder(LINE_COUNTER)
+						.description("Served travel plans riding a line")
+						.tags("line", code)
+						.register(registry));
+			}
+			counter.increment();
+		}
+	}
+}
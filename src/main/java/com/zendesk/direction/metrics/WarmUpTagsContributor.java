@@ -0,0 +1,35 @@
+package com.zendesk.direction.metrics;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsContributor;
+import org.springframework.stereotype.Component;
+
+import com.zendesk.direction.utils.Constants;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Tags http server request metrics with warmup true for requests the service sends itself while warming up,
+ * so dashboards can leave them out
+ * @author swapnil.janorkar
+ *
+ */
+@Component
+public class WarmUpTagsContributor implements WebMvcTagsContributor {
+
+	private static final Tags WARM_UP = Tags.of(Tag.of("warmup", "true"));
+	private static final Tags SERVED = Tags.of(Tag.of("warmup", "false"));
+
+	@Override
+	public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler, Throwable exception) {
+		return request.getHeader(Constants.WARM_UP_HEADER) != null ? WARM_UP : SERVED;
+	}
+
+	@Override
+	public Iterable<Tag> getLongRequestTags(HttpServletRequest request, Object handler) {
+		return getTags(request, null, handler, null);
+	}
+}
@@ -1,20 +1,59 @@
 package com.zendesk.direction.proxy;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.WordUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.zendesk.direction.core.AvailabilityCalendar;
+import com.zendesk.direction.core.MrtDetailsLoader;
+import com.zendesk.direction.core.NetworkReloadedEvent;
+import com.zendesk.direction.core.NetworkSnapshot;
+import com.zendesk.direction.core.TransitGraph;
+import com.zendesk.direction.entity.CacheStatistics;
+import com.zendesk.direction.entity.CompactRoute;
+import com.zendesk.direction.entity.CompactTravelPlan;
+import com.zendesk.direction.entity.DepartureInterval;
+import com.zendesk.direction.entity.DepartureProfile;
+import com.zendesk.direction.entity.DirectionQuery;
 import com.zendesk.direction.entity.MrtStation;
 import com.zendesk.direction.entity.TravelPlan;
+import com.zendesk.direction.metrics.DirectionMetrics;
 import com.zendesk.direction.service.DirectionsGeneratorService;
+import com.zendesk.direction.service.RouteTree;
+import com.zendesk.direction.utils.Constants;
 import com.zendesk.direction.utils.DirectionUtils;
+import com.zendesk.direction.utils.TimeBand;
 
 /**
  * Service class for route generation
@@ -29,6 +68,88 @@ public class DirectionGeneratorProxy {
 	@Autowired
 	private DirectionsGeneratorService directionGenerator;
 	
+	@Autowired
+	private MrtDetailsLoader mrtDetails;
+
+	@Autowired
+	private DirectionMetrics metrics;
+
+	@Value("${directions.cache.maximum-size:1000}")
+	private long cacheSize;
+
+	@Value("${directions.async.enabled:true}")
+	private boolean asyncEnabled;
+
+	@Value("${directions.async.threads:0}")
+	private int asyncThreads;
+
+	@Value("${directions.async.queue-capacity:1000}")
+	private int asyncQueueCapacity;
+
+	private volatile PlanCache planCache;
+
+	private volatile PlanFlights planFlights;
+
+	private ThreadPoolExecutor routingExecutor;
+
+	/**
+	 * Creates travel plan cache, W-TinyLFU bounded to configured number of station pairs and time bands,
+	 * and the bounded routing pool direction requests are served on when async is enabled
+	 */
+	@PostConstruct
+	public void init() {
+		if (cacheSize > 0) {
+			planCache = new PlanCache(mrtDetails.getGraph(), cacheSize);
+		}
+		metrics.bindCache(this::getCacheStatistics);
+		planFlights = new PlanFlights(mrtDetails.getGraph());
+
+		if (asyncEnabled) {
+			final int threads = asyncThreads > 0 ? asyncThreads : Runtime.getRuntime().availableProcessors();
+			final AtomicInteger count = new AtomicInteger();
+			routingExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(asyncQueueCapacity), runnable -> {
+						final Thread thread = new Thread(runnable, "directions-routing-" + count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}, new ThreadPoolExecutor.AbortPolicy());
+			metrics.bindRoutingQueue(routingExecutor.getQueue());
+			LOGGER.info("Routing direction requests on {} threads, up to {} queued", threads, asyncQueueCapacity);
+		}
+	}
+
+	/**
+	 * Stops routing pool
+	 */
+	@PreDestroy
+	public void destroy() {
+		if (routingExecutor != null) {
+			routingExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Replaces travel plan cache and in flight searches with empty ones for reloaded network
+	 * @param event: network reload event
+	 */
+	@EventListener
+	public void onNetworkReloaded(NetworkReloadedEvent event) {
+		if (cacheSize > 0) {
+			planCache = new PlanCache(event.getSnapshot().getGraph(), cacheSize);
+		}
+		planFlights = new PlanFlights(event.getSnapshot().getGraph());
+	}
+
+	/**
+	 * Returns travel plan cache keyed by station indices of given graph
+	 * @param graph: mrt graph station indices belong to
+	 * @return travel plan cache, null if cache is disabled or not yet replaced for given graph
+	 */
+	private Cache<Long, PlanTemplate> planCache(TransitGraph graph) {
+		final PlanCache current = planCache;
+		return current == null || current.graph != graph ? null : current.cache;
+	}
+
 	/**
 	 * Returns list of stations to travel for given source and destination mrt stations
 	 * @param from: source mrt station 
@@ -37,26 +158,627 @@ public class DirectionGeneratorProxy {
 	 * @return Instructions to travel from source to destination station
 	 */
 	public TravelPlan buildDirections(String from, String to, LocalDateTime datetime) {
-		List<MrtStation> stations = directionGenerator.buildDirections(from, to);
-		return generateInstructions(stations, datetime);
+		return buildDirections(from, to, datetime, false);
 	}
 	
+	/**
+	 * Returns list of stations to travel for given source and destination mrt stations
+	 * @param from: source mrt station
+	 * @param to: destination mrt station
+	 * @param datetime: date & time to start journey
+	 * @param compact: structured route instead of human readable instructions
+	 * @return Instructions or structured route to travel from source to destination station
+	 */
+	public TravelPlan buildDirections(String from, String to, LocalDateTime datetime, boolean compact) {
+		final NetworkSnapshot snapshot = mrtDetails.getSnapshot();
+		final TransitGraph graph = snapshot.getGraph();
+		final int source = graph.getStationIndex(from);
+		final int destination = graph.getStationIndex(to);
+
+		if (source < 0 || destination < 0) {
+			return buildTemplate(from, to, datetime).toTravelPlan(datetime, compact, metrics);
+		}
+
+		return searchTemplate(graph, snapshot.getAvailability(), source, destination, from, to, datetime).toTravelPlan(datetime, compact, metrics);
+	}
+
+	/**
+	 * Returns fastest travel plan with up to given number of alternative travel plans ranked by travel time
+	 * @param from: source mrt station
+	 * @param to: destination mrt station
+	 * @param datetime: date & time to start journey
+	 * @param compact: structured route instead of human readable instructions
+	 * @param alternatives: maximum number of alternative travel plans, 0 for fastest only
+	 * @return fastest travel plan, alternatives attached to it
+	 */
+	public TravelPlan buildDirections(String from, String to, LocalDateTime datetime, boolean compact, int alternatives) {
+		if (alternatives <= 0) {
+			return buildDirections(from, to, datetime, compact);
+		}
+
+		final List<List<MrtStation>> routes = directionGenerator.buildAlternatives(from, to, datetime, alternatives + 1);
+		return buildRankedPlan(from, to, routes, datetime, compact);
+	}
+
+	/**
+	 * Returns fastest travel plan, or when pareto is set the fastest travel plan with travel plans
+	 * having fewer interchanges attached, each slower than the one before
+	 * @param from: source mrt station
+	 * @param to: destination mrt station
+	 * @param datetime: date & time to start journey
+	 * @param compact: structured route instead of human readable instructions
+	 * @param alternatives: maximum number of alternative travel plans, 0 for fastest only, ignored when pareto is set
+	 * @param pareto: attach travel plans trading travel time against interchanges
+	 * @return fastest travel plan, alternatives attached to it
+	 */
+	public TravelPlan buildDirections(String from, String to, LocalDateTime datetime, boolean compact, int alternatives, boolean pareto) {
+		if (!pareto) {
+			return buildDirections(from, to, datetime, compact, alternatives);
+		}
+		return buildRankedPlan(from, to, directionGenerator.buildParetoRoutes(from, to, datetime), datetime, compact);
+	}
+
+	/**
+	 * Returns travel plan without holding the calling thread: cached travel plans are answered at once,
+	 * routes are searched on the bounded routing pool and requests for a station pair, time band and closure period
+	 * already being searched share that search. Searches run on the calling thread when async is disabled
+	 * @param from: source mrt station
+	 * @param to: destination mrt station
+	 * @param datetime: date & time to start journey
+	 * @param compact: structured route instead of human readable instructions
+	 * @param alternatives: maximum number of alternative travel plans, 0 for fastest only, ignored when pareto is set
+	 * @param pareto: attach travel plans trading travel time against interchanges
+	 * @return future completing with fastest travel plan, alternatives attached to it
+	 * @throws RejectedExecutionException: if routing pool and its queue are full
+	 */
+	public CompletableFuture<TravelPlan> buildDirectionsAsync(String from, String to, LocalDateTime datetime, boolean compact, int alternatives, boolean pareto) {
+		if (routingExecutor == null) {
+			return CompletableFuture.completedFuture(buildDirections(from, to, datetime, compact, alternatives, pareto));
+		}
+		final NetworkSnapshot snapshot = mrtDetails.getSnapshot();
+		final TransitGraph graph = snapshot.getGraph();
+		final AvailabilityCalendar calendar = snapshot.getAvailability();
+		final int source = graph.getStationIndex(from);
+		final int destination = graph.getStationIndex(to);
+		try {
+			if (alternatives > 0 || pareto || source < 0 || destination < 0) {
+				return CompletableFuture.supplyAsync(() -> buildDirections(from, to, datetime, compact, alternatives, pareto), routingExecutor);
+			}
+			final PlanTemplate cached = cachedTemplate(graph, calendar, source, destination, datetime);
+			if (cached != null) {
+				return CompletableFuture.completedFuture(cached.toTravelPlan(datetime, compact, metrics));
+			}
+			return planFlight(graph, calendar, source, destination, from, to, datetime, routingExecutor)
+					.thenApply(template -> template.toTravelPlan(datetime, compact, metrics));
+		} catch (RejectedExecutionException exception) {
+			metrics.recordOverload();
+			throw exception;
+		}
+	}
+
+	/**
+	 * Returns arrival time of every departure minute of given window, as intervals of departures sharing route and
+	 * travel time. Route and travel time only depend on the time band and the closure period of the departure, time
+	 * bands change on the hour and closure periods at boundaries of the availability calendar, so the window is walked
+	 * from boundary to boundary and equal steps are merged. Routes are searched once per time band and closure period
+	 * met in the window, through travel plan cache and in flight searches
+	 * @param from: source mrt station
+	 * @param to: destination mrt station
+	 * @param start: earliest departure date & time
+	 * @param end: latest departure date & time
+	 * @return departure intervals in departure order with fastest departure of the window
+	 */
+	public DepartureProfile buildDepartureProfile(String from, String to, LocalDateTime start, LocalDateTime end) {
+		final NetworkSnapshot snapshot = mrtDetails.getSnapshot();
+		final TransitGraph graph = snapshot.getGraph();
+		final AvailabilityCalendar calendar = snapshot.getAvailability();
+		final int source = graph.getStationIndex(from);
+		final int destination = graph.getStationIndex(to);
+		final DepartureProfile profile = new DepartureProfile();
+		profile.setFrom(from);
+		profile.setTo(to);
+		if (source < 0 || destination < 0) {
+			profile.setError("No route found from " + from + " to " + to);
+			return profile;
+		}
+
+		final Map<Long, PlanTemplate> templates = new HashMap<>();
+		final List<DepartureInterval> intervals = new ArrayList<>();
+		final LocalDateTime last = end.plusMinutes(1);
+		LocalDateTime departure = start;
+		while (departure.isBefore(last)) {
+			final TimeBand band = TimeBand.of(departure);
+			final long period = calendar.period(AvailabilityCalendar.minute(departure));
+			final String closed = closure(graph, calendar, source, destination, from, to, departure);
+			LocalDateTime until = nextStep(calendar, departure);
+			while (until.isBefore(last) && TimeBand.of(until) == band && calendar.period(AvailabilityCalendar.minute(until)) == period) {
+				until = nextStep(calendar, until);
+			}
+			if (until.isAfter(last)) {
+				until = last;
+			}
+
+			final DepartureInterval interval = new DepartureInterval();
+			interval.setDepartFrom(departure.format(Constants.REQUEST_DATE_TIME_FORMATTER));
+			interval.setDepartTo(until.minusMinutes(1).format(Constants.REQUEST_DATE_TIME_FORMATTER));
+			PlanTemplate template = null;
+			if (closed != null) {
+				interval.setError(closed);
+			} else {
+				final long key = ((long) band.ordinal() << 62) | period;
+				template = templates.get(key);
+				if (template == null) {
+					template = searchTemplate(graph, calendar, source, destination, from, to, departure);
+					templates.put(key, template);
+				}
+				interval.setError(template.error);
+			}
+			if (template != null && template.error == null) {
+				interval.setBand(band.name());
+				interval.setMinutes(template.travelTime);
+				interval.setStops(DirectionUtils.calculateStationsToTravel(template.stations));
+				interval.setArriveFrom(departure.plusMinutes(template.travelTime).format(Constants.REQUEST_DATE_TIME_FORMATTER));
+				interval.setArriveTo(until.minusMinutes(1).plusMinutes(template.travelTime).format(Constants.REQUEST_DATE_TIME_FORMATTER));
+				if (profile.getFastestMinutes() == null || template.travelTime < profile.getFastestMinutes()) {
+					profile.setFastestDeparture(interval.getDepartFrom());
+					profile.setFastestMinutes(template.travelTime);
+				}
+			}
+			intervals.add(interval);
+			departure = until;
+		}
+		profile.setIntervals(intervals);
+		return profile;
+	}
+
+	/**
+	 * Returns departure profile without holding the calling thread, see {@link #buildDepartureProfile}.
+	 * Runs on the calling thread when async is disabled
+	 * @param from: source mrt station
+	 * @param to: destination mrt station
+	 * @param start: earliest departure date & time
+	 * @param end: latest departure date & time
+	 * @return future completing with departure profile
+	 * @throws RejectedExecutionException: if routing pool and its queue are full
+	 */
+	public CompletableFuture<DepartureProfile> buildDepartureProfileAsync(String from, String to, LocalDateTime start, LocalDateTime end) {
+		if (routingExecutor == null) {
+			return CompletableFuture.completedFuture(buildDepartureProfile(from, to, start, end));
+		}
+		try {
+			return CompletableFuture.supplyAsync(() -> buildDepartureProfile(from, to, start, end), routingExecutor);
+		} catch (RejectedExecutionException exception) {
+			metrics.recordOverload();
+			throw exception;
+		}
+	}
+
+	/**
+	 * Returns next hour or next closure boundary after given date & time, whichever comes first
+	 * @param calendar: availability calendar
+	 * @param dateTime: date & time
+	 * @return start of next step of a departure sweep
+	 */
+	private static LocalDateTime nextStep(AvailabilityCalendar calendar, LocalDateTime dateTime) {
+		final LocalDateTime hour = dateTime.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+		final long change = calendar.nextChange(AvailabilityCalendar.minute(dateTime));
+		return change < AvailabilityCalendar.minute(hour) ? dateTime.plusMinutes(change - AvailabilityCalendar.minute(dateTime)) : hour;
+	}
+
+	/**
+	 * Returns why journeys between given stations can not start at given date & time
+	 * @param graph: mrt graph station indices belong to
+	 * @param calendar: availability calendar of graph
+	 * @param source: source station index
+	 * @param destination: destination station index
+	 * @param from: source mrt station
+	 * @param to: destination mrt station
+	 * @param dateTime: date & time to start journey
+	 * @return error message, null if both stations are open
+	 */
+	private static String closure(TransitGraph graph, AvailabilityCalendar calendar, int source, int destination, String from, String to, LocalDateTime dateTime) {
+		final long minute = AvailabilityCalendar.minute(dateTime);
+		final long day = dateTime.toLocalDate().toEpochDay();
+		if (!calendar.isStationOpen(source, minute)) {
+			return "Station name " + from + (graph.getOpeningEpochDay(source) > day ? " is not ready yet" : " is closed");
+		}
+		if (!calendar.isStationOpen(destination, minute)) {
+			return "Station name " + to + (graph.getOpeningEpochDay(destination) > day ? " is not ready yet" : " is closed");
+		}
+		return null;
+	}
+
+	/**
+	 * Returns cached travel plan template for given station pair, time band and closure period, or searches it on
+	 * the calling thread, joining an identical search already in flight
+	 * @param graph: mrt graph station indices belong to
+	 * @param calendar: availability calendar of graph
+	 * @param source: source station index
+	 * @param destination: destination station index
+	 * @param from: source mrt station
+	 * @param to: destination mrt station
+	 * @param datetime: date & time to start journey
+	 * @return travel plan template
+	 */
+	private PlanTemplate searchTemplate(TransitGraph graph, AvailabilityCalendar calendar, int source, int destination, String from, String to,
+			LocalDateTime datetime) {
+		final PlanTemplate cached = cachedTemplate(graph, calendar, source, destination, datetime);
+		if (cached != null) {
+			return cached;
+		}
+		return planFlight(graph, calendar, source, destination, from, to, datetime, Runnable::run).join();
+	}
+
+	/**
+	 * Returns cached travel plan template for given station pair, time band and closure period
+	 * @param graph: mrt graph station indices belong to
+	 * @param calendar: availability calendar of graph
+	 * @param source: source station index
+	 * @param destination: destination station index
+	 * @param datetime: date & time to start journey
+	 * @return travel plan template, null if cache is disabled or it is not cached
+	 */
+	private PlanTemplate cachedTemplate(TransitGraph graph, AvailabilityCalendar calendar, int source, int destination, LocalDateTime datetime) {
+		final Cache<Long, PlanTemplate> cache = planCache(graph);
+		final long key = planKey(source, destination, TimeBand.of(datetime), calendar.period(AvailabilityCalendar.minute(datetime)));
+		return cache == null || key < 0 ? null : cache.getIfPresent(key);
+	}
+
+	/**
+	 * Returns the in flight search for given station pair, time band and closure period, starting one on given executor
+	 * if there is none. The searched template is cached before the search is forgotten, so requests arriving
+	 * later find it in cache
+	 * @param graph: mrt graph station indices belong to
+	 * @param calendar: availability calendar of graph
+	 * @param source: source station index
+	 * @param destination: destination station index
+	 * @param from: source mrt station
+	 * @param to: destination mrt station
+	 * @param datetime: date & time to start journey
+	 * @param executor: executor to search on
+	 * @return future completing with travel plan template
+	 * @throws RejectedExecutionException: if executor does not accept the search
+	 */
+	private CompletableFuture<PlanTemplate> planFlight(TransitGraph graph, AvailabilityCalendar calendar, int source, int destination,
+			String from, String to, LocalDateTime datetime, Executor executor) {
+		final PlanFlights flights = planFlights;
+		final long key = planKey(source, destination, TimeBand.of(datetime), calendar.period(AvailabilityCalendar.minute(datetime)));
+		if (flights.graph != graph || key < 0) {
+			return CompletableFuture.supplyAsync(() -> buildTemplate(from, to, datetime), executor);
+		}
+
+		final CompletableFuture<PlanTemplate> flight = new CompletableFuture<>();
+		final CompletableFuture<PlanTemplate> running = flights.searches.putIfAbsent(key, flight);
+		if (running != null) {
+			metrics.recordCoalesced();
+			return running;
+		}
+
+		try {
+			executor.execute(() -> {
+				try {
+					final PlanTemplate template = buildTemplate(from, to, datetime);
+					final Cache<Long, PlanTemplate> cache = planCache(graph);
+					if (cache != null) {
+						cache.put(key, template);
+					}
+					flights.searches.remove(key, flight);
+					flight.complete(template);
+				} catch (RuntimeException | Error exception) {
+					flights.searches.remove(key, flight);
+					flight.completeExceptionally(exception);
+				}
+			});
+		} catch (RejectedExecutionException exception) {
+			flights.searches.remove(key, flight);
+			flight.completeExceptionally(exception);
+			throw exception;
+		}
+		return flight;
+	}
+
+	/**
+	 * Builds travel plan of first route and attaches travel plans of remaining routes as alternatives
+	 * @param from: source mrt station
+	 * @param to: destination mrt station
+	 * @param routes: ranked lists of mrt stations to travel
+	 * @param datetime: date & time to start journey
+	 * @param compact: structured route instead of human readable instructions
+	 * @return travel plan of first route, alternatives attached to it
+	 */
+	private TravelPlan buildRankedPlan(String from, String to, List<List<MrtStation>> routes, LocalDateTime datetime, boolean compact) {
+		if (routes.isEmpty()) {
+			return buildTemplate(from, to, Collections.<MrtStation>emptyList(), datetime).toTravelPlan(datetime, compact, metrics);
+		}
+
+		final TravelPlan plan = buildTemplate(from, to, routes.get(0), datetime).toTravelPlan(datetime, compact, metrics);
+		final List<TravelPlan> ranked = new ArrayList<>(routes.size() - 1);
+		for (int i = 1; i < routes.size(); i++) {
+			// lines are counted for the served route only
+			ranked.add(buildTemplate(from, to, routes.get(i), datetime).render(datetime, compact, metrics));
+		}
+		plan.setAlternatives(ranked);
+		return plan;
+	}
+
+	/**
+	 * Returns travel plans for many queries in query order.
+	 * Queries missing the travel plan cache are grouped by source station, time band and closure period, each group
+	 * is served by one route tree search. With the route table enabled pairs are served from it like single queries.
+	 * Plans built from a route tree are not cached, the tree may pick another of equally fast routes than the search
+	 * of a single query. Groups are routed on the calling thread
+	 * @param queries: validated queries with departure date & time
+	 * @param compact: structured routes instead of human readable instructions
+	 * @return travel plans in query order
+	 */
+	public List<TravelPlan> buildDirections(List<DirectionQuery> queries, boolean compact) {
+		return buildDirections(queries, compact, Runnable::run, 1).join();
+	}
+
+	/**
+	 * Returns travel plans for many queries without holding the calling thread, see {@link #buildDirections(List, boolean)}.
+	 * Groups are routed in parallel on the bounded routing pool, split in at most one task per routing thread so a
+	 * batch takes a bounded share of its queue. Runs on the calling thread when async is disabled
+	 * @param queries: validated queries with departure date & time
+	 * @param compact: structured routes instead of human readable instructions
+	 * @return future completing with travel plans in query order
+	 * @throws RejectedExecutionException: if routing pool and its queue are full
+	 */
+	public CompletableFuture<List<TravelPlan>> buildDirectionsAsync(List<DirectionQuery> queries, boolean compact) {
+		if (routingExecutor == null) {
+			return CompletableFuture.completedFuture(buildDirections(queries, compact));
+		}
+		try {
+			return buildDirections(queries, compact, routingExecutor, routingExecutor.getCorePoolSize());
+		} catch (RejectedExecutionException exception) {
+			metrics.recordOverload();
+			throw exception;
+		}
+	}
+
+	/**
+	 * Answers cached queries at once and routes the remaining groups on given executor
+	 * @param queries: validated queries with departure date & time
+	 * @param compact: structured routes instead of human readable instructions
+	 * @param executor: executor to route on
+	 * @param parallelism: maximum number of tasks handed to the executor
+	 * @return future completing with travel plans in query order
+	 * @throws RejectedExecutionException: if executor does not accept a task, tasks already handed over are cancelled
+	 */
+	private CompletableFuture<List<TravelPlan>> buildDirections(List<DirectionQuery> queries, boolean compact, Executor executor, int parallelism) {
+		final NetworkSnapshot snapshot = mrtDetails.getSnapshot();
+		final TransitGraph graph = snapshot.getGraph();
+		final AvailabilityCalendar calendar = snapshot.getAvailability();
+		final TravelPlan[] plans = new TravelPlan[queries.size()];
+		final Map<Long, List<Integer>> origins = new HashMap<>();
+
+		for (int i = 0; i < queries.size(); i++) {
+			final DirectionQuery query = queries.get(i);
+			final int source = graph.getStationIndex(query.getFrom());
+			final int destination = graph.getStationIndex(query.getTo());
+			if (source < 0 || destination < 0) {
+				plans[i] = buildTemplate(query.getFrom(), query.getTo(), query.getDeparture()).toTravelPlan(query.getDeparture(), compact, metrics);
+				continue;
+			}
+			final PlanTemplate cached = cachedTemplate(graph, calendar, source, destination, query.getDeparture());
+			if (cached != null) {
+				plans[i] = cached.toTravelPlan(query.getDeparture(), compact, metrics);
+			} else {
+				// any destination stands in for the group, only source, band and period are compared
+				final long key = planKey(source, 0, TimeBand.of(query.getDeparture()), calendar.period(AvailabilityCalendar.minute(query.getDeparture())));
+				origins.computeIfAbsent(key < 0 ? -1 - i : key, k -> new ArrayList<>()).add(i);
+			}
+		}
+
+		if (origins.isEmpty()) {
+			return CompletableFuture.completedFuture(Arrays.asList(plans));
+		}
+		final List<List<Integer>> groups = new ArrayList<>(origins.values());
+		final int taskCount = Math.max(1, Math.min(groups.size(), parallelism));
+		final CompletableFuture<?>[] tasks = new CompletableFuture<?>[taskCount];
+		try {
+			for (int task = 0; task < taskCount; task++) {
+				final int first = task;
+				tasks[task] = CompletableFuture.runAsync(() -> {
+					for (int group = first; group < groups.size(); group += taskCount) {
+						routeGroup(calendar, queries, groups.get(group), compact, plans);
+					}
+				}, executor);
+			}
+		} catch (RejectedExecutionException exception) {
+			// tasks still queued are skipped once cancelled
+			for (CompletableFuture<?> task : tasks) {
+				if (task != null) {
+					task.cancel(false);
+				}
+			}
+			throw exception;
+		}
+		return CompletableFuture.allOf(tasks).thenApply(done -> Arrays.asList(plans));
+	}
+
+	/**
+	 * Routes queries leaving the same station in the same time band and closure period with one route tree
+	 * @param calendar: availability calendar station indices belong to
+	 * @param queries: validated queries with departure date & time
+	 * @param group: positions of the group's queries
+	 * @param compact: structured routes instead of human readable instructions
+	 * @param plans: output, travel plans in query order
+	 */
+	private void routeGroup(AvailabilityCalendar calendar, List<DirectionQuery> queries, List<Integer> group, boolean compact, TravelPlan[] plans) {
+		final TransitGraph graph = calendar.getGraph();
+		final DirectionQuery first = queries.get(group.get(0));
+		final int source = graph.getStationIndex(first.getFrom());
+		RouteTree tree = null;
+		for (int i : group) {
+			final DirectionQuery query = queries.get(i);
+			final int destination = graph.getStationIndex(query.getTo());
+			List<MrtStation> route = directionGenerator.buildTableRoute(calendar, source, destination, query.getDeparture());
+			if (route == null) {
+				if (tree == null) {
+					tree = directionGenerator.buildRouteTree(calendar, source, first.getDeparture());
+				}
+				route = tree.route(destination);
+			}
+			plans[i] = buildTemplate(query.getFrom(), query.getTo(), route, query.getDeparture()).toTravelPlan(query.getDeparture(), compact, metrics);
+		}
+	}
+
+	/**
+	 * Writes travel time matrix between given stations, one row per source station.
+	 * Rows are searched and written one at a time so large matrices are never buffered
+	 * @param snapshot: network snapshot station indices belong to
+	 * @param origins: source station indices
+	 * @param destinations: destination station indices
+	 * @param datetime: date & time to start journey
+	 * @param generator: json generator of response body
+	 * @throws IOException: if response can not be written
+	 */
+	public void writeTravelTimeMatrix(NetworkSnapshot snapshot, int[] origins, int[] destinations, LocalDateTime datetime, JsonGenerator generator) throws IOException {
+		final TransitGraph graph = snapshot.getGraph();
+		final int[] minutes = new int[destinations.length];
+		final int[] stops = new int[destinations.length];
+
+		generator.writeStartObject();
+		generator.writeArrayFieldStart("destinations");
+		for (int destination : destinations) {
+			generator.writeString(graph.getStationName(destination));
+		}
+		generator.writeEndArray();
+
+		generator.writeArrayFieldStart("rows");
+		for (int source : origins) {
+			directionGenerator.buildTravelTimes(snapshot.getAvailability(), source, datetime, destinations, minutes, stops);
+			generator.writeStartObject();
+			generator.writeStringField("origin", graph.getStationName(source));
+			generator.writeFieldName("minutes");
+			generator.writeArray(minutes, 0, minutes.length);
+			generator.writeFieldName("stops");
+			generator.writeArray(stops, 0, stops.length);
+			generator.writeEndObject();
+			generator.flush();
+		}
+		generator.writeEndArray();
+		generator.writeEndObject();
+		generator.flush();
+	}
+
+	/**
+	 * Writes travel time matrix on the bounded routing pool, see {@link #writeTravelTimeMatrix}, the generator is
+	 * closed once the matrix is written. Writes on the calling thread when async is disabled
+	 * @param snapshot: network snapshot station indices belong to
+	 * @param origins: source station indices
+	 * @param destinations: destination station indices
+	 * @param datetime: date & time to start journey
+	 * @param generator: json generator of response body
+	 * @return future completing once the matrix is written, exceptionally if it can not be written
+	 * @throws RejectedExecutionException: if routing pool and its queue are full
+	 */
+	public CompletableFuture<Void> writeTravelTimeMatrixAsync(NetworkSnapshot snapshot, int[] origins, int[] destinations, LocalDateTime datetime,
+			JsonGenerator generator) {
+		final Runnable write = () -> {
+			try (JsonGenerator out = generator) {
+				writeTravelTimeMatrix(snapshot, origins, destinations, datetime, out);
+			} catch (IOException exception) {
+				throw new UncheckedIOException(exception);
+			}
+		};
+		if (routingExecutor == null) {
+			return CompletableFuture.runAsync(write, Runnable::run);
+		}
+		try {
+			return CompletableFuture.runAsync(write, routingExecutor);
+		} catch (RejectedExecutionException exception) {
+			metrics.recordOverload();
+			throw exception;
+		}
+	}
+
+	/**
+	 * Cache key, stations, time band and closure period fully determine route and instructions, only arrival time differs
+	 * @param source: source station index
+	 * @param destination: destination station index
+	 * @param band: time band of journey
+	 * @param period: closure period of journey start, see {@link AvailabilityCalendar#period}
+	 * @return cache key, -1 if stations or period do not fit in a key and the plan is not cached
+	 */
+	private static long planKey(int source, int destination, TimeBand band, long period) {
+		if (source >= 1 << 20 || destination >= 1 << 20 || period >= 1 << 22) {
+			return -1;
+		}
+		return ((long) source << 44) | ((long) destination << 24) | (period << 2) | band.ordinal();
+	}
+
+	/**
+	 * Returns hit, miss and eviction counters of travel plan cache since it was created or counters were last reset
+	 * @return cache statistics
+	 */
+	public CacheStatistics getCacheStatistics() {
+		final CacheStatistics statistics = new CacheStatistics();
+		final PlanCache current = planCache;
+		if (current != null) {
+			final Cache<Long, PlanTemplate> cache = current.cache;
+			final CacheStats stats = cache.stats().minus(current.baseline);
+			statistics.setHits(stats.hitCount());
+			statistics.setMisses(stats.missCount());
+			statistics.setEvictions(stats.evictionCount());
+			statistics.setHitRate(stats.hitRate());
+			statistics.setSize(cache.estimatedSize());
+		}
+		return statistics;
+	}
+
+	/**
+	 * Starts travel plan cache counters from zero, cached travel plans are kept
+	 */
+	public void resetCacheStatistics() {
+		final PlanCache current = planCache;
+		if (current != null) {
+			current.baseline = current.cache.stats();
+		}
+	}
+
+	/**
+	 * Finds route and creates time independent part of travel plan, instructions are generated on first text request
+	 * @param from: source mrt station
+	 * @param to: destination mrt station
+	 * @param datetime: date & time to start journey
+	 * @return travel plan template
+	 */
+	private PlanTemplate buildTemplate(String from, String to, LocalDateTime datetime) {
+		List<MrtStation> stations = directionGenerator.buildDirections(from, to, datetime);
+		return buildTemplate(from, to, stations, datetime);
+	}
+
+	/**
+	 * Creates time independent part of travel plan for given route
+	 * @param from: source mrt station
+	 * @param to: destination mrt station
+	 * @param stations: list of mrt stations to travel, empty if there is no route
+	 * @param datetime: date & time to start journey
+	 * @return travel plan template
+	 */
+	private static PlanTemplate buildTemplate(String from, String to, List<MrtStation> stations, LocalDateTime datetime) {
+		if (stations.isEmpty()) {
+			return new PlanTemplate("No route found from " + from + " to " + to);
+		}
+		return new PlanTemplate(stations, TimeBand.of(datetime), DirectionUtils.calculateTravelTime(stations, datetime));
+	}
 	
 	/**
 	 * Generates instruction for traveling from source to destination mrt stations for give date & time
 	 * @param mrtStations : list of mrt stations to travel
 	 * @param dateTime: date & time to start journey
-	 * @return: instructions for traveling from source to destination
+	 * @return: instructions for traveling from source to destination, without arrival time
 	 */
-	private TravelPlan generateInstructions(List<MrtStation> mrtStations, LocalDateTime dateTime) {
+	static Instructions generateInstructions(List<MrtStation> mrtStations, LocalDateTime dateTime) {
 		LOGGER.debug("Generating travel instructions");
 		
 		final MrtStation first = mrtStations.get(0);
 		final MrtStation last = mrtStations.get(mrtStations.size() - 1);
 		final String firstName = WordUtils.capitalizeFully(first.getName());
 		final String lastName = WordUtils.capitalizeFully(last.getName());
-		final long travelTime = DirectionUtils.calculateTravelTime(mrtStations, dateTime);
-		final String arrivalTime = DirectionUtils.calculateArrivalTime(dateTime, travelTime);
+		final int travelTime = DirectionUtils.calculateTravelTime(mrtStations, dateTime);
 		
 		List<String> summary = new ArrayList<>();
 		summary.add("Travel plan from " + firstName + "(" +first.getId() + ") to " + lastName + "(" + last.getId() + ")");
@@ -66,7 +788,6 @@ public class DirectionGeneratorProxy {
 		}
 		summary.add("Total stations to travel: " + DirectionUtils.calculateStationsToTravel(mrtStations));
 		summary.add("Total travel time: " + travelTime + " mins");
-		summary.add("Expected arrival time at " + lastName + "(" + last.getId() + ") " + arrivalTime);
 		
 		List<String> plan = new ArrayList<>();
 		plan.add("Board " + first.getLineName() + " line at " + firstName + "(" + first.getId() + ")");
@@ -85,9 +806,153 @@ public class DirectionGeneratorProxy {
 		}
 		plan.add("Alight " + last.getLineName() + " line at " + lastName + "(" + last.getId() + ")");
 		
-		TravelPlan direction = new TravelPlan();
-		direction.setSummary(summary);
-		direction.setStep(plan);
-		return direction;
+		return new Instructions(summary, plan, "Expected arrival time at " + lastName + "(" + last.getId() + ") ");
+	}
+
+	/**
+	 * Travel plan cache together with graph its station index keys belong to
+	 */
+	private static final class PlanCache {
+
+		private final TransitGraph graph;
+		private final Cache<Long, PlanTemplate> cache;
+
+		// counters at last reset, subtracted from cache counters
+		private volatile CacheStats baseline = CacheStats.empty();
+
+		private PlanCache(TransitGraph graph, long maximumSize) {
+			this.graph = graph;
+			this.cache = Caffeine.newBuilder()
+					.maximumSize(maximumSize)
+					.recordStats()
+					.build();
+		}
+	}
+
+	/**
+	 * Searches in flight per station pair, time band and closure period, together with graph their station index keys belong to
+	 */
+	private static final class PlanFlights {
+
+		private final TransitGraph graph;
+		private final ConcurrentHashMap<Long, CompletableFuture<PlanTemplate>> searches = new ConcurrentHashMap<>();
+
+		private PlanFlights(TransitGraph graph) {
+			this.graph = graph;
+		}
+	}
+
+	/**
+	 * Human readable part of a travel plan, without arrival time
+	 */
+	static final class Instructions {
+
+		private final List<String> summary;
+		private final List<String> step;
+		private final String arrivalPrefix;
+
+		private Instructions(List<String> summary, List<String> step, String arrivalPrefix) {
+			this.summary = Collections.unmodifiableList(summary);
+			this.step = Collections.unmodifiableList(step);
+			this.arrivalPrefix = arrivalPrefix;
+		}
+	}
+
+	/**
+	 * Time independent part of a travel plan, shared by all requests of the same station pair, time band and closure period
+	 */
+	static final class PlanTemplate {
+
+		private final String error;
+		private final List<MrtStation> stations;
+		private final TimeBand band;
+		private final int travelTime;
+		private final String[] lines;
+		private volatile Instructions instructions;
+
+		private PlanTemplate(String error) {
+			this.error = error;
+			this.stations = null;
+			this.band = null;
+			this.travelTime = 0;
+			this.lines = null;
+		}
+
+		private PlanTemplate(List<MrtStation> stations, TimeBand band, int travelTime) {
+			this.error = null;
+			this.stations = stations;
+			this.band = band;
+			this.travelTime = travelTime;
+			this.lines = legLines(stations);
+		}
+
+		/**
+		 * Returns line of every leg of route
+		 * @param stations: list of mrt stations to travel
+		 * @return line codes in travel order
+		 */
+		private static String[] legLines(List<MrtStation> stations) {
+			int legs = 1;
+			for (int i = 1; i < stations.size(); i++) {
+				if (!stations.get(i - 1).getLine().equals(stations.get(i).getLine())) {
+					legs++;
+				}
+			}
+			final String[] lines = new String[legs];
+			lines[0] = stations.get(0).getLine();
+			for (int i = 1, leg = 1; i < stations.size(); i++) {
+				if (!stations.get(i - 1).getLine().equals(stations.get(i).getLine())) {
+					lines[leg++] = stations.get(i).getLine();
+				}
+			}
+			return lines;
+		}
+
+		/**
+		 * Creates travel plan with arrival time for given date & time and counts lines of its route as served
+		 * @param dateTime: date & time to start journey
+		 * @param compact: structured route instead of instructions
+		 * @param metrics: pipeline metrics
+		 * @return travel plan
+		 */
+		TravelPlan toTravelPlan(LocalDateTime dateTime, boolean compact, DirectionMetrics metrics) {
+			metrics.recordRoute(lines);
+			return render(dateTime, compact, metrics);
+		}
+
+		/**
+		 * Creates travel plan with arrival time for given date & time without counting its route
+		 * @param dateTime: date & time to start journey
+		 * @param compact: structured route instead of instructions
+		 * @param metrics: pipeline metrics
+		 * @return travel plan
+		 */
+		TravelPlan render(LocalDateTime dateTime, boolean compact, DirectionMetrics metrics) {
+			final TravelPlan direction = compact ? new CompactTravelPlan() : new TravelPlan();
+			if (error != null) {
+				direction.setError(error);
+				return direction;
+			}
+			// every render is timed, cached instructions still need the arrival time formatted
+			final long start = System.nanoTime();
+			if (compact) {
+				direction.setRoute(new CompactRoute(stations, band, travelTime, dateTime.plusMinutes(travelTime)));
+				metrics.recordInstructions(System.nanoTime() - start);
+				return direction;
+			}
+			Instructions text = instructions;
+			if (text == null) {
+				// racing requests render identical instructions, last one wins
+				text = generateInstructions(stations, dateTime);
+				instructions = text;
+			}
+			final List<String> fullSummary = new ArrayList<>(text.summary.size() + 1);
+			fullSummary.addAll(text.summary);
+			fullSummary.add(text.arrivalPrefix + DirectionUtils.calculateArrivalTime(dateTime, travelTime));
+			direction.setSummary(fullSummary);
+			direction.setStep(text.step);
+			metrics.recordInstructions(System.nanoTime() - start);
+			return direction;
+		}
 	}
 }
@@ -0,0 +1,297 @@
+package com.zendesk.direction.proxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zendesk.direction.core.AvailabilityCalendar;
+import com.zendesk.direction.core.MrtDetailsLoader;
+import com.zendesk.direction.core.NetworkSnapshot;
+import com.zendesk.direction.core.TransitGraph;
+import com.zendesk.direction.entity.MrtStation;
+import com.zendesk.direction.metrics.DirectionMetrics;
+import com.zendesk.direction.service.DirectionsGeneratorService;
+import com.zendesk.direction.utils.Constants;
+import com.zendesk.direction.utils.TimeBand;
+
+/**
+ * Routes synthetic queries between every pair of interchanging lines before the application accepts traffic,
+ * so route search, instructions and serialization are compiled and the travel plan cache is filled. A last pass
+ * sends a sample of the pairs through the local http port to warm up the web stack, request validation and the
+ * asynchronous search path, the sampled pairs are left out of the cache at that departure so those requests search.
+ * Warm-up queries are not recorded in the directions metrics, cache statistics are reset once done and warm-up http
+ * requests are tagged warmup=true. Runs as application runner, the readiness probe only reports UP once all runners have returned
+ * @author swapnil.janorkar
+ *
+ */
+@Component
+public class DirectionWarmUp implements ApplicationRunner {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DirectionWarmUp.class);
+
+	@Autowired
+	private MrtDetailsLoader mrtDetails;
+
+	@Autowired
+	private DirectionsGeneratorService directionGenerator;
+
+	@Autowired
+	private DirectionGeneratorProxy routeGenerator;
+
+	@Autowired
+	private DirectionMetrics metrics;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private ApplicationContext context;
+
+	@Autowired
+	private Environment environment;
+
+	@Value("${directions.warmup.enabled:true}")
+	private boolean enabled;
+
+	@Value("${directions.warmup.rounds:5}")
+	private int rounds;
+
+	@Value("${directions.warmup.threads:0}")
+	private int threads;
+
+	@Value("${directions.warmup.requests:200}")
+	private int requests;
+
+	/**
+	 * Warms up on all cores and blocks until done, readiness stays refusing traffic meanwhile
+	 * @param args: application arguments
+	 * @throws InterruptedException in case startup is interrupted
+	 */
+	@Override
+	public void run(ApplicationArguments args) throws InterruptedException {
+		if (!enabled || rounds <= 0) {
+			return;
+		}
+		AvailabilityChangeEvent.publish(context, ReadinessState.REFUSING_TRAFFIC);
+
+		final long start = System.nanoTime();
+		final NetworkSnapshot snapshot = mrtDetails.getSnapshot();
+		final List<String[]> pairs = linePairs(snapshot);
+		final LocalDateTime[] departures = departures();
+		final int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		// port of the started web server, none when running without one
+		final String port = environment.getProperty("local.server.port");
+		final int stride = port != null && requests > 0 ? Math.max(1, pairs.size() / requests) : 0;
+		final AtomicInteger threadCount = new AtomicInteger();
+		final ExecutorService pool = Executors.newFixedThreadPool(poolSize, runnable -> {
+			final Thread thread = new Thread(runnable, "directions-warmup-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		final AtomicInteger queries = new AtomicInteger();
+		metrics.suspend();
+		try {
+			for (int round = 0; round < rounds; round++) {
+				final List<Future<?>> tasks = new ArrayList<>();
+				for (int task = 0; task < poolSize; task++) {
+					final int first = task;
+					tasks.add(pool.submit(() -> {
+						for (int i = first; i < pairs.size(); i += poolSize) {
+							queries.addAndGet(route(snapshot, pairs.get(i), departures, stride > 0 && i % stride == 0));
+						}
+					}));
+				}
+				for (Future<?> task : tasks) {
+					task.get();
+				}
+			}
+
+			if (stride > 0) {
+				// spread over all pairs, so every line is requested
+				final List<Future<?>> tasks = new ArrayList<>();
+				for (int task = 0; task < poolSize; task++) {
+					final int first = task * stride;
+					tasks.add(pool.submit(() -> {
+						for (int i = first; i < pairs.size(); i += poolSize * stride) {
+							request(port, pairs.get(i), departures[TimeBand.OFF_PEAK.ordinal()]);
+							queries.incrementAndGet();
+						}
+						return null;
+					}));
+				}
+				for (Future<?> task : tasks) {
+					task.get();
+				}
+			}
+		} catch (ExecutionException exception) {
+			// a cold start is slower, never a reason not to start
+			LOGGER.warn("Warm-up failed after {} queries, accepting traffic cold", queries.get(), exception.getCause());
+		} finally {
+			pool.shutdownNow();
+			metrics.resume();
+			routeGenerator.resetCacheStatistics();
+		}
+
+		LOGGER.info("Warm-up routed {} queries over {} line pairs in {} rounds on {} threads in {} ms", queries.get(),
+				pairs.size(), rounds, poolSize, (System.nanoTime() - start) / 1_000_000);
+	}
+
+	/**
+	 * Routes given station pair at every departure both stations are open at, through search and travel plan cache
+	 * @param snapshot: network snapshot station names belong to
+	 * @param pair: source and destination mrt station names
+	 * @param departures: one departure per time band
+	 * @param sampled: whether the pair is requested over http later, its off peak plan is then not cached
+	 * @return number of routed queries
+	 */
+	private int route(NetworkSnapshot snapshot, String[] pair, LocalDateTime[] departures, boolean sampled) {
+		final TransitGraph graph = snapshot.getGraph();
+		final AvailabilityCalendar calendar = snapshot.getAvailability();
+		final int source = graph.getStationIndex(pair[0]);
+		final int destination = graph.getStationIndex(pair[1]);
+		int count = 0;
+		for (LocalDateTime departure : departures) {
+			final long minute = AvailabilityCalendar.minute(departure);
+			if (!calendar.isStationOpen(source, minute) || !calendar.isStationOpen(destination, minute)) {
+				continue;
+			}
+			directionGenerator.buildDirections(pair[0], pair[1], departure);
+			if (sampled && TimeBand.of(departure) == TimeBand.OFF_PEAK) {
+				count++;
+				continue;
+			}
+			try {
+				objectMapper.writeValueAsBytes(routeGenerator.buildDirections(pair[0], pair[1], departure));
+			} catch (JsonProcessingException exception) {
+				throw new IllegalStateException(exception);
+			}
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Requests directions between given stations from the local web server, whatever the response status
+	 * @param port: local http port
+	 * @param pair: source and destination mrt station names
+	 * @param departure: date & time to start journey
+	 * @throws IOException in case the request fails
+	 */
+	private static void request(String port, String[] pair, LocalDateTime departure) throws IOException {
+		final URL url = new URL("http://localhost:" + port + "/directions/mrt/from/" + encode(pair[0]) + "/to/" + encode(pair[1])
+				+ "/datetime/" + encode(departure.format(Constants.REQUEST_DATE_TIME_FORMATTER)));
+		final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestProperty(Constants.WARM_UP_HEADER, "true");
+		try {
+			final InputStream body = connection.getResponseCode() < 400 ? connection.getInputStream() : connection.getErrorStream();
+			if (body != null) {
+				try (InputStream in = body) {
+					final byte[] buffer = new byte[4096];
+					while (in.read(buffer) >= 0) {
+						// drained so the connection is kept alive
+					}
+				}
+			}
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Encodes path segment, spaces as %20
+	 * @param value: path segment
+	 * @return encoded path segment
+	 * @throws IOException in case utf-8 is not supported
+	 */
+	private static String encode(String value) throws IOException {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8.name()).replace("+", "%20");
+	}
+
+	/**
+	 * Pairs every station of a line with a station of the same line and of every line it interchanges with
+	 * @param snapshot: network snapshot
+	 * @return source and destination mrt station names
+	 */
+	private static List<String[]> linePairs(NetworkSnapshot snapshot) {
+		final TransitGraph graph = snapshot.getGraph();
+		final List<String[]> pairs = new ArrayList<>();
+		for (Entry<String, Set<String>> entry : snapshot.getLinesInterchange().entrySet()) {
+			final List<MrtStation> from = snapshot.getMrtLines().get(entry.getKey());
+			final List<String> lines = new ArrayList<>(entry.getValue());
+			lines.add(entry.getKey());
+			for (String line : lines) {
+				final List<MrtStation> to = snapshot.getMrtLines().get(line);
+				if (from == null || to == null || to.isEmpty()) {
+					continue;
+				}
+				// walk the other line backwards so trips of all lengths are routed
+				for (int i = 0; i < from.size(); i++) {
+					final String source = name(graph, from.get(i));
+					final String destination = name(graph, to.get(to.size() - 1 - i % to.size()));
+					if (!source.equals(destination)) {
+						pairs.add(new String[] { source, destination });
+					}
+				}
+			}
+		}
+		return pairs;
+	}
+
+	/**
+	 * Returns station name the graph resolves given platform to
+	 * @param graph: mrt graph
+	 * @param station: mrt station platform
+	 * @return lower case station name
+	 */
+	private static String name(TransitGraph graph, MrtStation station) {
+		return graph.getStationName(graph.getNodeStation(graph.getNodeIndex(station.getId())));
+	}
+
+	/**
+	 * Returns first departure from tomorrow on in every time band
+	 * @return departure date & times
+	 */
+	private static LocalDateTime[] departures() {
+		final TimeBand[] bands = TimeBand.values();
+		final LocalDateTime[] departures = new LocalDateTime[bands.length];
+		int found = 0;
+		for (LocalDateTime hour = LocalDate.now().plusDays(1).atTime(LocalTime.of(0, 30)); found < bands.length; hour = hour.plusHours(1)) {
+			final int band = TimeBand.of(hour).ordinal();
+			if (departures[band] == null) {
+				departures[band] = hour;
+				found++;
+			}
+		}
+		return departures;
+	}
+}
@@ -0,0 +1,296 @@
+package com.zendesk.direction.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.zendesk.direction.core.AvailabilityCalendar;
+import com.zendesk.direction.core.TransitGraph;
+import com.zendesk.direction.entity.MrtStation;
+
+/**
+ * Yen's k shortest loopless routes between two stations.
+ * Routes start at any platform of the source station, so the first spur search is rooted at the station itself.
+ * Routes that change lines at source or destination station or pass a station twice are not offered
+ * @author swapnil.janorkar
+ *
+ */
+public final class AlternativeRoutes {
+
+	/**
+	 * private constructor
+	 */
+	private AlternativeRoutes() {
+
+	}
+
+	/**
+	 * Finds up to given number of fastest distinct routes, ranked by travel time.
+	 * Search stops early when the time budget is spent or remaining candidates exceed the extra time bound,
+	 * the candidate set is capped to bound memory
+	 * @param graph: mrt graph
+	 * @param band: time band ordinal used as edge weights
+	 * @param source: source station index
+	 * @param destination: destination station index
+	 * @param count: maximum number of routes including fastest
+	 * @param closed: platforms closed at journey start, see {@link AvailabilityCalendar#closedNodes}, null if every platform is open
+	 * @param maxExtraRatio: alternatives may take at most this fraction longer than fastest route
+	 * @param deadline: System.nanoTime() after which no more spur searches are started
+	 * @param maxCandidates: maximum number of candidate routes kept
+	 * @return routes as node paths, fastest first, empty if there is no route
+	 */
+	public static List<int[]> find(TransitGraph graph, int band, int source, int destination, int count,
+			BitSet closed, double maxExtraRatio, long deadline, int maxCandidates) {
+		final int[] time = graph.getTravelTimes(band);
+		final boolean[] blockedNodes = new boolean[graph.getNodeCount()];
+		final boolean[] blockedEdges = new boolean[graph.getEdgeCount()];
+		final int[] sources = new int[graph.firstPlatform(source + 1) - graph.firstPlatform(source)];
+		final int[] starts = new int[sources.length];
+
+		int platforms = 0;
+		for (int k = graph.firstPlatform(source); k < graph.firstPlatform(source + 1); k++) {
+			final int node = graph.getPlatform(k);
+			if (closed == null || !closed.get(node)) {
+				sources[platforms++] = node;
+			}
+		}
+		// spur searches run one after another on the workspace of the calling thread
+		SearchWorkspace workspace = SearchWorkspace.begin(graph.getNodeCount());
+		final int first = GraphSearch.fastestPath(graph, band, sources, platforms, destination, blockedNodes, blockedEdges, closed, workspace);
+		final List<int[]> routes = new ArrayList<>(count);
+		if (first < 0) {
+			return routes;
+		}
+
+		final List<Route> accepted = new ArrayList<>(count);
+		final TreeSet<Route> candidates = new TreeSet<>();
+		final Set<Route> seen = new HashSet<>();
+		final Route fastest = new Route(unroll(workspace, first, null, 0), time, graph);
+		final int limit = fastest.cost + (int) (fastest.cost * maxExtraRatio);
+		accepted.add(fastest);
+		seen.add(fastest);
+
+		while (accepted.size() < count) {
+			final Route last = accepted.get(accepted.size() - 1);
+
+			// spur -1 is the source station itself, every other spur is a node of last route
+			for (int spur = -1; spur < last.nodes.length - 1 && System.nanoTime() < deadline; spur++) {
+				Arrays.fill(blockedNodes, false);
+				Arrays.fill(blockedEdges, false);
+
+				int startCount = 0;
+				if (spur < 0) {
+					for (int k = 0; k < platforms; k++) {
+						if (!startsAnyRoute(accepted, sources[k])) {
+							starts[startCount++] = sources[k];
+						}
+					}
+				} else {
+					for (Route route : accepted) {
+						if (route.sharesRoot(last, spur)) {
+							blockedEdges[edge(graph, route.nodes[spur], route.nodes[spur + 1])] = true;
+						}
+					}
+					final int spurStation = graph.getNodeStation(last.nodes[spur]);
+					for (int j = 0; j < spur; j++) {
+						blockedNodes[last.nodes[j]] = true;
+						final int station = graph.getNodeStation(last.nodes[j]);
+						if (station != spurStation) {
+							for (int k = graph.firstPlatform(station); k < graph.firstPlatform(station + 1); k++) {
+								blockedNodes[graph.getPlatform(k)] = true;
+							}
+						}
+					}
+					starts[startCount++] = last.nodes[spur];
+				}
+
+				if (startCount == 0) {
+					continue;
+				}
+				workspace = SearchWorkspace.begin(graph.getNodeCount());
+				final int target = GraphSearch.fastestPath(graph, band, starts, startCount, destination, blockedNodes, blockedEdges, closed, workspace);
+				if (target < 0) {
+					continue;
+				}
+
+				final int rootCost = spur < 0 ? 0 : last.arrival[spur];
+				if (rootCost + workspace.getDistance(target) > limit) {
+					continue;
+				}
+				final Route candidate = new Route(unroll(workspace, target, last.nodes, Math.max(spur, 0)), time, graph);
+				if (candidate.isSensible(graph) && seen.add(candidate)) {
+					candidates.add(candidate);
+					if (candidates.size() > maxCandidates) {
+						candidates.pollLast();
+					}
+				}
+			}
+
+			if (candidates.isEmpty() || System.nanoTime() >= deadline) {
+				break;
+			}
+			accepted.add(candidates.pollFirst());
+		}
+
+		for (Route route : accepted) {
+			routes.add(route.nodes);
+		}
+		return routes;
+	}
+
+	/**
+	 * Converts node path to list of stations
+	 * @param graph: mrt graph
+	 * @param nodes: node path
+	 * @return list of mrt stations to travel
+	 */
+	public static List<MrtStation> toStations(TransitGraph graph, int[] nodes) {
+		final MrtStation[] stations = new MrtStation[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			stations[i] = graph.getNode(nodes[i]);
+		}
+		return Arrays.asList(stations);
+	}
+
+	/**
+	 * Check if any accepted route starts at given platform
+	 * @param accepted: accepted routes
+	 * @param node: source platform node
+	 * @return true if a route starts at node else false
+	 */
+	private static boolean startsAnyRoute(List<Route> accepted, int node) {
+		for (Route route : accepted) {
+			if (route.nodes[0] == node) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns edge index between two adjacent nodes
+	 * @param graph: mrt graph
+	 * @param from: edge source node
+	 * @param to: edge target node
+	 * @return edge index
+	 */
+	private static int edge(TransitGraph graph, int from, int to) {
+		for (int edge = graph.firstEdge(from); edge < graph.firstEdge(from + 1); edge++) {
+			if (graph.getTarget(edge) == to) {
+				return edge;
+			}
+		}
+		throw new IllegalStateException("No edge from node " + from + " to node " + to);
+	}
+
+	/**
+	 * Walks predecessor links back from target node and prepends given root
+	 * @param workspace: workspace of the search that settled target node
+	 * @param target: last node of route
+	 * @param root: route whose first nodes are prepended, null for none
+	 * @param rootLength: number of root nodes to prepend
+	 * @return node path
+	 */
+	private static int[] unroll(SearchWorkspace workspace, int target, int[] root, int rootLength) {
+		int length = rootLength;
+		for (int node = target; node >= 0; node = workspace.getPredecessor(node)) {
+			length++;
+		}
+		final int[] nodes = new int[length];
+		if (root != null) {
+			System.arraycopy(root, 0, nodes, 0, rootLength);
+		}
+		for (int node = target; node >= 0; node = workspace.getPredecessor(node)) {
+			nodes[--length] = node;
+		}
+		return nodes;
+	}
+
+	/**
+	 * Node path with arrival time at every node, ordered by travel time
+	 */
+	private static final class Route implements Comparable<Route> {
+
+		private final int[] nodes;
+		private final int[] arrival;
+		private final int cost;
+
+		private Route(int[] nodes, int[] time, TransitGraph graph) {
+			this.nodes = nodes;
+			this.arrival = new int[nodes.length];
+			for (int i = 1; i < nodes.length; i++) {
+				arrival[i] = arrival[i - 1] + time[edge(graph, nodes[i - 1], nodes[i])];
+			}
+			this.cost = arrival[nodes.length - 1];
+		}
+
+		/**
+		 * Check if both routes have the same nodes up to given index
+		 * @param other: other route
+		 * @param index: last root node index
+		 * @return true if roots are equal else false
+		 */
+		private boolean sharesRoot(Route other, int index) {
+			if (nodes.length <= index + 1) {
+				return false;
+			}
+			for (int i = 0; i <= index; i++) {
+				if (nodes[i] != other.nodes[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Check that route does not change lines at either end and passes every station once
+		 * @param graph: mrt graph
+		 * @return true if route can be offered else false
+		 */
+		private boolean isSensible(TransitGraph graph) {
+			final int length = nodes.length;
+			if (length > 1 && (graph.getNodeStation(nodes[0]) == graph.getNodeStation(nodes[1])
+					|| graph.getNodeStation(nodes[length - 1]) == graph.getNodeStation(nodes[length - 2]))) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				for (int j = i + 2; j < length; j++) {
+					if (graph.getNodeStation(nodes[i]) == graph.getNodeStation(nodes[j])) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int compareTo(Route other) {
+			if (cost != other.cost) {
+				return Integer.compare(cost, other.cost);
+			}
+			if (nodes.length != other.nodes.length) {
+				return Integer.compare(nodes.length, other.nodes.length);
+			}
+			for (int i = 0; i < nodes.length; i++) {
+				if (nodes[i] != other.nodes[i]) {
+					return Integer.compare(nodes[i], other.nodes[i]);
+				}
+			}
+			return 0;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Route && Arrays.equals(nodes, ((Route) obj).nodes);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(nodes);
+		}
+	}
+}
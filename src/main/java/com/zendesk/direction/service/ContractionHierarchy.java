@@ -0,0 +1,660 @@
+package com.zendesk.direction.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.zendesk.direction.core.TransitGraph;
+import com.zendesk.direction.entity.MrtStation;
+import com.zendesk.direction.utils.TimeBand;
+
+/**
+ * Contraction hierarchies of the mrt graph, one per time band.
+ * Nodes are contracted in order of importance and shortcut edges keep travel times between the remaining nodes,
+ * a query then only follows edges towards more important nodes from both source and destination and
+ * meets in the middle. Shortcuts remember the node they bypass so routes unpack to the original stations
+ * @author swapnil.janorkar
+ *
+ */
+public final class ContractionHierarchy {
+
+	private static final int MAGIC = 0x43485431;
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Nodes settled by one witness search before it gives up and keeps the shortcut
+	 */
+	private static final int WITNESS_SETTLE_LIMIT = 200;
+
+	private final TransitGraph graph;
+	private final long fingerprint;
+	private final Band[] bands;
+
+	// query arrays are as large as the graph while a query only touches a few nodes, so they are reused per thread
+	private final ThreadLocal<Workspace> workspaces;
+
+	private ContractionHierarchy(TransitGraph graph, long fingerprint, Band[] bands) {
+		this.graph = graph;
+		this.fingerprint = fingerprint;
+		this.bands = bands;
+		this.workspaces = ThreadLocal.withInitial(() -> new Workspace(graph.getNodeCount()));
+	}
+
+	/**
+	 * Contracts given graph for every time band
+	 * @param graph: mrt graph
+	 * @return contraction hierarchy
+	 */
+	public static ContractionHierarchy build(TransitGraph graph) {
+		final Band[] bands = new Band[TimeBand.values().length];
+		for (int band = 0; band < bands.length; band++) {
+			bands[band] = new Contraction(graph, band).contract();
+		}
+		return new ContractionHierarchy(graph, fingerprint(graph), bands);
+	}
+
+	/**
+	 * Reads contraction hierarchy of given graph from file
+	 * @param graph: mrt graph
+	 * @param file: file written by {@link #save(Path)}
+	 * @return contraction hierarchy, null if file is missing or was built for another network
+	 * @throws IOException in case file can not be read
+	 */
+	public static ContractionHierarchy load(TransitGraph graph, Path file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				return null;
+			}
+			final long fingerprint = in.readLong();
+			final int bandCount = in.readInt();
+			if (fingerprint != fingerprint(graph) || bandCount != TimeBand.values().length) {
+				return null;
+			}
+			final Band[] bands = new Band[bandCount];
+			for (int band = 0; band < bandCount; band++) {
+				bands[band] = new Band(readInts(in), readInts(in), readInts(in), readInts(in), readInts(in));
+			}
+			return new ContractionHierarchy(graph, fingerprint, bands);
+		} catch (NoSuchFileException exception) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes contraction hierarchy to file, replacing it atomically
+	 * @param file: target file
+	 * @throws IOException in case file can not be written
+	 */
+	public void save(Path file) throws IOException {
+		final Path parent = file.toAbsolutePath().getParent();
+		final Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeLong(fingerprint);
+				out.writeInt(bands.length);
+				for (Band band : bands) {
+					writeInts(out, band.rank);
+					writeInts(out, band.offsets);
+					writeInts(out, band.targets);
+					writeInts(out, band.weights);
+					writeInts(out, band.middles);
+				}
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Returns fastest list of stations to travel between given stations
+	 * @param source: source station index
+	 * @param destination: destination station index
+	 * @param band: time band ordinal
+	 * @return list of mrt stations to travel, empty list if there is no route
+	 */
+	public List<MrtStation> route(int source, int destination, int band) {
+		final int[] nodes = path(source, destination, band);
+		return nodes == null ? Collections.<MrtStation>emptyList() : AlternativeRoutes.toStations(graph, nodes);
+	}
+
+	/**
+	 * Bidirectional search over upward edges from every platform of source and destination station.
+	 * Both searches stop once their smallest tentative travel time can not improve the best meeting node
+	 * @param source: source station index
+	 * @param destination: destination station index
+	 * @param band: time band ordinal
+	 * @return node path, null if there is no route
+	 */
+	int[] path(int source, int destination, int band) {
+		final Band hierarchy = bands[band];
+		final Workspace workspace = workspaces.get();
+		final Search forward = workspace.forward;
+		final Search backward = workspace.backward;
+		forward.start(graph, source);
+		backward.start(graph, destination);
+
+		int best = Integer.MAX_VALUE;
+		int meeting = -1;
+		while (forward.size > 0 || backward.size > 0) {
+			final boolean forwardTurn = backward.size == 0 || (forward.size > 0 && forward.peek() <= backward.peek());
+			final Search search = forwardTurn ? forward : backward;
+			final Search other = forwardTurn ? backward : forward;
+
+			final int priority = search.peek();
+			if (priority >= best) {
+				// smaller queue head can not improve either, both searches are done
+				break;
+			}
+			final int node = search.pop();
+			if (priority != search.dist(node)) {
+				continue;
+			}
+			final int remaining = other.dist(node);
+			if (remaining != Integer.MAX_VALUE && priority + remaining < best) {
+				best = priority + remaining;
+				meeting = node;
+			}
+			for (int edge = hierarchy.offsets[node]; edge < hierarchy.offsets[node + 1]; edge++) {
+				search.reach(hierarchy.targets[edge], priority + hierarchy.weights[edge], edge);
+			}
+		}
+		if (meeting < 0) {
+			return null;
+		}
+
+		final int[] path = workspace.path;
+		int length = 0;
+		// forward half is walked back from meeting node, unpacked in reverse and flipped afterwards
+		for (int node = meeting; forward.edge[node] >= 0; ) {
+			final int edge = forward.edge[node];
+			final int from = tail(hierarchy, edge);
+			length = unpack(hierarchy, node, from, edge, path, length);
+			node = from;
+		}
+		reverse(path, 0, length);
+		path[length++] = meeting;
+		for (int node = meeting; backward.edge[node] >= 0; ) {
+			final int edge = backward.edge[node];
+			final int from = tail(hierarchy, edge);
+			length = unpack(hierarchy, node, from, edge, path, length);
+			node = from;
+		}
+		return Arrays.copyOf(path, length);
+	}
+
+	/**
+	 * Appends nodes after from node up to and including to node of given upward edge or shortcut
+	 * @param hierarchy: contraction hierarchy of one band
+	 * @param from: node path continues from
+	 * @param to: last node to append
+	 * @param edge: upward edge between the two nodes
+	 * @param path: output path
+	 * @param length: current path length
+	 * @return new path length
+	 */
+	private static int unpack(Band hierarchy, int from, int to, int edge, int[] path, int length) {
+		final int middle = hierarchy.middles[edge];
+		if (middle < 0) {
+			path[length] = to;
+			return length + 1;
+		}
+		// middle node was contracted first, both halves are upward edges leaving it
+		length = unpack(hierarchy, from, middle, hierarchy.edgeBetween(middle, from), path, length);
+		return unpack(hierarchy, middle, to, hierarchy.edgeBetween(middle, to), path, length);
+	}
+
+	/**
+	 * Returns node an upward edge leaves
+	 * @param hierarchy: contraction hierarchy of one band
+	 * @param edge: upward edge index
+	 * @return source node of edge
+	 */
+	private static int tail(Band hierarchy, int edge) {
+		int low = 0;
+		int high = hierarchy.offsets.length - 2;
+		while (low < high) {
+			final int mid = (low + high + 1) >>> 1;
+			if (hierarchy.offsets[mid] <= edge) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	private static void reverse(int[] array, int from, int to) {
+		for (int i = from, j = to - 1; i < j; i++, j--) {
+			final int swap = array[i];
+			array[i] = array[j];
+			array[j] = swap;
+		}
+	}
+
+	/**
+	 * Returns graph the hierarchy was built for
+	 * @return mrt graph
+	 */
+	public TransitGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Returns number of shortcut edges over all time bands
+	 * @return shortcut count
+	 */
+	public int getShortcutCount() {
+		int shortcuts = 0;
+		for (Band band : bands) {
+			for (int middle : band.middles) {
+				if (middle >= 0) {
+					shortcuts++;
+				}
+			}
+		}
+		return shortcuts;
+	}
+
+	/**
+	 * Hash of node codes, adjacency and travel times, a stored hierarchy is only used for the network it was built from
+	 * @param graph: mrt graph
+	 * @return graph fingerprint
+	 */
+	static long fingerprint(TransitGraph graph) {
+		long hash = 0xcbf29ce484222325L;
+		for (int node = 0; node < graph.getNodeCount(); node++) {
+			hash = mix(hash, graph.getNode(node).getId().hashCode());
+			for (int edge = graph.firstEdge(node); edge < graph.firstEdge(node + 1); edge++) {
+				hash = mix(hash, graph.getTarget(edge));
+				for (TimeBand band : TimeBand.values()) {
+					hash = mix(hash, graph.getTravelTime(edge, band.ordinal()));
+				}
+			}
+		}
+		return hash;
+	}
+
+	private static long mix(long hash, int value) {
+		return (hash ^ value) * 0x100000001b3L;
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		out.writeInt(values.length);
+		for (int value : values) {
+			out.writeInt(value);
+		}
+	}
+
+	private static int[] readInts(DataInputStream in) throws IOException {
+		final int[] values = new int[in.readInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = in.readInt();
+		}
+		return values;
+	}
+
+	/**
+	 * Query arrays of one thread
+	 */
+	private static final class Workspace {
+
+		private final Search forward;
+		private final Search backward;
+		private final int[] path;
+
+		private Workspace(int nodeCount) {
+			this.forward = new Search(nodeCount);
+			this.backward = new Search(nodeCount);
+			this.path = new int[nodeCount];
+		}
+	}
+
+	/**
+	 * One direction of a bidirectional query. Travel times are only valid for nodes stamped with the current
+	 * query, so starting a query does not clear arrays as large as the graph
+	 */
+	private static final class Search {
+
+		private final int[] dist;
+		private final int[] edge;
+		private final int[] stamp;
+		private long[] heap = new long[16];
+		private int size;
+		private int current;
+
+		private Search(int nodeCount) {
+			this.dist = new int[nodeCount];
+			this.edge = new int[nodeCount];
+			this.stamp = new int[nodeCount];
+		}
+
+		/**
+		 * Starts a new query from every platform of given station
+		 * @param graph: mrt graph
+		 * @param station: station index
+		 */
+		private void start(TransitGraph graph, int station) {
+			if (current == Integer.MAX_VALUE) {
+				Arrays.fill(stamp, 0);
+				current = 0;
+			}
+			current++;
+			size = 0;
+			for (int k = graph.firstPlatform(station); k < graph.firstPlatform(station + 1); k++) {
+				reach(graph.getPlatform(k), 0, -1);
+			}
+		}
+
+		/**
+		 * Returns tentative travel time of given node in current query
+		 * @param node: node index
+		 * @return travel time, Integer.MAX_VALUE if node was not reached
+		 */
+		private int dist(int node) {
+			return stamp[node] == current ? dist[node] : Integer.MAX_VALUE;
+		}
+
+		/**
+		 * Lowers travel time of given node and queues it
+		 * @param node: node index
+		 * @param distance: travel time
+		 * @param via: upward edge node was reached by, -1 for start nodes
+		 */
+		private void reach(int node, int distance, int via) {
+			if (distance < dist(node)) {
+				stamp[node] = current;
+				dist[node] = distance;
+				edge[node] = via;
+				if (size == heap.length) {
+					heap = Arrays.copyOf(heap, size * 2);
+				}
+				size = GraphSearch.push(heap, size, distance, node);
+			}
+		}
+
+		private int peek() {
+			return (int) (heap[0] >>> 32);
+		}
+
+		private int pop() {
+			final int node = (int) heap[0];
+			size = GraphSearch.pop(heap, size);
+			return node;
+		}
+	}
+
+	/**
+	 * Upward edges of one time band in CSR arrays, middle is the bypassed node of a shortcut or -1
+	 */
+	private static final class Band {
+
+		private final int[] rank;
+		private final int[] offsets;
+		private final int[] targets;
+		private final int[] weights;
+		private final int[] middles;
+
+		private Band(int[] rank, int[] offsets, int[] targets, int[] weights, int[] middles) {
+			this.rank = rank;
+			this.offsets = offsets;
+			this.targets = targets;
+			this.weights = weights;
+			this.middles = middles;
+		}
+
+		/**
+		 * Returns upward edge from lower ranked node to given node
+		 * @param from: lower ranked node
+		 * @param to: higher ranked node
+		 * @return edge index
+		 */
+		private int edgeBetween(int from, int to) {
+			for (int edge = offsets[from]; edge < offsets[from + 1]; edge++) {
+				if (targets[edge] == to) {
+					return edge;
+				}
+			}
+			throw new IllegalStateException("No upward edge from node " + from + " to node " + to);
+		}
+	}
+
+	/**
+	 * Node contraction of one time band. Nodes are picked by edge difference plus contracted neighbours,
+	 * priorities are updated lazily when a node reaches the head of the queue
+	 */
+	private static final class Contraction {
+
+		private final int nodeCount;
+		private final int[][] neighbours;
+		private final int[][] weights;
+		private final int[][] middles;
+		private final int[] degree;
+		private final boolean[] contracted;
+		private final int[] contractedNeighbours;
+
+		private final int[] witnessDist;
+		private final int[] witnessStamp;
+		private long[] witnessHeap;
+		private int stamp;
+
+		private Contraction(TransitGraph graph, int band) {
+			this.nodeCount = graph.getNodeCount();
+			this.neighbours = new int[nodeCount][];
+			this.weights = new int[nodeCount][];
+			this.middles = new int[nodeCount][];
+			this.degree = new int[nodeCount];
+			this.contracted = new boolean[nodeCount];
+			this.contractedNeighbours = new int[nodeCount];
+			this.witnessDist = new int[nodeCount];
+			this.witnessStamp = new int[nodeCount];
+			this.witnessHeap = new long[16];
+
+			for (int node = 0; node < nodeCount; node++) {
+				final int edges = graph.firstEdge(node + 1) - graph.firstEdge(node);
+				neighbours[node] = new int[Math.max(edges, 4)];
+				weights[node] = new int[neighbours[node].length];
+				middles[node] = new int[neighbours[node].length];
+				for (int edge = graph.firstEdge(node); edge < graph.firstEdge(node + 1); edge++) {
+					addEdge(node, graph.getTarget(edge), graph.getTravelTime(edge, band), -1);
+				}
+			}
+		}
+
+		/**
+		 * Contracts every node and collects edges to higher ranked nodes
+		 * @return upward graph
+		 */
+		private Band contract() {
+			final int[] rank = new int[nodeCount];
+			final int[][] upNeighbours = new int[nodeCount][];
+			final int[][] upWeights = new int[nodeCount][];
+			final int[][] upMiddles = new int[nodeCount][];
+			long[] queue = new long[nodeCount + 1];
+			int size = 0;
+			for (int node = 0; node < nodeCount; node++) {
+				size = GraphSearch.push(queue, size, priority(node), node);
+			}
+
+			int next = 0;
+			while (size > 0) {
+				final int node = (int) queue[0];
+				size = GraphSearch.pop(queue, size);
+				final int current = priority(node);
+				if (size > 0 && current > (int) (queue[0] >> 32)) {
+					size = GraphSearch.push(queue, size, current, node);
+					continue;
+				}
+
+				upNeighbours[node] = Arrays.copyOf(neighbours[node], degree[node]);
+				upWeights[node] = Arrays.copyOf(weights[node], degree[node]);
+				upMiddles[node] = Arrays.copyOf(middles[node], degree[node]);
+				rank[node] = next++;
+				contract(node, true);
+				contracted[node] = true;
+				for (int i = 0; i < degree[node]; i++) {
+					removeEdge(neighbours[node][i], node);
+					contractedNeighbours[neighbours[node][i]]++;
+				}
+			}
+
+			final int[] offsets = new int[nodeCount + 1];
+			for (int node = 0; node < nodeCount; node++) {
+				offsets[node + 1] = offsets[node] + upNeighbours[node].length;
+			}
+			final int[] targets = new int[offsets[nodeCount]];
+			final int[] edgeWeights = new int[offsets[nodeCount]];
+			final int[] edgeMiddles = new int[offsets[nodeCount]];
+			for (int node = 0; node < nodeCount; node++) {
+				System.arraycopy(upNeighbours[node], 0, targets, offsets[node], upNeighbours[node].length);
+				System.arraycopy(upWeights[node], 0, edgeWeights, offsets[node], upWeights[node].length);
+				System.arraycopy(upMiddles[node], 0, edgeMiddles, offsets[node], upMiddles[node].length);
+			}
+			return new Band(rank, offsets, targets, edgeWeights, edgeMiddles);
+		}
+
+		/**
+		 * Importance of a node, shortcuts its contraction adds minus edges it removes plus contracted neighbours
+		 * so contraction spreads evenly over the graph
+		 * @param node: node index
+		 * @return priority, lower is contracted first
+		 */
+		private int priority(int node) {
+			return contract(node, false) - degree[node] + contractedNeighbours[node];
+		}
+
+		/**
+		 * Finds shortcuts needed to remove given node, a shortcut is needed between two neighbours
+		 * when no witness path avoiding the node is as fast as the path through it
+		 * @param node: node index
+		 * @param apply: add shortcuts to the graph, otherwise only count them
+		 * @return number of shortcuts
+		 */
+		private int contract(int node, boolean apply) {
+			int shortcuts = 0;
+			final int count = degree[node];
+			final int[] around = Arrays.copyOf(neighbours[node], count);
+			final int[] cost = Arrays.copyOf(weights[node], count);
+			for (int i = 0; i < count; i++) {
+				int limit = 0;
+				for (int j = i + 1; j < count; j++) {
+					limit = Math.max(limit, cost[i] + cost[j]);
+				}
+				if (limit == 0) {
+					continue;
+				}
+				witnessSearch(around[i], node, limit);
+				for (int j = i + 1; j < count; j++) {
+					final int via = cost[i] + cost[j];
+					final int witness = witnessStamp[around[j]] == stamp ? witnessDist[around[j]] : Integer.MAX_VALUE;
+					if (witness > via) {
+						shortcuts++;
+						if (apply) {
+							addEdge(around[i], around[j], via, node);
+							addEdge(around[j], around[i], via, node);
+						}
+					}
+				}
+			}
+			return shortcuts;
+		}
+
+		/**
+		 * Dijkstra from given node over uncontracted nodes avoiding the contracted one, bounded by
+		 * travel time and settled node count. Giving up early only adds shortcuts, never loses routes
+		 * @param source: start node
+		 * @param avoid: node being contracted
+		 * @param limit: largest travel time of interest
+		 */
+		private void witnessSearch(int source, int avoid, int limit) {
+			stamp++;
+			int size = 0;
+			witnessStamp[source] = stamp;
+			witnessDist[source] = 0;
+			size = GraphSearch.push(witnessHeap, size, 0, source);
+			int settled = 0;
+			while (size > 0 && settled < WITNESS_SETTLE_LIMIT) {
+				final int distance = (int) (witnessHeap[0] >>> 32);
+				final int node = (int) witnessHeap[0];
+				size = GraphSearch.pop(witnessHeap, size);
+				if (distance > witnessDist[node]) {
+					continue;
+				}
+				if (distance > limit) {
+					break;
+				}
+				settled++;
+				for (int i = 0; i < degree[node]; i++) {
+					final int next = neighbours[node][i];
+					if (next == avoid) {
+						continue;
+					}
+					final int candidate = distance + weights[node][i];
+					if (witnessStamp[next] != stamp || candidate < witnessDist[next]) {
+						witnessStamp[next] = stamp;
+						witnessDist[next] = candidate;
+						if (size == witnessHeap.length) {
+							witnessHeap = Arrays.copyOf(witnessHeap, size * 2);
+						}
+						size = GraphSearch.push(witnessHeap, size, candidate, next);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Adds edge or lowers weight of existing edge between two uncontracted nodes
+		 * @param from: edge source node
+		 * @param to: edge target node
+		 * @param weight: travel time
+		 * @param middle: bypassed node of a shortcut, -1 for original edges
+		 */
+		private void addEdge(int from, int to, int weight, int middle) {
+			for (int i = 0; i < degree[from]; i++) {
+				if (neighbours[from][i] == to) {
+					if (weight < weights[from][i]) {
+						weights[from][i] = weight;
+						middles[from][i] = middle;
+					}
+					return;
+				}
+			}
+			if (degree[from] == neighbours[from].length) {
+				neighbours[from] = Arrays.copyOf(neighbours[from], degree[from] * 2);
+				weights[from] = Arrays.copyOf(weights[from], degree[from] * 2);
+				middles[from] = Arrays.copyOf(middles[from], degree[from] * 2);
+			}
+			neighbours[from][degree[from]] = to;
+			weights[from][degree[from]] = weight;
+			middles[from][degree[from]++] = middle;
+		}
+
+		/**
+		 * Removes edge to a contracted node, remaining edges only lead to uncontracted nodes
+		 * @param from: edge source node
+		 * @param to: contracted node
+		 */
+		private void removeEdge(int from, int to) {
+			for (int i = 0; i < degree[from]; i++) {
+				if (neighbours[from][i] == to) {
+					final int last = --degree[from];
+					neighbours[from][i] = neighbours[from][last];
+					weights[from][i] = weights[from][last];
+					middles[from][i] = middles[from][last];
+					return;
+				}
+			}
+		}
+	}
+}
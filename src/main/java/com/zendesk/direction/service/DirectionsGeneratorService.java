@@ -0,0 +1,454 @@
+package com.zendesk.direction.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zendesk.direction.core.AvailabilityCalendar;
+import com.zendesk.direction.core.LineGraph;
+import com.zendesk.direction.core.MrtDetailsLoader;
+import com.zendesk.direction.core.NetworkReloadedEvent;
+import com.zendesk.direction.core.NetworkSnapshot;
+import com.zendesk.direction.core.TransitGraph;
+import com.zendesk.direction.entity.MrtStation;
+import com.zendesk.direction.metrics.DirectionMetrics;
+import com.zendesk.direction.utils.DirectionUtils;
+import com.zendesk.direction.utils.TimeBand;
+
+/**
+ * Finds fastest route between mrt stations on the integer indexed mrt graph
+ * @author swapnil.janorkar
+ *
+ */
+@Service
+public class DirectionsGeneratorService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DirectionsGeneratorService.class);
+
+	@Autowired
+	private MrtDetailsLoader mrtDetails;
+
+	@Autowired
+	private DirectionMetrics metrics;
+
+	@Value("${directions.routing.route-table:false}")
+	private boolean routeTableEnabled;
+
+	@Value("${directions.routing.contraction-hierarchy:false}")
+	private boolean contractionHierarchyEnabled;
+
+	@Value("${directions.routing.contraction-hierarchy-file:${java.io.tmpdir}/transit-directions.ch}")
+	private String contractionHierarchyFile;
+
+	@Value("${directions.routing.line-graph:false}")
+	private boolean lineGraphEnabled;
+
+	@Value("${directions.routing.line-graph-extra-interchanges:1}")
+	private int lineGraphExtraInterchanges;
+
+	@Value("${directions.alternatives.max-extra-time-ratio:0.5}")
+	private double alternativesMaxExtraRatio;
+
+	@Value("${directions.alternatives.time-budget-ms:20}")
+	private long alternativesTimeBudget;
+
+	@Value("${directions.alternatives.max-candidates:50}")
+	private int alternativesMaxCandidates;
+
+	@Value("${directions.pareto.max-interchanges:4}")
+	private int paretoMaxInterchanges;
+
+	@Value("${directions.routing.route-tree-cache-size:1000}")
+	private long routeTreeCacheSize;
+
+	private volatile RouteTable routeTable;
+
+	private volatile ContractionHierarchy contractionHierarchy;
+
+	private volatile LineGraph lineGraph;
+
+	private volatile ParetoRoutes paretoRoutes;
+
+	private volatile RouteTrees routeTrees;
+
+	/**
+	 * Precomputes all pairs route table, contraction hierarchy and line graph when enabled, creates open network route tree cache
+	 */
+	@PostConstruct
+	public void init() {
+		if (routeTreeCacheSize > 0) {
+			routeTrees = new RouteTrees(mrtDetails.getGraph(), routeTreeCacheSize);
+		}
+		if (routeTableEnabled) {
+			routeTable = buildRouteTable(mrtDetails.getGraph());
+		}
+		if (contractionHierarchyEnabled) {
+			contractionHierarchy = loadContractionHierarchy(mrtDetails.getGraph());
+		}
+		if (lineGraphEnabled) {
+			lineGraph = buildLineGraph(mrtDetails.getGraph());
+		}
+	}
+
+	/**
+	 * Rebuilds route table, contraction hierarchy and line graph for reloaded network, searches run on the new graph until they are ready
+	 * @param event: network reload event
+	 */
+	@EventListener
+	public void onNetworkReloaded(NetworkReloadedEvent event) {
+		if (routeTreeCacheSize > 0) {
+			routeTrees = new RouteTrees(event.getSnapshot().getGraph(), routeTreeCacheSize);
+		}
+		if (routeTableEnabled) {
+			routeTable = buildRouteTable(event.getSnapshot().getGraph());
+		}
+		if (contractionHierarchyEnabled) {
+			contractionHierarchy = loadContractionHierarchy(event.getSnapshot().getGraph());
+		}
+		if (lineGraphEnabled) {
+			lineGraph = buildLineGraph(event.getSnapshot().getGraph());
+		}
+	}
+
+	/**
+	 * Builds line graph of given graph
+	 * @param graph: mrt graph
+	 * @return line graph
+	 */
+	private LineGraph buildLineGraph(TransitGraph graph) {
+		final long start = System.nanoTime();
+		final LineGraph built = new LineGraph(graph);
+		LOGGER.info("Line graph of {} lines built in {} ms", graph.getLineCount(), (System.nanoTime() - start) / 1_000_000);
+		return built;
+	}
+
+	/**
+	 * Reads contraction hierarchy of given graph from configured file, or builds and writes it when the file
+	 * is missing, unreadable or was built for another network
+	 * @param graph: mrt graph
+	 * @return contraction hierarchy
+	 */
+	private ContractionHierarchy loadContractionHierarchy(TransitGraph graph) {
+		final Path file = Paths.get(contractionHierarchyFile);
+		final long start = System.nanoTime();
+		try {
+			final ContractionHierarchy stored = ContractionHierarchy.load(graph, file);
+			if (stored != null) {
+				LOGGER.info("Contraction hierarchy loaded from {} in {} ms", file, (System.nanoTime() - start) / 1_000_000);
+				return stored;
+			}
+		} catch (IOException | RuntimeException exception) {
+			LOGGER.warn("Contraction hierarchy {} could not be read, rebuilding it", file, exception);
+		}
+
+		final ContractionHierarchy built = ContractionHierarchy.build(graph);
+		LOGGER.info("Contraction hierarchy built in {} ms, {} shortcuts", (System.nanoTime() - start) / 1_000_000,
+				built.getShortcutCount());
+		try {
+			built.save(file);
+		} catch (IOException exception) {
+			LOGGER.warn("Contraction hierarchy could not be written to {}", file, exception);
+		}
+		return built;
+	}
+
+	/**
+	 * Builds route table for given graph and logs build time, memory footprint and lookup latency
+	 * @param graph: mrt graph
+	 * @return route table
+	 */
+	private RouteTable buildRouteTable(TransitGraph graph) {
+		final long start = System.nanoTime();
+		final RouteTable table = new RouteTable(graph);
+		final long buildNanos = System.nanoTime() - start;
+
+		final long lookupStart = System.nanoTime();
+		int lookups = 0;
+		for (int band = 0; band < TimeBand.values().length; band++) {
+			for (int from = 0; from < graph.getStationCount(); from++) {
+				for (int to = 0; to < graph.getStationCount(); to++) {
+					table.route(from, to, band);
+					lookups++;
+				}
+			}
+		}
+		final long lookupNanos = System.nanoTime() - lookupStart;
+
+		LOGGER.info("Route table built in {} ms, {} KB, {} ns average lookup over {} lookups",
+				buildNanos / 1_000_000, table.getMemoryFootprint() / 1024, lookupNanos / lookups, lookups);
+		return table;
+	}
+
+	/**
+	 * Returns fastest list of stations to travel for given source and destination mrt station names
+	 * starting now
+	 * @param from: source mrt station name
+	 * @param to: destination mrt station name
+	 * @return list of mrt stations to travel, empty list if there is no route
+	 */
+	public List<MrtStation> buildDirections(String from, String to) {
+		return buildDirections(from, to, LocalDateTime.now());
+	}
+
+	/**
+	 * Returns fastest list of stations to travel for given source and destination mrt station names.
+	 * Served from the route table or contraction hierarchy when enabled and the route passes no platform closed at given
+	 * date & time, otherwise A* search avoiding closed platforms, edge weights are travel times of the time band
+	 * of given date & time and the heuristic is hop count to destination times cheapest edge of that band.
+	 * With the line graph enabled the search only expands stations of lines the route can use
+	 * @param from: source mrt station name
+	 * @param to: destination mrt station name
+	 * @param dateTime: date & time to start journey
+	 * @return list of mrt stations to travel, empty list if there is no route
+	 */
+	public List<MrtStation> buildDirections(String from, String to, LocalDateTime dateTime) {
+		LOGGER.debug("Building directions from {} to {}", from, to);
+
+		final NetworkSnapshot snapshot = mrtDetails.getSnapshot();
+		final TransitGraph graph = snapshot.getGraph();
+		final AvailabilityCalendar calendar = snapshot.getAvailability();
+		final int source = graph.getStationIndex(from);
+		final int destination = graph.getStationIndex(to);
+		if (source < 0 || destination < 0) {
+			return Collections.emptyList();
+		}
+
+		final long start = System.nanoTime();
+		try {
+			final int band = TimeBand.of(dateTime).ordinal();
+			final BitSet closed = calendar.closedNodes(AvailabilityCalendar.minute(dateTime));
+			// precomputed routes know nothing of closures, but stay fastest when they pass no closed platform
+			final RouteTable table = routeTable;
+			if (table != null && table.getGraph() == graph) {
+				final List<MrtStation> route = table.route(source, destination, band);
+				if (isOpen(graph, route, closed)) {
+					return route;
+				}
+			} else {
+				final ContractionHierarchy hierarchy = contractionHierarchy;
+				if (hierarchy != null && hierarchy.getGraph() == graph) {
+					final List<MrtStation> route = hierarchy.route(source, destination, band);
+					if (isOpen(graph, route, closed)) {
+						return route;
+					}
+				}
+			}
+
+			final SearchWorkspace workspace = SearchWorkspace.begin(graph.getNodeCount());
+			final LineGraph lines = lineGraph;
+			final int target = lines != null && lines.getGraph() == graph
+					? GraphSearch.fastestPath(lines, band, source, destination, closed.isEmpty() ? null : closed,
+							lineGraphExtraInterchanges, workspace)
+					: GraphSearch.fastestPath(graph, band, source, destination, closed.isEmpty() ? null : closed, workspace);
+			if (target < 0) {
+				return Collections.emptyList();
+			}
+			return GraphSearch.unroll(graph, workspace, target);
+		} finally {
+			metrics.recordSearch(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Check if given route passes no closed platform
+	 * @param graph: mrt graph
+	 * @param route: list of mrt stations to travel, empty if there is no route
+	 * @param closed: platforms closed at journey start
+	 * @return true if every platform of a non empty route is open
+	 */
+	private static boolean isOpen(TransitGraph graph, List<MrtStation> route, BitSet closed) {
+		if (closed.isEmpty()) {
+			return true;
+		}
+		if (route.isEmpty()) {
+			return false;
+		}
+		for (MrtStation station : route) {
+			if (closed.get(graph.getNodeIndex(station.getId()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns fastest routes from given station to every station, single search shared by all
+	 * destinations of the same source station, time band and closure period. Open network trees are cached
+	 * and repaired for closed platforms, so only routes passing a closed platform are searched again
+	 * @param calendar: availability calendar of the mrt graph station indices belong to
+	 * @param source: source station index
+	 * @param dateTime: date & time to start journey
+	 * @return route tree
+	 */
+	public RouteTree buildRouteTree(AvailabilityCalendar calendar, int source, LocalDateTime dateTime) {
+		final long start = System.nanoTime();
+		final TransitGraph graph = calendar.getGraph();
+		final int band = TimeBand.of(dateTime).ordinal();
+		final BitSet closed = calendar.closedNodes(AvailabilityCalendar.minute(dateTime));
+		final RouteTrees trees = routeTrees;
+		final RouteTree tree;
+		if (trees != null && trees.graph == graph) {
+			tree = trees.cache.get(source * TimeBand.values().length + band, key -> new RouteTree(graph, source, band)).without(closed);
+		} else {
+			tree = new RouteTree(graph, source, band, closed.isEmpty() ? null : closed);
+		}
+		metrics.recordRouteTree(System.nanoTime() - start);
+		return tree;
+	}
+
+	/**
+	 * Returns the route a single query between given stations is served with from the route table
+	 * @param calendar: availability calendar of the mrt graph station indices belong to
+	 * @param source: source station index
+	 * @param destination: destination station index
+	 * @param dateTime: date & time to start journey
+	 * @return list of mrt stations to travel, empty list if there is no route, null if the route table is disabled,
+	 * built for another graph or its route passes a platform closed at given date & time
+	 */
+	public List<MrtStation> buildTableRoute(AvailabilityCalendar calendar, int source, int destination, LocalDateTime dateTime) {
+		final TransitGraph graph = calendar.getGraph();
+		final RouteTable table = routeTable;
+		if (table == null || table.getGraph() != graph) {
+			return null;
+		}
+		final List<MrtStation> route = table.route(source, destination, TimeBand.of(dateTime).ordinal());
+		return isOpen(graph, route, calendar.closedNodes(AvailabilityCalendar.minute(dateTime))) ? route : null;
+	}
+
+	/**
+	 * Fills travel times and stations to travel from given station to every given destination, no instructions
+	 * are generated. With the route table enabled each pair is served from it like a single query when its route
+	 * passes no closed platform, remaining destinations share a single route tree search. Travel times are the
+	 * fastest either way
+	 * @param calendar: availability calendar of the mrt graph station indices belong to
+	 * @param source: source station index
+	 * @param dateTime: date & time to start journey
+	 * @param destinations: destination station indices
+	 * @param minutes: output, travel time to each destination, -1 if not reachable
+	 * @param stops: output, stations to travel to each destination, -1 if not reachable
+	 */
+	public void buildTravelTimes(AvailabilityCalendar calendar, int source, LocalDateTime dateTime, int[] destinations, int[] minutes, int[] stops) {
+		RouteTree tree = null;
+		for (int i = 0; i < destinations.length; i++) {
+			final List<MrtStation> route = buildTableRoute(calendar, source, destinations[i], dateTime);
+			if (route != null) {
+				minutes[i] = route.isEmpty() ? -1 : DirectionUtils.calculateTravelTime(route, dateTime);
+				stops[i] = route.isEmpty() ? -1 : DirectionUtils.calculateStationsToTravel(route);
+				continue;
+			}
+			if (tree == null) {
+				tree = buildRouteTree(calendar, source, dateTime);
+			}
+			minutes[i] = tree.getTravelTime(destinations[i]);
+			stops[i] = tree.getStops(destinations[i]);
+		}
+	}
+
+	/**
+	 * Returns fastest routes between given mrt station names ranked by travel time, fastest first.
+	 * Alternatives are bounded by configured extra travel time, search time budget and candidate limit,
+	 * fewer routes are returned when a bound is hit
+	 * @param from: source mrt station name
+	 * @param to: destination mrt station name
+	 * @param dateTime: date & time to start journey
+	 * @param count: maximum number of routes including fastest
+	 * @return lists of mrt stations to travel, empty list if there is no route
+	 */
+	public List<List<MrtStation>> buildAlternatives(String from, String to, LocalDateTime dateTime, int count) {
+		final NetworkSnapshot snapshot = mrtDetails.getSnapshot();
+		final TransitGraph graph = snapshot.getGraph();
+		final int source = graph.getStationIndex(from);
+		final int destination = graph.getStationIndex(to);
+		if (source < 0 || destination < 0) {
+			return Collections.emptyList();
+		}
+
+		final long start = System.nanoTime();
+		final List<int[]> paths = AlternativeRoutes.find(graph, TimeBand.of(dateTime).ordinal(), source, destination, count,
+				closedNodes(snapshot, dateTime), alternativesMaxExtraRatio, start + TimeUnit.MILLISECONDS.toNanos(alternativesTimeBudget), alternativesMaxCandidates);
+		final List<List<MrtStation>> routes = new ArrayList<>(paths.size());
+		for (int[] path : paths) {
+			routes.add(AlternativeRoutes.toStations(graph, path));
+		}
+		metrics.recordAlternatives(System.nanoTime() - start);
+		return routes;
+	}
+
+	/**
+	 * Returns routes between given mrt station names that trade travel time against interchanges, fastest first.
+	 * Every following route has fewer interchanges and takes longer, routes beaten on both are left out
+	 * @param from: source mrt station name
+	 * @param to: destination mrt station name
+	 * @param dateTime: date & time to start journey
+	 * @return lists of mrt stations to travel, empty list if there is no route
+	 */
+	public List<List<MrtStation>> buildParetoRoutes(String from, String to, LocalDateTime dateTime) {
+		final NetworkSnapshot snapshot = mrtDetails.getSnapshot();
+		final TransitGraph graph = snapshot.getGraph();
+		final int source = graph.getStationIndex(from);
+		final int destination = graph.getStationIndex(to);
+		if (source < 0 || destination < 0) {
+			return Collections.emptyList();
+		}
+
+		final long start = System.nanoTime();
+		ParetoRoutes search = paretoRoutes;
+		if (search == null || search.getGraph() != graph) {
+			// tables are a linear pass over the graph, rebuilt lazily after a network reload
+			search = new ParetoRoutes(graph);
+			paretoRoutes = search;
+		}
+		final List<ParetoRoutes.Journey> journeys = search.find(source, destination, TimeBand.of(dateTime).ordinal(), paretoMaxInterchanges,
+				closedNodes(snapshot, dateTime));
+		final List<List<MrtStation>> routes = new ArrayList<>(journeys.size());
+		for (int i = journeys.size() - 1; i >= 0; i--) {
+			routes.add(AlternativeRoutes.toStations(graph, journeys.get(i).getNodes()));
+		}
+		metrics.recordPareto(System.nanoTime() - start);
+		return routes;
+	}
+
+	/**
+	 * Returns platforms closed at given date & time
+	 * @param snapshot: network snapshot
+	 * @param dateTime: date & time to start journey
+	 * @return closed node indices, null if every platform is open
+	 */
+	private static BitSet closedNodes(NetworkSnapshot snapshot, LocalDateTime dateTime) {
+		final BitSet closed = snapshot.getAvailability().closedNodes(AvailabilityCalendar.minute(dateTime));
+		return closed.isEmpty() ? null : closed;
+	}
+
+	/**
+	 * Open network route trees per source station and time band, together with graph their station index keys belong to
+	 */
+	private static final class RouteTrees {
+
+		private final TransitGraph graph;
+		private final Cache<Integer, RouteTree> cache;
+
+		private RouteTrees(TransitGraph graph, long maximumSize) {
+			this.graph = graph;
+			this.cache = Caffeine.newBuilder()
+					.maximumSize(maximumSize)
+					.build();
+		}
+	}
+}
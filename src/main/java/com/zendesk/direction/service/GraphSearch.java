@@ -0,0 +1,458 @@
+package com.zendesk.direction.service;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import com.zendesk.direction.core.AvailabilityCalendar;
+import com.zendesk.direction.core.LineGraph;
+import com.zendesk.direction.core.TransitGraph;
+import com.zendesk.direction.entity.MrtStation;
+
+/**
+ * Shortest path searches over the integer indexed mrt graph.
+ * Searches start from every platform of the source station with zero cost. Platforms in the closed set of the
+ * journey start are neither started from nor entered
+ * @author swapnil.janorkar
+ *
+ */
+public final class GraphSearch {
+
+	// states of nodes while repairing a shortest path tree
+	private static final byte KEPT = 1;
+	private static final byte CUT = 2;
+
+	/**
+	 * private constructor
+	 */
+	private GraphSearch() {
+
+	}
+
+	/**
+	 * A* search from source station to destination station avoiding closed platforms, on the reusable workspace of
+	 * the calling thread so the search allocates nothing
+	 * @param graph: mrt graph
+	 * @param band: time band ordinal used as edge weights
+	 * @param source: source station index
+	 * @param destination: destination station index
+	 * @param closed: platforms closed at journey start, see {@link AvailabilityCalendar#closedNodes}, null if every platform is open
+	 * @param workspace: cleared workspace, see {@link SearchWorkspace#begin}, holds travel time and predecessor of settled nodes
+	 * @return node of destination station reached first, -1 if destination is not reachable
+	 */
+	public static int fastestPath(TransitGraph graph, int band, int source, int destination, BitSet closed, SearchWorkspace workspace) {
+		final int[] time = graph.getTravelTimes(band);
+
+		for (int k = graph.firstPlatform(source); k < graph.firstPlatform(source + 1); k++) {
+			final int node = graph.getPlatform(k);
+			if (closed != null && closed.get(node)) {
+				continue;
+			}
+			workspace.relax(node, 0, -1, graph.getLowerBound(node, destination, band));
+		}
+
+		while (!workspace.isEmpty()) {
+			final int node = workspace.poll();
+			if (graph.getNodeStation(node) == destination) {
+				return node;
+			}
+			final int distance = workspace.getDistance(node);
+			for (int edge = graph.firstEdge(node); edge < graph.firstEdge(node + 1); edge++) {
+				final int next = graph.getTarget(edge);
+				final int candidate = distance + time[edge];
+				if (candidate < workspace.getDistance(next) && !workspace.isSettled(next) && (closed == null || !closed.get(next))) {
+					workspace.relax(next, candidate, node, candidate + graph.getLowerBound(next, destination, band));
+				}
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Two level A* search from source station to destination station avoiding closed platforms, see {@link LineGraph}.
+	 * The first pass searches only lines of the line sequences with fewest interchanges. Its travel time bounds the
+	 * lines the fastest route can use at all, when the first pass searched all of them its route is final, otherwise
+	 * a second pass searches exactly these lines and drops nodes too far from the destination line to beat that time.
+	 * Searches the whole network when the first pass finds no route or the line graph keeps no travel time bounds
+	 * @param lineGraph: line graph of the mrt graph
+	 * @param band: time band ordinal used as edge weights
+	 * @param source: source station index
+	 * @param destination: destination station index
+	 * @param closed: platforms closed at journey start, see {@link AvailabilityCalendar#closedNodes}, null if every platform is open
+	 * @param extraTransfers: interchanges over the minimum the first pass allows
+	 * @param workspace: cleared workspace of the calling thread, see {@link SearchWorkspace#begin}, cleared again before
+	 * another pass, holds travel time and predecessor of settled nodes of the last pass
+	 * @return node of destination station reached first, -1 if destination is not reachable
+	 */
+	public static int fastestPath(LineGraph lineGraph, int band, int source, int destination, BitSet closed, int extraTransfers,
+			SearchWorkspace workspace) {
+		final TransitGraph graph = lineGraph.getGraph();
+		if (!lineGraph.hasTimeBounds()) {
+			return fastestPath(graph, band, source, destination, closed, workspace);
+		}
+
+		final BitSet fewest = lineGraph.candidateLines(source, destination, extraTransfers);
+		final int target = linePath(lineGraph, band, source, destination, closed, fewest, Integer.MAX_VALUE, workspace);
+		if (target < 0) {
+			return fastestPath(graph, band, source, destination, closed, SearchWorkspace.begin(graph.getNodeCount()));
+		}
+
+		final int maxTime = workspace.getDistance(target);
+		final BitSet lines = lineGraph.candidateLines(source, destination, band, maxTime);
+		for (int line = lines.nextSetBit(0); line >= 0; line = lines.nextSetBit(line + 1)) {
+			if (!fewest.get(line)) {
+				return linePath(lineGraph, band, source, destination, closed, lines, maxTime, SearchWorkspace.begin(graph.getNodeCount()));
+			}
+		}
+		return target;
+	}
+
+	/**
+	 * A* search from source station to destination station over platforms of given lines, avoiding closed platforms
+	 * and nodes whose travel time plus travel time from their line to the destination exceeds given time
+	 * @param lineGraph: line graph of the mrt graph
+	 * @param band: time band ordinal used as edge weights
+	 * @param source: source station index
+	 * @param destination: destination station index
+	 * @param closed: platforms closed at journey start, null if every platform is open
+	 * @param lines: line indices the route may use
+	 * @param maxTime: travel time the route must not exceed, Integer.MAX_VALUE for none
+	 * @param workspace: cleared workspace, holds travel time and predecessor of settled nodes
+	 * @return node of destination station reached first, -1 if destination is not reachable on given lines
+	 */
+	private static int linePath(LineGraph lineGraph, int band, int source, int destination, BitSet closed, BitSet lines, int maxTime,
+			SearchWorkspace workspace) {
+		final TransitGraph graph = lineGraph.getGraph();
+		final int[] time = graph.getTravelTimes(band);
+
+		for (int k = graph.firstPlatform(source); k < graph.firstPlatform(source + 1); k++) {
+			final int node = graph.getPlatform(k);
+			if ((closed != null && closed.get(node)) || !lines.get(graph.getNodeLine(node))) {
+				continue;
+			}
+			workspace.relax(node, 0, -1, graph.getLowerBound(node, destination, band));
+		}
+
+		while (!workspace.isEmpty()) {
+			final int node = workspace.poll();
+			if (graph.getNodeStation(node) == destination) {
+				return node;
+			}
+			final int distance = workspace.getDistance(node);
+			for (int edge = graph.firstEdge(node); edge < graph.firstEdge(node + 1); edge++) {
+				final int next = graph.getTarget(edge);
+				final int line = graph.getNodeLine(next);
+				final int candidate = distance + time[edge];
+				if (candidate < workspace.getDistance(next) && !workspace.isSettled(next) && (closed == null || !closed.get(next))
+						&& lines.get(line) && (long) candidate + lineGraph.getLowerBound(destination, line, band) <= maxTime) {
+					workspace.relax(next, candidate, node, candidate + graph.getLowerBound(next, destination, band));
+				}
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * A* search from given start nodes to destination station, avoiding blocked nodes and edges and closed platforms
+	 * @param graph: mrt graph
+	 * @param band: time band ordinal used as edge weights
+	 * @param starts: start nodes, searched with zero cost
+	 * @param startCount: number of start nodes
+	 * @param destination: destination station index
+	 * @param blockedNodes: nodes the route must not pass
+	 * @param blockedEdges: edges the route must not take
+	 * @param closed: platforms closed at journey start, see {@link AvailabilityCalendar#closedNodes}, null if every platform is open
+	 * @param workspace: cleared workspace, see {@link SearchWorkspace#begin}, holds travel time and predecessor of settled nodes
+	 * @return node of destination station reached first, -1 if destination is not reachable
+	 */
+	public static int fastestPath(TransitGraph graph, int band, int[] starts, int startCount, int destination,
+			boolean[] blockedNodes, boolean[] blockedEdges, BitSet closed, SearchWorkspace workspace) {
+		final int[] time = graph.getTravelTimes(band);
+
+		for (int k = 0; k < startCount; k++) {
+			workspace.relax(starts[k], 0, -1, graph.getLowerBound(starts[k], destination, band));
+		}
+
+		while (!workspace.isEmpty()) {
+			final int node = workspace.poll();
+			if (graph.getNodeStation(node) == destination) {
+				return node;
+			}
+			final int distance = workspace.getDistance(node);
+			for (int edge = graph.firstEdge(node); edge < graph.firstEdge(node + 1); edge++) {
+				final int next = graph.getTarget(edge);
+				if (blockedEdges[edge] || blockedNodes[next] || (closed != null && closed.get(next))) {
+					continue;
+				}
+				final int candidate = distance + time[edge];
+				if (candidate < workspace.getDistance(next) && !workspace.isSettled(next)) {
+					workspace.relax(next, candidate, node, candidate + graph.getLowerBound(next, destination, band));
+				}
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Dijkstra search from source station to every node.
+	 * Travel times are symmetric, so the tree also gives the next hop from every node towards source
+	 * @param graph: mrt graph
+	 * @param band: time band ordinal used as edge weights
+	 * @param source: source station index
+	 * @param dist: output, travel time of each node, Integer.MAX_VALUE if not reachable
+	 * @param pred: output, predecessor of each node, -1 for source nodes
+	 * @param stops: output, stations travelled to reach each node, may be null
+	 */
+	public static void shortestPathTree(TransitGraph graph, int band, int source, int[] dist, int[] pred, int[] stops) {
+		shortestPathTree(graph, band, source, null, dist, pred, stops);
+	}
+
+	/**
+	 * Dijkstra search from source station to every node, avoiding closed platforms
+	 * @param graph: mrt graph
+	 * @param band: time band ordinal used as edge weights
+	 * @param source: source station index
+	 * @param closed: platforms closed at journey start, see {@link AvailabilityCalendar#closedNodes}, null if every platform is open
+	 * @param dist: output, travel time of each node, Integer.MAX_VALUE if not reachable
+	 * @param pred: output, predecessor of each node, -1 for source nodes
+	 * @param stops: output, stations travelled to reach each node, may be null
+	 */
+	public static void shortestPathTree(TransitGraph graph, int band, int source, BitSet closed,
+			int[] dist, int[] pred, int[] stops) {
+		final int[] time = graph.getTravelTimes(band);
+		long[] heap = new long[graph.getNodeCount() + 1];
+		int size = 0;
+		Arrays.fill(dist, Integer.MAX_VALUE);
+		Arrays.fill(pred, -1);
+
+		for (int k = graph.firstPlatform(source); k < graph.firstPlatform(source + 1); k++) {
+			final int node = graph.getPlatform(k);
+			if (closed != null && closed.get(node)) {
+				continue;
+			}
+			dist[node] = 0;
+			if (stops != null) {
+				stops[node] = 0;
+			}
+			size = push(heap, size, 0, node);
+		}
+
+		while (size > 0) {
+			final long entry = heap[0];
+			final int node = (int) entry;
+			size = pop(heap, size);
+			if ((int) (entry >>> 32) > dist[node]) {
+				continue;
+			}
+			for (int edge = graph.firstEdge(node); edge < graph.firstEdge(node + 1); edge++) {
+				final int next = graph.getTarget(edge);
+				final int candidate = dist[node] + time[edge];
+				if (candidate < dist[next] && (closed == null || !closed.get(next))) {
+					dist[next] = candidate;
+					pred[next] = node;
+					if (stops != null) {
+						stops[next] = stops[node] + (graph.getEdgeLine(edge) == TransitGraph.INTERCHANGE ? 0 : 1);
+					}
+					if (size == heap.length) {
+						heap = Arrays.copyOf(heap, heap.length * 2);
+					}
+					size = push(heap, size, candidate, next);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Repairs a shortest path tree for platforms closed since it was searched. Nodes whose tree path passes a
+	 * closed platform are cut off and searched again from the kept nodes around them, the rest of the tree is kept
+	 * as closing platforms only makes routes longer. Travel times are symmetric, so edges out of a cut off node
+	 * give its kept neighbours
+	 * @param graph: mrt graph
+	 * @param band: time band ordinal the tree was searched for
+	 * @param closed: platforms closed at journey start, must include platforms closed when the tree was searched
+	 * @param dist: input and output, travel time of each node, Integer.MAX_VALUE if not reachable
+	 * @param pred: input and output, predecessor of each node, -1 for source nodes
+	 * @param stops: input and output, stations travelled to reach each node
+	 * @return number of nodes searched again
+	 */
+	public static int repairPathTree(TransitGraph graph, int band, BitSet closed, int[] dist, int[] pred, int[] stops) {
+		final int nodeCount = graph.getNodeCount();
+		final int[] time = graph.getTravelTimes(band);
+
+		// kept or cut off, resolved once per node by walking up the tree
+		final byte[] state = new byte[nodeCount];
+		final int[] path = new int[nodeCount];
+		final int[] cut = new int[nodeCount];
+		int cutCount = 0;
+		for (int node = 0; node < nodeCount; node++) {
+			int length = 0;
+			int current = node;
+			while (current >= 0 && state[current] == 0 && dist[current] != Integer.MAX_VALUE && !closed.get(current)) {
+				path[length++] = current;
+				current = pred[current];
+			}
+			final byte result;
+			if (current < 0) {
+				result = KEPT;
+			} else if (state[current] != 0) {
+				result = state[current];
+			} else {
+				// unreachable nodes stay unreachable, closed ones are cut off with their subtree
+				result = dist[current] == Integer.MAX_VALUE ? KEPT : CUT;
+				state[current] = result;
+				if (result == CUT) {
+					cut[cutCount++] = current;
+				}
+			}
+			for (int i = 0; i < length; i++) {
+				state[path[i]] = result;
+				if (result == CUT) {
+					cut[cutCount++] = path[i];
+				}
+			}
+		}
+		for (int i = 0; i < cutCount; i++) {
+			dist[cut[i]] = Integer.MAX_VALUE;
+			pred[cut[i]] = -1;
+		}
+
+		long[] heap = new long[cutCount + 1];
+		int size = 0;
+		for (int i = 0; i < cutCount; i++) {
+			final int node = cut[i];
+			if (closed.get(node)) {
+				continue;
+			}
+			for (int edge = graph.firstEdge(node); edge < graph.firstEdge(node + 1); edge++) {
+				final int kept = graph.getTarget(edge);
+				if (state[kept] == KEPT && dist[kept] != Integer.MAX_VALUE && dist[kept] + time[edge] < dist[node]) {
+					dist[node] = dist[kept] + time[edge];
+					pred[node] = kept;
+					stops[node] = stops[kept] + (graph.getEdgeLine(edge) == TransitGraph.INTERCHANGE ? 0 : 1);
+				}
+			}
+			if (dist[node] != Integer.MAX_VALUE) {
+				if (size == heap.length) {
+					heap = Arrays.copyOf(heap, heap.length * 2);
+				}
+				size = push(heap, size, dist[node], node);
+			}
+		}
+
+		while (size > 0) {
+			final long entry = heap[0];
+			final int node = (int) entry;
+			size = pop(heap, size);
+			if ((int) (entry >>> 32) > dist[node]) {
+				continue;
+			}
+			for (int edge = graph.firstEdge(node); edge < graph.firstEdge(node + 1); edge++) {
+				final int next = graph.getTarget(edge);
+				final int candidate = dist[node] + time[edge];
+				if (candidate < dist[next] && !closed.get(next)) {
+					dist[next] = candidate;
+					pred[next] = node;
+					stops[next] = stops[node] + (graph.getEdgeLine(edge) == TransitGraph.INTERCHANGE ? 0 : 1);
+					if (size == heap.length) {
+						heap = Arrays.copyOf(heap, heap.length * 2);
+					}
+					size = push(heap, size, candidate, next);
+				}
+			}
+		}
+		return cutCount;
+	}
+
+	/**
+	 * Walks predecessor links back from target node
+	 * @param graph: mrt graph
+	 * @param pred: predecessor of each node, -1 for source nodes
+	 * @param target: last node of route
+	 * @return list of mrt stations from source to target
+	 */
+	public static List<MrtStation> unroll(TransitGraph graph, int[] pred, int target) {
+		int length = 0;
+		for (int node = target; node >= 0; node = pred[node]) {
+			length++;
+		}
+		final MrtStation[] route = new MrtStation[length];
+		for (int node = target; node >= 0; node = pred[node]) {
+			route[--length] = graph.getNode(node);
+		}
+		return Arrays.asList(route);
+	}
+
+	/**
+	 * Walks predecessor links of a workspace back from target node
+	 * @param graph: mrt graph
+	 * @param workspace: workspace of the search that settled target
+	 * @param target: last node of route
+	 * @return list of mrt stations from source to target
+	 */
+	public static List<MrtStation> unroll(TransitGraph graph, SearchWorkspace workspace, int target) {
+		int length = 0;
+		for (int node = target; node >= 0; node = workspace.getPredecessor(node)) {
+			length++;
+		}
+		final MrtStation[] route = new MrtStation[length];
+		for (int node = target; node >= 0; node = workspace.getPredecessor(node)) {
+			route[--length] = graph.getNode(node);
+		}
+		return Arrays.asList(route);
+	}
+
+	/**
+	 * Pushes node with given priority on binary min heap, priority and node are packed in one long
+	 * @param heap: heap array
+	 * @param size: current heap size
+	 * @param priority: node priority
+	 * @param node: node index
+	 * @return new heap size
+	 */
+	static int push(long[] heap, int size, int priority, int node) {
+		final long entry = ((long) priority << 32) | node;
+		int i = size;
+		while (i > 0) {
+			final int parent = (i - 1) >>> 1;
+			if (heap[parent] <= entry) {
+				break;
+			}
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = entry;
+		return size + 1;
+	}
+
+	/**
+	 * Removes smallest entry of binary min heap
+	 * @param heap: heap array
+	 * @param size: current heap size
+	 * @return new heap size
+	 */
+	static int pop(long[] heap, int size) {
+		final long last = heap[--size];
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && heap[child + 1] < heap[child]) {
+				child++;
+			}
+			if (heap[child] >= last) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		if (size > 0) {
+			heap[i] = last;
+		}
+		return size;
+	}
+}
@@ -0,0 +1,329 @@
+package com.zendesk.direction.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import com.zendesk.direction.core.AvailabilityCalendar;
+import com.zendesk.direction.core.TransitGraph;
+import com.zendesk.direction.utils.DirectionUtils;
+import com.zendesk.direction.utils.TimeBand;
+
+/**
+ * Round based (RAPTOR) search for routes that trade travel time against interchanges.
+ * Round k finds earliest arrivals using k line rides, each round scans the stops of lines touched in the
+ * previous round in travel order and then applies interchange times at the stations reached, so the search
+ * is a sequence of array scans instead of heap operations.
+ * Built once per graph, the ride and interchange time tables are shared by all queries
+ * @author swapnil.janorkar
+ *
+ */
+public final class ParetoRoutes {
+
+	private static final int UNREACHED = Integer.MAX_VALUE;
+
+	private final TransitGraph graph;
+	private final int lineCount;
+	private final int[] position;
+	private final int[][] rideTime;
+	private final int[][] interchangeTime;
+
+	/**
+	 * Builds ride and interchange time tables of every time band for given graph
+	 * @param graph: mrt graph
+	 */
+	public ParetoRoutes(TransitGraph graph) {
+		final TimeBand[] bands = TimeBand.values();
+		this.graph = graph;
+		this.lineCount = graph.getLineCount();
+		this.position = new int[graph.getNodeCount()];
+		this.rideTime = new int[bands.length][graph.getNodeCount()];
+		this.interchangeTime = new int[bands.length][lineCount * lineCount];
+
+		for (int line = 0; line < lineCount; line++) {
+			for (int p = graph.firstLineStop(line); p < graph.firstLineStop(line + 1); p++) {
+				position[graph.getLineStop(p)] = p;
+				if (p + 1 < graph.firstLineStop(line + 1)) {
+					final int edge = edge(graph, graph.getLineStop(p), graph.getLineStop(p + 1));
+					for (TimeBand band : bands) {
+						rideTime[band.ordinal()][p] = graph.getTravelTime(edge, band.ordinal());
+					}
+				}
+			}
+		}
+		for (TimeBand band : bands) {
+			for (int from = 0; from < lineCount; from++) {
+				for (int to = 0; to < lineCount; to++) {
+					interchangeTime[band.ordinal()][from * lineCount + to] =
+							DirectionUtils.getTravelTime(graph.getLine(from), graph.getLine(to), band);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the routes that are not beaten on both travel time and number of interchanges.
+	 * A route is kept only if it is strictly faster than every route with fewer interchanges,
+	 * rides end at platforms closed at the journey start minute
+	 * @param source: source station index
+	 * @param destination: destination station index
+	 * @param band: time band ordinal used as ride and interchange times
+	 * @param maxInterchanges: maximum number of interchanges of a route
+	 * @param closed: platforms closed at journey start, see {@link AvailabilityCalendar#closedNodes}, null if every platform is open
+	 * @return routes ordered by number of interchanges, fewest first and fastest last, empty if there is no route
+	 */
+	public List<Journey> find(int source, int destination, int band, int maxInterchanges, BitSet closed) {
+		final int nodeCount = graph.getNodeCount();
+		final int[] ride = rideTime[band];
+		final int[] interchange = interchangeTime[band];
+		final int[] bestArrival = new int[nodeCount];
+		final int[] bestReady = new int[nodeCount];
+		final int[] markFirst = new int[lineCount];
+		final int[] markLast = new int[lineCount];
+		final int[] improved = new int[nodeCount];
+		Arrays.fill(bestArrival, UNREACHED);
+		Arrays.fill(bestReady, UNREACHED);
+		Arrays.fill(markFirst, Integer.MAX_VALUE);
+		Arrays.fill(markLast, -1);
+
+		// readyFrom[k] is the node whose interchange made a platform boardable after k rides,
+		// boarded[k] the platform the ride of round k + 1 arriving at a node started from
+		final List<int[]> readyFrom = new ArrayList<>();
+		final List<int[]> boarded = new ArrayList<>();
+		int[] readyTime = newRound(nodeCount);
+		int[] readyNode = new int[nodeCount];
+		for (int k = graph.firstPlatform(source); k < graph.firstPlatform(source + 1); k++) {
+			final int node = graph.getPlatform(k);
+			if (closed != null && closed.get(node)) {
+				continue;
+			}
+			readyTime[node] = 0;
+			readyNode[node] = -1;
+			bestReady[node] = 0;
+			mark(markFirst, markLast, graph.getNodeLine(node), position[node]);
+		}
+		readyFrom.add(readyNode);
+
+		final List<Journey> journeys = new ArrayList<>();
+		int bestDestination = UNREACHED;
+		for (int round = 1; round <= maxInterchanges + 1; round++) {
+			final int[] previous = readyTime;
+			final int[] arrival = newRound(nodeCount);
+			final int[] board = new int[nodeCount];
+			int improvedCount = 0;
+
+			for (int line = 0; line < lineCount; line++) {
+				if (markLast[line] < 0) {
+					continue;
+				}
+				final int last = graph.firstLineStop(line + 1) - 1;
+				int time = UNREACHED;
+				int boardedAt = -1;
+				for (int p = markFirst[line]; p <= last; p++) {
+					final int node = graph.getLineStop(p);
+					if (closed != null && closed.get(node)) {
+						time = UNREACHED;
+						boardedAt = -1;
+						continue;
+					}
+					if (boardedAt >= 0) {
+						time += ride[p - 1];
+						if (time < bestArrival[node] && time < bestDestination) {
+							if (arrival[node] == UNREACHED) {
+								improved[improvedCount++] = node;
+							}
+							bestArrival[node] = time;
+							arrival[node] = time;
+							board[node] = boardedAt;
+						}
+					}
+					if (previous[node] < time) {
+						time = previous[node];
+						boardedAt = node;
+					}
+				}
+
+				final int first = graph.firstLineStop(line);
+				time = UNREACHED;
+				boardedAt = -1;
+				for (int p = markLast[line]; p >= first; p--) {
+					final int node = graph.getLineStop(p);
+					if (closed != null && closed.get(node)) {
+						time = UNREACHED;
+						boardedAt = -1;
+						continue;
+					}
+					if (boardedAt >= 0) {
+						time += ride[p];
+						if (time < bestArrival[node] && time < bestDestination) {
+							if (arrival[node] == UNREACHED) {
+								improved[improvedCount++] = node;
+							}
+							bestArrival[node] = time;
+							arrival[node] = time;
+							board[node] = boardedAt;
+						}
+					}
+					if (previous[node] < time) {
+						time = previous[node];
+						boardedAt = node;
+					}
+				}
+				markFirst[line] = Integer.MAX_VALUE;
+				markLast[line] = -1;
+			}
+			boarded.add(board);
+			if (improvedCount == 0) {
+				break;
+			}
+
+			int target = -1;
+			for (int k = graph.firstPlatform(destination); k < graph.firstPlatform(destination + 1); k++) {
+				final int node = graph.getPlatform(k);
+				if (arrival[node] < bestDestination) {
+					bestDestination = arrival[node];
+					target = node;
+				}
+			}
+			if (target >= 0) {
+				journeys.add(new Journey(unroll(target, round, readyFrom, boarded), round - 1, bestDestination));
+			}
+
+			// interchanges, riding on with the same line is already covered by the line scan
+			readyTime = newRound(nodeCount);
+			readyNode = new int[nodeCount];
+			boolean marked = false;
+			for (int i = 0; i < improvedCount; i++) {
+				final int node = improved[i];
+				final int station = graph.getNodeStation(node);
+				if (station == destination) {
+					continue;
+				}
+				for (int k = graph.firstPlatform(station); k < graph.firstPlatform(station + 1); k++) {
+					final int platform = graph.getPlatform(k);
+					if (platform == node || (closed != null && closed.get(platform))) {
+						continue;
+					}
+					final int time = arrival[node] + interchange[graph.getNodeLine(node) * lineCount + graph.getNodeLine(platform)];
+					if (time < bestReady[platform] && time < bestDestination) {
+						bestReady[platform] = time;
+						readyTime[platform] = time;
+						readyNode[platform] = node;
+						mark(markFirst, markLast, graph.getNodeLine(platform), position[platform]);
+						marked = true;
+					}
+				}
+			}
+			readyFrom.add(readyNode);
+			if (!marked) {
+				break;
+			}
+		}
+		return journeys;
+	}
+
+	/**
+	 * Returns graph the tables were built for
+	 * @return mrt graph
+	 */
+	public TransitGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Allocates arrival times of one round
+	 * @param nodeCount: number of nodes
+	 * @return arrival times, all unreached
+	 */
+	private static int[] newRound(int nodeCount) {
+		final int[] times = new int[nodeCount];
+		Arrays.fill(times, UNREACHED);
+		return times;
+	}
+
+	/**
+	 * Widens scanned stop range of given line to include given stop
+	 * @param markFirst: first stop position to scan of every line
+	 * @param markLast: last stop position to scan of every line
+	 * @param line: line index
+	 * @param stop: stop position
+	 */
+	private static void mark(int[] markFirst, int[] markLast, int line, int stop) {
+		markFirst[line] = Math.min(markFirst[line], stop);
+		markLast[line] = Math.max(markLast[line], stop);
+	}
+
+	/**
+	 * Walks rides and interchanges back from target node to a source platform
+	 * @param target: destination platform
+	 * @param rounds: number of rides
+	 * @param readyFrom: per round, node whose interchange made each platform boardable
+	 * @param boarded: per round, platform the ride arriving at each node started
+	 * @return node path
+	 */
+	private int[] unroll(int target, int rounds, List<int[]> readyFrom, List<int[]> boarded) {
+		int length = 0;
+		for (int node = target, round = rounds; round > 0; round--) {
+			final int start = boarded.get(round - 1)[node];
+			length += Math.abs(position[node] - position[start]) + 1;
+			node = readyFrom.get(round - 1)[start];
+		}
+
+		final int[] nodes = new int[length];
+		for (int node = target, round = rounds; round > 0; round--) {
+			final int start = boarded.get(round - 1)[node];
+			final int step = position[start] < position[node] ? -1 : 1;
+			for (int p = position[node]; p != position[start]; p += step) {
+				nodes[--length] = graph.getLineStop(p);
+			}
+			nodes[--length] = start;
+			node = readyFrom.get(round - 1)[start];
+		}
+		return nodes;
+	}
+
+	/**
+	 * Returns edge index between two adjacent nodes
+	 * @param graph: mrt graph
+	 * @param from: edge source node
+	 * @param to: edge target node
+	 * @return edge index
+	 */
+	private static int edge(TransitGraph graph, int from, int to) {
+		for (int edge = graph.firstEdge(from); edge < graph.firstEdge(from + 1); edge++) {
+			if (graph.getTarget(edge) == to) {
+				return edge;
+			}
+		}
+		throw new IllegalStateException("No edge from node " + from + " to node " + to);
+	}
+
+	/**
+	 * Route found by the round based search
+	 */
+	public static final class Journey {
+
+		private final int[] nodes;
+		private final int interchanges;
+		private final int travelTime;
+
+		private Journey(int[] nodes, int interchanges, int travelTime) {
+			this.nodes = nodes;
+			this.interchanges = interchanges;
+			this.travelTime = travelTime;
+		}
+
+		public int[] getNodes() {
+			return nodes;
+		}
+
+		public int getInterchanges() {
+			return interchanges;
+		}
+
+		public int getTravelTime() {
+			return travelTime;
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package com.zendesk.direction.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.zendesk.direction.core.TransitGraph;
+import com.zendesk.direction.entity.MrtStation;
+import com.zendesk.direction.utils.TimeBand;
+
+/**
+ * All pairs fastest routes of the mrt graph, one table per time band.
+ * For every node and destination station the table keeps travel time and next node to take,
+ * so a route is served by unrolling next hops without any search
+ * @author swapnil.janorkar
+ *
+ */
+public final class RouteTable {
+
+	private static final short UNREACHABLE = Short.MAX_VALUE;
+
+	private final TransitGraph graph;
+	private final int stationCount;
+	private final short[][] nextHop;
+	private final short[][] minutes;
+
+	/**
+	 * Builds route tables for every time band of given graph, trees of all stations and bands are searched in parallel
+	 * @param graph: mrt graph
+	 */
+	public RouteTable(TransitGraph graph) {
+		if (graph.getNodeCount() >= Short.MAX_VALUE) {
+			throw new IllegalArgumentException("Route table supports up to " + Short.MAX_VALUE + " nodes");
+		}
+		final int nodeCount = graph.getNodeCount();
+		final int bands = TimeBand.values().length;
+		this.graph = graph;
+		this.stationCount = graph.getStationCount();
+		this.nextHop = new short[bands][nodeCount * stationCount];
+		this.minutes = new short[bands][nodeCount * stationCount];
+
+		// every tree writes its own column, so trees need no locking
+		IntStream.range(0, bands * stationCount).parallel().forEach(task -> {
+			final int band = task / stationCount;
+			final int station = task % stationCount;
+			final int[] dist = new int[nodeCount];
+			final int[] pred = new int[nodeCount];
+			// travel times are symmetric, tree rooted at destination gives next hop towards it
+			GraphSearch.shortestPathTree(graph, band, station, dist, pred, null);
+			for (int node = 0; node < nodeCount; node++) {
+				final int index = node * stationCount + station;
+				nextHop[band][index] = (short) pred[node];
+				minutes[band][index] = dist[node] >= UNREACHABLE ? UNREACHABLE : (short) dist[node];
+			}
+		});
+	}
+
+	/**
+	 * Returns fastest list of stations to travel between given stations
+	 * @param source: source station index
+	 * @param destination: destination station index
+	 * @param band: time band ordinal
+	 * @return list of mrt stations to travel, empty list if there is no route
+	 */
+	public List<MrtStation> route(int source, int destination, int band) {
+		final short[] next = nextHop[band];
+		final short[] time = minutes[band];
+
+		int start = -1;
+		int best = UNREACHABLE;
+		for (int k = graph.firstPlatform(source); k < graph.firstPlatform(source + 1); k++) {
+			final int node = graph.getPlatform(k);
+			if (time[node * stationCount + destination] < best) {
+				best = time[node * stationCount + destination];
+				start = node;
+			}
+		}
+		if (start < 0) {
+			return Collections.emptyList();
+		}
+
+		int length = 1;
+		for (int node = start; next[node * stationCount + destination] >= 0; node = next[node * stationCount + destination]) {
+			length++;
+		}
+		final MrtStation[] route = new MrtStation[length];
+		int node = start;
+		for (int i = 0; i < length; i++) {
+			route[i] = graph.getNode(node);
+			node = next[node * stationCount + destination];
+		}
+		return Arrays.asList(route);
+	}
+
+	/**
+	 * Returns graph the table was built for
+	 * @return mrt graph
+	 */
+	public TransitGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Returns size of next hop and travel time arrays in bytes
+	 * @return memory footprint in bytes
+	 */
+	public long getMemoryFootprint() {
+		long bytes = 0;
+		for (int band = 0; band < nextHop.length; band++) {
+			bytes += (long) nextHop[band].length * Short.BYTES + (long) minutes[band].length * Short.BYTES;
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,131 @@
+package com.zendesk.direction.service;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import com.zendesk.direction.core.AvailabilityCalendar;
+import com.zendesk.direction.core.TransitGraph;
+import com.zendesk.direction.entity.MrtStation;
+
+/**
+ * Fastest routes from one source station to every station for one time band.
+ * Built by a single search, or repaired from the open network tree, shared by all queries leaving the same station
+ * in the same band and closure period
+ * @author swapnil.janorkar
+ *
+ */
+public final class RouteTree {
+
+	private final TransitGraph graph;
+	private final int band;
+	private final int[] dist;
+	private final int[] pred;
+	private final int[] stops;
+
+	/**
+	 * Searches fastest routes from given station to every node
+	 * @param graph: mrt graph
+	 * @param source: source station index
+	 * @param band: time band ordinal
+	 */
+	public RouteTree(TransitGraph graph, int source, int band) {
+		this(graph, source, band, null);
+	}
+
+	/**
+	 * Searches fastest routes from given station to every node, avoiding closed platforms
+	 * @param graph: mrt graph
+	 * @param source: source station index
+	 * @param band: time band ordinal
+	 * @param closed: platforms closed at journey start, see {@link AvailabilityCalendar#closedNodes}, null if every platform is open
+	 */
+	public RouteTree(TransitGraph graph, int source, int band, BitSet closed) {
+		this.graph = graph;
+		this.band = band;
+		this.dist = new int[graph.getNodeCount()];
+		this.pred = new int[graph.getNodeCount()];
+		this.stops = new int[graph.getNodeCount()];
+		GraphSearch.shortestPathTree(graph, band, source, closed, dist, pred, stops);
+	}
+
+	/**
+	 * Copies searched routes of a tree
+	 * @param tree: route tree to copy
+	 */
+	private RouteTree(RouteTree tree) {
+		this.graph = tree.graph;
+		this.band = tree.band;
+		this.dist = tree.dist.clone();
+		this.pred = tree.pred.clone();
+		this.stops = tree.stops.clone();
+	}
+
+	/**
+	 * Returns fastest routes of this tree avoiding given closed platforms. Only routes passing a closed platform
+	 * are searched again, so an open network tree is searched once and repaired for every closure period
+	 * @param closed: platforms closed at journey start, must include platforms this tree was searched without
+	 * @return this tree if no platform is closed, else repaired copy
+	 */
+	public RouteTree without(BitSet closed) {
+		if (closed == null || closed.isEmpty()) {
+			return this;
+		}
+		final RouteTree repaired = new RouteTree(this);
+		GraphSearch.repairPathTree(graph, band, closed, repaired.dist, repaired.pred, repaired.stops);
+		return repaired;
+	}
+
+	/**
+	 * Returns platform of given station reached first
+	 * @param station: destination station index
+	 * @return node index, -1 if station is not reachable
+	 */
+	public int closestPlatform(int station) {
+		int best = -1;
+		for (int k = graph.firstPlatform(station); k < graph.firstPlatform(station + 1); k++) {
+			final int node = graph.getPlatform(k);
+			if (dist[node] != Integer.MAX_VALUE && (best < 0 || dist[node] < dist[best])) {
+				best = node;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns travel time to given station
+	 * @param station: destination station index
+	 * @return travel time in minutes, -1 if station is not reachable
+	 */
+	public int getTravelTime(int station) {
+		final int node = closestPlatform(station);
+		return node < 0 ? -1 : dist[node];
+	}
+
+	/**
+	 * Returns number of stations travelled on fastest route to given station
+	 * @param station: destination station index
+	 * @return number of stations, -1 if station is not reachable
+	 */
+	public int getStops(int station) {
+		final int node = closestPlatform(station);
+		return node < 0 ? -1 : stops[node];
+	}
+
+	/**
+	 * Returns fastest list of stations to travel to given station
+	 * @param station: destination station index
+	 * @return list of mrt stations to travel, empty list if there is no route
+	 */
+	public List<MrtStation> route(int station) {
+		final int node = closestPlatform(station);
+		if (node < 0) {
+			return Collections.emptyList();
+		}
+		return GraphSearch.unroll(graph, pred, node);
+	}
+
+	public TransitGraph getGraph() {
+		return graph;
+	}
+}
@@ -0,0 +1,206 @@
+package com.zendesk.direction.service;
+
+import java.util.Arrays;
+
+/**
+ * Reusable per thread state of a route search: travel time and predecessor per node and an indexed binary min heap
+ * with decrease key. Arrays are allocated once per thread and grown with the network, a search starts by bumping the
+ * epoch instead of clearing them, so node state is valid only when its stamp equals the current epoch
+ * @author swapnil.janorkar
+ *
+ */
+public final class SearchWorkspace {
+
+	private static final ThreadLocal<SearchWorkspace> CURRENT = ThreadLocal.withInitial(SearchWorkspace::new);
+
+	private int epoch;
+
+	// per node, valid while stamp equals epoch
+	private int[] stamp = new int[0];
+	private int[] dist = new int[0];
+	private int[] pred = new int[0];
+
+	// position of node in heap, -1 once settled
+	private int[] position = new int[0];
+
+	// heap of nodes ordered by priority, then node index
+	private int[] heap = new int[0];
+	private int[] priority = new int[0];
+	private int size;
+
+	/**
+	 * private constructor, workspaces are only handed out per thread
+	 */
+	private SearchWorkspace() {
+
+	}
+
+	/**
+	 * Returns cleared workspace of calling thread for a search over given number of nodes.
+	 * The workspace is reused by the next search on the thread, results must be read before
+	 * @param nodeCount: number of nodes of the searched graph
+	 * @return workspace with every node unvisited and empty heap
+	 */
+	public static SearchWorkspace begin(int nodeCount) {
+		final SearchWorkspace workspace = CURRENT.get();
+		workspace.reset(nodeCount);
+		return workspace;
+	}
+
+	/**
+	 * Grows arrays to given number of nodes and starts a new epoch
+	 * @param nodeCount: number of nodes of the searched graph
+	 */
+	private void reset(int nodeCount) {
+		if (stamp.length < nodeCount) {
+			stamp = new int[nodeCount];
+			dist = new int[nodeCount];
+			pred = new int[nodeCount];
+			position = new int[nodeCount];
+			heap = new int[nodeCount];
+			priority = new int[nodeCount];
+			epoch = 0;
+		}
+		if (++epoch == Integer.MAX_VALUE) {
+			Arrays.fill(stamp, 0);
+			epoch = 1;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Returns travel time of given node found so far
+	 * @param node: node index
+	 * @return travel time, Integer.MAX_VALUE if node is not visited
+	 */
+	public int getDistance(int node) {
+		return stamp[node] == epoch ? dist[node] : Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Returns predecessor of given node on the route found so far
+	 * @param node: visited node index
+	 * @return predecessor node index, -1 for start nodes
+	 */
+	public int getPredecessor(int node) {
+		return pred[node];
+	}
+
+	/**
+	 * Check if route to given node is final
+	 * @param node: node index
+	 * @return true if node was polled from the heap
+	 */
+	public boolean isSettled(int node) {
+		return stamp[node] == epoch && position[node] < 0;
+	}
+
+	/**
+	 * Check if heap is empty
+	 * @return true if no node is waiting
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Sets travel time and predecessor of given unsettled node and inserts it in the heap or moves it up
+	 * @param node: node index
+	 * @param distance: travel time, must be below current travel time of node
+	 * @param predecessor: predecessor node index, -1 for start nodes
+	 * @param key: heap priority, travel time plus lower bound to destination
+	 */
+	public void relax(int node, int distance, int predecessor, int key) {
+		dist[node] = distance;
+		pred[node] = predecessor;
+		if (stamp[node] != epoch) {
+			stamp[node] = epoch;
+			position[node] = size;
+			heap[size] = node;
+			priority[size] = key;
+			size++;
+		}
+		siftUp(position[node], key);
+	}
+
+	/**
+	 * Removes node of lowest priority from the heap and settles it
+	 * @return settled node index
+	 */
+	public int poll() {
+		final int node = heap[0];
+		position[node] = -1;
+		size--;
+		if (size > 0) {
+			final int last = heap[size];
+			final int key = priority[size];
+			heap[0] = last;
+			priority[0] = key;
+			position[last] = 0;
+			siftDown(0, key);
+		}
+		return node;
+	}
+
+	/**
+	 * Heap order, lower priority first and lower node index among equal priorities
+	 * @param key: priority of first entry
+	 * @param node: node of first entry
+	 * @param otherKey: priority of second entry
+	 * @param otherNode: node of second entry
+	 * @return true if first entry comes before second
+	 */
+	private static boolean before(int key, int node, int otherKey, int otherNode) {
+		return key < otherKey || (key == otherKey && node < otherNode);
+	}
+
+	/**
+	 * Moves heap entry at given position towards the root until its parent has lower priority
+	 * @param index: heap position
+	 * @param key: priority of the entry
+	 */
+	private void siftUp(int index, int key) {
+		final int node = heap[index];
+		while (index > 0) {
+			final int parent = (index - 1) >>> 1;
+			if (!before(key, node, priority[parent], heap[parent])) {
+				break;
+			}
+			heap[index] = heap[parent];
+			priority[index] = priority[parent];
+			position[heap[index]] = index;
+			index = parent;
+		}
+		heap[index] = node;
+		priority[index] = key;
+		position[node] = index;
+	}
+
+	/**
+	 * Moves heap entry at given position towards the leaves until its children have higher priority
+	 * @param index: heap position
+	 * @param key: priority of the entry
+	 */
+	private void siftDown(int index, int key) {
+		final int node = heap[index];
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && before(priority[child + 1], heap[child + 1], priority[child], heap[child])) {
+				child++;
+			}
+			if (!before(priority[child], heap[child], key, node)) {
+				break;
+			}
+			heap[index] = heap[child];
+			priority[index] = priority[child];
+			position[heap[index]] = index;
+			index = child;
+		}
+		heap[index] = node;
+		priority[index] = key;
+		position[node] = index;
+	}
+}
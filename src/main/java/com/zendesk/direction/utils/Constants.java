@@ -1,8 +1,9 @@
 package com.zendesk.direction.utils;
 
-import java.text.SimpleDateFormat;
+import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Constant interface
@@ -12,8 +13,10 @@ import java.util.List;
 public interface Constants {
 	
 	String DATE_TIME_FORMAT_STR = "dd/MMM/yyyy hh:mm a";
-	String DATE_FORMAT_STR = "dd MMMM yyyy";
-	SimpleDateFormat DATE_FORMAT = new SimpleDateFormat(DATE_FORMAT_STR);
+	String REQUEST_DATE_TIME_FORMAT_STR = "dd-MM-yyyy HH:mm";
+	DateTimeFormatter REQUEST_DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern(REQUEST_DATE_TIME_FORMAT_STR);
+	String DATE_FORMAT_STR = "d MMMM yyyy";
+	DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(DATE_FORMAT_STR, Locale.ENGLISH);
 	List<String> MRT_LINES = Arrays.asList( "NS", "EW", "CG", "NE", "CC", "DT",  "TE");
 	String THOMSON = "TE";
 	String DOWN_TOWN = "DT";
@@ -33,4 +36,15 @@ public interface Constants {
 	String CHANGI_GREEN_NAME = "Changi Green";
 	String CIRCLE_EXTENSION_NAME = "Cirlce Extension";
 	
+	String TEXT_FORMAT = "text";
+	String COMPACT_FORMAT = "compact";
+	
+	int MAX_ALTERNATIVES = 5;
+	
+	int MAX_SUGGESTIONS = 20;
+	
+	int MAX_DEPARTURE_WINDOW_HOURS = 24;
+	
+	String WARM_UP_HEADER = "X-Warm-Up";
+	
 }
@@ -120,20 +120,31 @@ public class DirectionUtils {
 	 * @return time required travel between given stations
 	 */
 	public static int getTravelTime(MrtStation source, MrtStation destination, LocalDateTime dateTime) {
+		return getTravelTime(source.getLine(), destination.getLine(), TimeBand.of(dateTime));
+	}
+
+	/**
+	 * Get travel time between two adjacent stations for given time band
+	 * @param sourceLine: line code of source station
+	 * @param destinationLine: line code of destination station
+	 * @param band: time band of journey
+	 * @return time required travel between given stations
+	 */
+	public static int getTravelTime(String sourceLine, String destinationLine, TimeBand band) {
 		int time  = 0;
 		
-		if (isPeakHour(dateTime)) {
-			if ((source.getLine().equals(Constants.NORTH_SOUTH) && destination.getLine().equals(Constants.NORTH_SOUTH)) 
-					||(source.getLine().equals(Constants.NORTH_EAST) && destination.getLine().equals(Constants.NORTH_EAST))) {
+		if (band == TimeBand.PEAK) {
+			if ((sourceLine.equals(Constants.NORTH_SOUTH) && destinationLine.equals(Constants.NORTH_SOUTH)) 
+					||(sourceLine.equals(Constants.NORTH_EAST) && destinationLine.equals(Constants.NORTH_EAST))) {
 				time = 12;
-			} else if (source.getLine().equals(destination.getLine())) {
+			} else if (sourceLine.equals(destinationLine)) {
 				time = 10;
 			} else {
 				time = 15;
 			}
-		} else if (isNightHour(dateTime)) {
-			if (source.getLine().equals(destination.getLine())) {
-				if (source.getLine().equals(Constants.THOMSON)) {
+		} else if (band == TimeBand.NIGHT) {
+			if (sourceLine.equals(destinationLine)) {
+				if (sourceLine.equals(Constants.THOMSON)) {
 					time = 8;
 				} else {
 					time = 10;
@@ -142,9 +153,9 @@ public class DirectionUtils {
 				time = 10;
 			}
 		} else {
-			if (source.getLine().equals(destination.getLine())) {
-				if (source.getLine().equals(Constants.DOWN_TOWN) 
-						|| source.getLine().equals(Constants.THOMSON)) {
+			if (sourceLine.equals(destinationLine)) {
+				if (sourceLine.equals(Constants.DOWN_TOWN) 
+						|| sourceLine.equals(Constants.THOMSON)) {
 					time = 8;
 				} else {
 					time = 10;
@@ -0,0 +1,39 @@
+package com.zendesk.direction.utils;
+
+import java.time.LocalDateTime;
+
+/**
+ * Travel time regimes of the mrt network.
+ * Travel time between two stations only depends on the band of the journey start time
+ * @author swapnil.janorkar
+ *
+ */
+public enum TimeBand {
+
+	PEAK, NIGHT, OFF_PEAK;
+
+	private static final TimeBand[] BANDS = values();
+
+	/**
+	 * Returns time band for given date & time
+	 * @param dateTime: date & time to start journey
+	 * @return time band
+	 */
+	public static TimeBand of(LocalDateTime dateTime) {
+		if (DirectionUtils.isPeakHour(dateTime)) {
+			return PEAK;
+		} else if (DirectionUtils.isNightHour(dateTime)) {
+			return NIGHT;
+		}
+		return OFF_PEAK;
+	}
+
+	/**
+	 * Returns time band for given ordinal without copying values()
+	 * @param ordinal: time band ordinal
+	 * @return time band
+	 */
+	public static TimeBand of(int ordinal) {
+		return BANDS[ordinal];
+	}
+}
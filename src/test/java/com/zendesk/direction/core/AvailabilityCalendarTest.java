@@ -0,0 +1,136 @@
+package com.zendesk.direction.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.BitSet;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks closure periods of the bundled availability calendar, which closes the CG, DT and CE lines
+ * from 22:00 to 06:00 and every station before its opening date
+ * @author swapnil.janorkar
+ *
+ */
+class AvailabilityCalendarTest {
+
+	private static final LocalTime NIGHT_START = LocalTime.of(22, 0);
+
+	private static final LocalTime NIGHT_END = LocalTime.of(6, 0);
+
+	private static TransitGraph graph;
+
+	private static AvailabilityCalendar calendar;
+
+	private static TreeSet<Long> openingDays;
+
+	@BeforeAll
+	static void loadNetwork() {
+		graph = TestNetwork.snapshot().getGraph();
+		calendar = TestNetwork.snapshot().getAvailability();
+		openingDays = new TreeSet<>();
+		for (int node = 0; node < graph.getNodeCount(); node++) {
+			openingDays.add(graph.getNode(node).getOpeningEpochDay());
+		}
+	}
+
+	@Test
+	void nightClosuresChangeAt22And06() {
+		final LocalDate day = LocalDate.ofEpochDay(openingDays.last()).plusDays(1);
+
+		assertEquals(minute(day.atTime(NIGHT_START)), calendar.nextChange(minute(day.atTime(12, 0))));
+		assertEquals(minute(day.atTime(NIGHT_START)), calendar.nextChange(minute(day.atTime(NIGHT_END))));
+		assertEquals(minute(day.plusDays(1).atTime(NIGHT_END)), calendar.nextChange(minute(day.atTime(NIGHT_START))));
+		assertEquals(minute(day.plusDays(1).atTime(NIGHT_END)), calendar.nextChange(minute(day.atTime(23, 59))));
+		assertEquals(minute(day.plusDays(1).atTime(NIGHT_END)), calendar.nextChange(minute(day.plusDays(1).atStartOfDay())));
+
+		assertEquals(calendar.period(minute(day.atTime(NIGHT_END))), calendar.period(minute(day.atTime(21, 59))));
+		assertNotEquals(calendar.period(minute(day.atTime(21, 59))), calendar.period(minute(day.atTime(NIGHT_START))));
+		assertEquals(calendar.period(minute(day.atTime(NIGHT_START))), calendar.period(minute(day.atTime(23, 59))));
+		assertNotEquals(calendar.period(minute(day.atTime(5, 59))), calendar.period(minute(day.atTime(NIGHT_END))));
+
+		final BitSet night = calendar.closedNodes(minute(day.atTime(NIGHT_START)));
+		assertTrue(calendar.closedNodes(minute(day.atTime(21, 59))).isEmpty());
+		assertTrue(calendar.closedNodes(minute(day.atTime(NIGHT_END))).isEmpty());
+		assertEquals(night, calendar.closedNodes(minute(day.atTime(5, 59))));
+		for (int node = 0; node < graph.getNodeCount(); node++) {
+			final String line = graph.getLine(graph.getNodeLine(node));
+			assertEquals(line.equals("CG") || line.equals("DT") || line.equals("CE"), night.get(node), graph.getNode(node).getId());
+		}
+	}
+
+	@Test
+	void stationsOpenAtMidnightOfOpeningDay() {
+		final long lastOpening = openingDays.last();
+		final long opening = lastOpening * 24 * 60;
+		assertEquals(opening, calendar.nextChange(opening - 60));
+		assertNotEquals(calendar.period(opening - 1), calendar.period(opening));
+
+		for (int station = 0; station < graph.getStationCount(); station++) {
+			final long openingDay = graph.getOpeningEpochDay(station);
+			final long noon = openingDay * 24 * 60 + 12 * 60;
+			assertFalse(calendar.isStationOpen(station, noon - 24 * 60), graph.getStationName(station));
+			assertTrue(calendar.isStationOpen(station, noon), graph.getStationName(station));
+		}
+		for (int node = 0; node < graph.getNodeCount(); node++) {
+			if (graph.getNode(node).getOpeningEpochDay() == lastOpening) {
+				assertFalse(calendar.closedNodes(opening - 1).isEmpty());
+				assertTrue(calendar.closedNodes(opening - 1).get(node), graph.getNode(node).getId());
+				assertFalse(calendar.isOpen(node, opening - 1), graph.getNode(node).getId());
+			}
+		}
+	}
+
+	@Test
+	void availabilityChangesOnlyAtNextChange() {
+		// from before the first opening to after the last one, every boundary must be a night closure
+		// boundary or midnight of an opening day, and availability must stay the same up to the next one
+		long minute = (openingDays.first() - 1) * 24 * 60;
+		final long end = (openingDays.last() + 2) * 24 * 60;
+		final TreeSet<Long> reachedOpenings = new TreeSet<>();
+		BitSet closed = closedAt(minute);
+		while (minute < end) {
+			final long next = calendar.nextChange(minute);
+			assertTrue(next > minute);
+			assertEquals(closed, closedAt(next - 1), () -> "availability changed before minute " + next);
+			assertEquals(closed, calendar.closedNodes(next - 1));
+
+			final long day = Math.floorDiv(next, 24 * 60);
+			final LocalTime time = LocalTime.ofSecondOfDay(Math.floorMod(next, 24 * 60) * 60);
+			if (time.equals(LocalTime.MIDNIGHT)) {
+				assertTrue(openingDays.contains(day), () -> "boundary on " + LocalDate.ofEpochDay(day));
+				reachedOpenings.add(day);
+			} else {
+				assertTrue(time.equals(NIGHT_START) || time.equals(NIGHT_END), () -> "boundary at " + time);
+			}
+			minute = next;
+			closed = closedAt(minute);
+		}
+		assertEquals(openingDays, reachedOpenings);
+	}
+
+	/**
+	 * Returns platforms closed at given minute, checked node by node
+	 * @param minute: minute, see {@link AvailabilityCalendar#minute(LocalDateTime)}
+	 * @return closed node indices
+	 */
+	private static BitSet closedAt(long minute) {
+		final BitSet closed = new BitSet(graph.getNodeCount());
+		for (int node = 0; node < graph.getNodeCount(); node++) {
+			closed.set(node, !calendar.isOpen(node, minute));
+		}
+		return closed;
+	}
+
+	private static long minute(LocalDateTime dateTime) {
+		return AvailabilityCalendar.minute(dateTime);
+	}
+}
@@ -0,0 +1,147 @@
+package com.zendesk.direction.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.zendesk.direction.utils.TimeBand;
+
+/**
+ * Checks the compiled network file against the graph parsed from the bundled csv
+ * @author swapnil.janorkar
+ *
+ */
+class CompiledNetworkTest {
+
+	// magic, format version, csv length, csv crc, payload length, payload crc
+	private static final int HEADER_BYTES = 28;
+
+	@TempDir
+	Path directory;
+
+	private Path file;
+
+	private byte[] csv;
+
+	private int csvCrc;
+
+	private TransitGraph parsed;
+
+	@BeforeEach
+	void compile() throws IOException {
+		csv = TestNetwork.csv();
+		final CRC32 crc = new CRC32();
+		crc.update(csv);
+		csvCrc = (int) crc.getValue();
+		parsed = new TransitGraph(TestNetwork.stations(csv));
+		file = directory.resolve("transit-directions.network");
+		CompiledNetwork.write(file, parsed, csv.length, csvCrc);
+	}
+
+	@Test
+	void readGraphEqualsParsedGraph() throws IOException {
+		assertSameGraph(parsed, CompiledNetwork.read(file, csv.length, csvCrc));
+	}
+
+	@Test
+	void staleCsvIsNotRead() throws IOException {
+		assertNull(CompiledNetwork.read(file, csv.length, csvCrc + 1));
+		assertNull(CompiledNetwork.read(file, csv.length + 1, csvCrc));
+	}
+
+	@Test
+	void wrongMagicIsNotRead() throws IOException {
+		corrupt(0);
+		assertNull(CompiledNetwork.read(file, csv.length, csvCrc));
+	}
+
+	@Test
+	void wrongFormatVersionIsNotRead() throws IOException {
+		corrupt(7);
+		assertNull(CompiledNetwork.read(file, csv.length, csvCrc));
+	}
+
+	@Test
+	void corruptedPayloadIsNotRead() throws IOException {
+		corrupt(HEADER_BYTES + 100);
+		assertNull(CompiledNetwork.read(file, csv.length, csvCrc));
+	}
+
+	@Test
+	void truncatedFileIsNotRead() throws IOException {
+		final byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+		assertNull(CompiledNetwork.read(file, csv.length, csvCrc));
+	}
+
+	@Test
+	void missingFileIsNotRead() throws IOException {
+		assertNull(CompiledNetwork.read(directory.resolve("missing.network"), csv.length, csvCrc));
+	}
+
+	@Test
+	void loaderParsesCsvWhenPayloadIsCorrupted() throws IOException {
+		corrupt(HEADER_BYTES + 100);
+
+		final MrtDetailsLoader loader = new MrtDetailsLoader();
+		ReflectionTestUtils.setField(loader, "compiledFile", file.toString());
+		try {
+			loader.init();
+		} finally {
+			loader.destroy();
+		}
+		assertSameGraph(parsed, loader.getGraph());
+		// the csv was compiled again
+		assertSameGraph(parsed, CompiledNetwork.read(file, csv.length, csvCrc));
+	}
+
+	/**
+	 * Flips all bits of one byte of the compiled network file
+	 * @param position: byte position
+	 * @throws IOException in case file can not be rewritten
+	 */
+	private void corrupt(int position) throws IOException {
+		final byte[] bytes = Files.readAllBytes(file);
+		bytes[position] = (byte) ~bytes[position];
+		Files.write(file, bytes);
+	}
+
+	private static void assertSameGraph(TransitGraph expected, TransitGraph actual) {
+		assertNotNull(actual);
+		final GraphLayout want = expected.getLayout();
+		final GraphLayout have = actual.getLayout();
+		assertArrayEquals(want.stationNames, have.stationNames);
+		assertArrayEquals(want.lines, have.lines);
+		assertArrayEquals(want.nodeStation, have.nodeStation);
+		assertArrayEquals(want.nodeLine, have.nodeLine);
+		assertArrayEquals(want.lineOffsets, have.lineOffsets);
+		assertArrayEquals(want.lineStops, have.lineStops);
+		assertArrayEquals(want.offsets, have.offsets);
+		assertArrayEquals(want.targets, have.targets);
+		assertArrayEquals(want.edgeLine, have.edgeLine);
+		assertEquals(want.nodes.length, have.nodes.length);
+		for (int node = 0; node < want.nodes.length; node++) {
+			assertEquals(want.nodes[node].getId(), have.nodes[node].getId());
+			assertEquals(want.nodes[node].getName(), have.nodes[node].getName());
+			assertEquals(want.nodes[node].getOpeningEpochDay(), have.nodes[node].getOpeningEpochDay());
+		}
+		for (int station = 0; station < expected.getStationCount(); station++) {
+			assertEquals(expected.getOpeningEpochDay(station), actual.getOpeningEpochDay(station));
+		}
+		for (TimeBand band : TimeBand.values()) {
+			assertArrayEquals(expected.getTravelTimes(band.ordinal()), actual.getTravelTimes(band.ordinal()));
+		}
+	}
+}
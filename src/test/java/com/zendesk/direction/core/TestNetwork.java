@@ -0,0 +1,81 @@
+package com.zendesk.direction.core;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
+
+import com.opencsv.bean.CsvToBeanBuilder;
+import com.zendesk.direction.entity.MrtStation;
+
+/**
+ * Bundled mrt network for tests, read the way {@link MrtDetailsLoader} reads it
+ * @author swapnil.janorkar
+ *
+ */
+public final class TestNetwork {
+
+	private static volatile NetworkSnapshot snapshot;
+
+	/**
+	 * private constructor
+	 */
+	private TestNetwork() {
+
+	}
+
+	/**
+	 * Returns snapshot of the bundled station csv and availability calendar, parsed once without a compiled network file
+	 * @return network snapshot
+	 */
+	public static NetworkSnapshot snapshot() {
+		if (snapshot == null) {
+			final MrtDetailsLoader loader = new MrtDetailsLoader();
+			ReflectionTestUtils.setField(loader, "compiledFile", "");
+			try {
+				loader.init();
+			} catch (IOException exception) {
+				throw new UncheckedIOException(exception);
+			} finally {
+				loader.destroy();
+			}
+			snapshot = loader.getSnapshot();
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Returns bytes of the bundled station csv
+	 * @return csv bytes
+	 * @throws IOException in case csv can not be read
+	 */
+	public static byte[] csv() throws IOException {
+		try (InputStream inputStream = TestNetwork.class.getResourceAsStream("/station_map.csv")) {
+			return StreamUtils.copyToByteArray(inputStream);
+		}
+	}
+
+	/**
+	 * Parses stations of given csv
+	 * @param csv: station csv bytes
+	 * @return stations in csv order
+	 * @throws IOException in case csv can not be read
+	 */
+	public static List<MrtStation> stations(byte[] csv) throws IOException {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8))) {
+			return new CsvToBeanBuilder<MrtStation>(reader)
+					.withType(MrtStation.class)
+					.withIgnoreLeadingWhiteSpace(true)
+					.withSkipLines(1)
+					.build()
+					.parse();
+		}
+	}
+}
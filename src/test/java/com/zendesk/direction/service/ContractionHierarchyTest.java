@@ -0,0 +1,98 @@
+package com.zendesk.direction.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.zendesk.direction.core.TestNetwork;
+import com.zendesk.direction.core.TransitGraph;
+import com.zendesk.direction.entity.MrtStation;
+import com.zendesk.direction.utils.TimeBand;
+
+/**
+ * Checks that a stored contraction hierarchy is only used for the network it was built from
+ * @author swapnil.janorkar
+ *
+ */
+class ContractionHierarchyTest {
+
+	private static TransitGraph graph;
+
+	private static TransitGraph shortened;
+
+	private static ContractionHierarchy built;
+
+	@TempDir
+	Path directory;
+
+	@BeforeAll
+	static void buildHierarchy() throws IOException {
+		final List<MrtStation> stations = TestNetwork.stations(TestNetwork.csv());
+		graph = new TransitGraph(stations);
+		// same network without its last station
+		shortened = new TransitGraph(stations.subList(0, stations.size() - 1));
+		built = ContractionHierarchy.build(graph);
+	}
+
+	@Test
+	void savedHierarchyLoadsBack() throws IOException {
+		final Path file = directory.resolve("transit-directions.ch");
+		built.save(file);
+
+		final ContractionHierarchy loaded = ContractionHierarchy.load(graph, file);
+		assertNotNull(loaded);
+		assertRoutesEqual(built, loaded);
+	}
+
+	@Test
+	void hierarchyOfAnotherNetworkIsNotLoaded() throws IOException {
+		assertNotEquals(ContractionHierarchy.fingerprint(graph), ContractionHierarchy.fingerprint(shortened));
+		final Path file = directory.resolve("transit-directions.ch");
+		ContractionHierarchy.build(shortened).save(file);
+
+		assertNull(ContractionHierarchy.load(graph, file));
+	}
+
+	@Test
+	void missingHierarchyIsNotLoaded() throws IOException {
+		assertNull(ContractionHierarchy.load(graph, directory.resolve("missing.ch")));
+	}
+
+	@Test
+	void serviceRebuildsStaleHierarchy() throws IOException {
+		final Path file = directory.resolve("transit-directions.ch");
+		ContractionHierarchy.build(shortened).save(file);
+
+		final DirectionsGeneratorService service = new DirectionsGeneratorService();
+		ReflectionTestUtils.setField(service, "contractionHierarchyFile", file.toString());
+		final ContractionHierarchy rebuilt = ReflectionTestUtils.invokeMethod(service, "loadContractionHierarchy", graph);
+		assertNotNull(rebuilt);
+		assertRoutesEqual(built, rebuilt);
+
+		// the rebuilt hierarchy replaced the stale file
+		final ContractionHierarchy stored = ContractionHierarchy.load(graph, file);
+		assertNotNull(stored);
+		assertRoutesEqual(built, stored);
+	}
+
+	private static void assertRoutesEqual(ContractionHierarchy expected, ContractionHierarchy actual) {
+		assertEquals(expected.getShortcutCount(), actual.getShortcutCount());
+		for (TimeBand band : TimeBand.values()) {
+			for (int source = 0; source < graph.getStationCount(); source++) {
+				for (int destination = 0; destination < graph.getStationCount(); destination++) {
+					assertEquals(expected.route(source, destination, band.ordinal()), actual.route(source, destination, band.ordinal()));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,341 @@
+package com.zendesk.direction.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.zendesk.direction.core.AvailabilityCalendar;
+import com.zendesk.direction.core.NetworkSnapshot;
+import com.zendesk.direction.core.TestNetwork;
+import com.zendesk.direction.core.TransitGraph;
+import com.zendesk.direction.entity.MrtStation;
+import com.zendesk.direction.entity.StationClosure;
+import com.zendesk.direction.utils.TimeBand;
+
+/**
+ * Compares travel times of every routing engine with a plain Dijkstra search over the bundled network,
+ * on the open network and with platforms closed by the availability calendar
+ * @author swapnil.janorkar
+ *
+ */
+class RoutingEnginesTest {
+
+	private static TransitGraph graph;
+
+	private static BitSet nightClosures;
+
+	private static BitSet openingClosures;
+
+	private static BitSet interchangeClosures;
+
+	@BeforeAll
+	static void loadNetwork() {
+		final NetworkSnapshot snapshot = TestNetwork.snapshot();
+		graph = snapshot.getGraph();
+
+		long lastOpening = Long.MIN_VALUE;
+		for (int station = 0; station < graph.getStationCount(); station++) {
+			lastOpening = Math.max(lastOpening, graph.getOpeningEpochDay(station));
+		}
+		final LocalDate opened = LocalDate.ofEpochDay(lastOpening);
+		nightClosures = snapshot.getAvailability().closedNodes(AvailabilityCalendar.minute(opened.plusDays(1).atTime(23, 0)));
+		openingClosures = snapshot.getAvailability().closedNodes(AvailabilityCalendar.minute(opened.minusDays(1).atTime(12, 0)));
+
+		final AvailabilityCalendar interchanges = new AvailabilityCalendar(graph, Arrays.asList(
+				new StationClosure("Dhoby Ghaut", "08:00", "20:00"),
+				new StationClosure("Outram Park", "08:00", "20:00"),
+				new StationClosure("Paya Lebar", "08:00", "20:00")));
+		interchangeClosures = interchanges.closedNodes(AvailabilityCalendar.minute(opened.plusDays(1).atTime(12, 0)));
+	}
+
+	static Stream<Arguments> closures() {
+		return Stream.of(
+				Arguments.of("open network", null),
+				Arguments.of("night lines closed", nightClosures),
+				Arguments.of("stations not opened yet", openingClosures),
+				Arguments.of("interchanges closed", interchangeClosures));
+	}
+
+	@Test
+	void closuresCloseSomePlatforms() {
+		assertFalse(nightClosures.isEmpty());
+		assertFalse(openingClosures.isEmpty());
+		assertFalse(interchangeClosures.isEmpty());
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("closures")
+	void aStarMatchesDijkstra(String name, BitSet closed) {
+		forEachSource(closed, (band, source, reference) -> {
+			for (int destination = 0; destination < graph.getStationCount(); destination++) {
+				final SearchWorkspace workspace = SearchWorkspace.begin(graph.getNodeCount());
+				final int target = GraphSearch.fastestPath(graph, band, source, destination, closed, workspace);
+				final int expected = stationTime(reference, destination);
+				if (target < 0) {
+					assertEquals(-1, expected, pair(band, source, destination));
+					continue;
+				}
+				assertEquals(expected, workspace.getDistance(target), pair(band, source, destination));
+				assertEquals(expected, travelTime(band, source, destination, GraphSearch.unroll(graph, workspace, target), closed),
+						pair(band, source, destination));
+			}
+		});
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("closures")
+	void routeTreeMatchesDijkstra(String name, BitSet closed) {
+		forEachSource(closed, (band, source, reference) -> assertTreeMatches(new RouteTree(graph, source, band, closed),
+				band, source, reference, closed));
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("closures")
+	void repairedRouteTreeMatchesDijkstra(String name, BitSet closed) {
+		forEachSource(closed, (band, source, reference) -> assertTreeMatches(new RouteTree(graph, source, band).without(closed),
+				band, source, reference, closed));
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("closures")
+	void alternativeRoutesStartWithFastest(String name, BitSet closed) {
+		forEachSource(closed, (band, source, reference) -> {
+			// alternatives run spur searches per pair, every fifth destination keeps the test quick
+			for (int destination = source % 5; destination < graph.getStationCount(); destination += 5) {
+				if (destination == source) {
+					continue;
+				}
+				final List<int[]> routes = AlternativeRoutes.find(graph, band, source, destination, 3, closed, 0.5,
+						System.nanoTime() + TimeUnit.SECONDS.toNanos(10), 50);
+				final int expected = stationTime(reference, destination);
+				if (routes.isEmpty()) {
+					assertEquals(-1, expected, pair(band, source, destination));
+					continue;
+				}
+				int previous = expected;
+				for (int[] nodes : routes) {
+					final int time = travelTime(band, source, destination, AlternativeRoutes.toStations(graph, nodes), closed);
+					assertTrue(time >= previous, pair(band, source, destination));
+					previous = time;
+				}
+				assertEquals(expected, travelTime(band, source, destination, AlternativeRoutes.toStations(graph, routes.get(0)), closed),
+						pair(band, source, destination));
+			}
+		});
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("closures")
+	void paretoRoutesEndWithFastest(String name, BitSet closed) {
+		final ParetoRoutes pareto = new ParetoRoutes(graph);
+		forEachSource(closed, (band, source, reference) -> {
+			for (int destination = 0; destination < graph.getStationCount(); destination++) {
+				if (destination == source) {
+					continue;
+				}
+				final List<ParetoRoutes.Journey> journeys = pareto.find(source, destination, band, graph.getLineCount(), closed);
+				final int expected = stationTime(reference, destination);
+				if (journeys.isEmpty()) {
+					assertEquals(-1, expected, pair(band, source, destination));
+					continue;
+				}
+				final ParetoRoutes.Journey fastest = journeys.get(journeys.size() - 1);
+				assertEquals(expected, fastest.getTravelTime(), pair(band, source, destination));
+				for (ParetoRoutes.Journey journey : journeys) {
+					assertEquals(journey.getTravelTime(), travelTime(band, source, destination,
+							AlternativeRoutes.toStations(graph, journey.getNodes()), closed), pair(band, source, destination));
+				}
+			}
+		});
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("closures")
+	void contractionHierarchyRoutesAreFastest(String name, BitSet closed) {
+		final ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+		forEachSource(closed, (band, source, reference) -> {
+			for (int destination = 0; destination < graph.getStationCount(); destination++) {
+				assertPrecomputedRoute(hierarchy.route(source, destination, band), band, source, destination, reference, closed);
+			}
+		});
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("closures")
+	void routeTableRoutesAreFastest(String name, BitSet closed) {
+		final RouteTable table = new RouteTable(graph);
+		forEachSource(closed, (band, source, reference) -> {
+			for (int destination = 0; destination < graph.getStationCount(); destination++) {
+				assertPrecomputedRoute(table.route(source, destination, band), band, source, destination, reference, closed);
+			}
+		});
+	}
+
+	/**
+	 * Runs given check for every time band and every source station with an open platform
+	 * @param closed: closed platforms, null if every platform is open
+	 * @param check: check of one source, gets travel time of every node from the reference search
+	 */
+	private static void forEachSource(BitSet closed, SourceCheck check) {
+		for (TimeBand band : TimeBand.values()) {
+			for (int source = 0; source < graph.getStationCount(); source++) {
+				final int[] reference = dijkstra(band.ordinal(), source, closed);
+				if (stationTime(reference, source) == 0) {
+					check.accept(band.ordinal(), source, reference);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks travel time and route of every station of a route tree
+	 */
+	private static void assertTreeMatches(RouteTree tree, int band, int source, int[] reference, BitSet closed) {
+		for (int destination = 0; destination < graph.getStationCount(); destination++) {
+			final int expected = stationTime(reference, destination);
+			assertEquals(expected, tree.getTravelTime(destination), pair(band, source, destination));
+			if (expected >= 0) {
+				assertEquals(expected, travelTime(band, source, destination, tree.route(destination), closed), pair(band, source, destination));
+			} else {
+				assertTrue(tree.route(destination).isEmpty(), pair(band, source, destination));
+			}
+		}
+	}
+
+	/**
+	 * Checks a route precomputed on the open network. It must be fastest on the open network, with closures
+	 * a route passing no closed platform must still be fastest, as the service serves only those
+	 */
+	private static void assertPrecomputedRoute(List<MrtStation> route, int band, int source, int destination, int[] reference, BitSet closed) {
+		if (source == destination) {
+			return;
+		}
+		if (closed != null && passesClosed(route, closed)) {
+			return;
+		}
+		final int expected = stationTime(reference, destination);
+		if (route.isEmpty()) {
+			assertEquals(-1, expected, pair(band, source, destination));
+			return;
+		}
+		assertEquals(expected, travelTime(band, source, destination, route, closed), pair(band, source, destination));
+	}
+
+	private static boolean passesClosed(List<MrtStation> route, BitSet closed) {
+		for (MrtStation station : route) {
+			if (closed.get(graph.getNodeIndex(station.getId()))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Plain Dijkstra search from every open platform of source station, scanning all nodes for the closest one
+	 * @param band: time band ordinal
+	 * @param source: source station index
+	 * @param closed: closed platforms, null if every platform is open
+	 * @return travel time of every node, Integer.MAX_VALUE if not reachable
+	 */
+	private static int[] dijkstra(int band, int source, BitSet closed) {
+		final int nodeCount = graph.getNodeCount();
+		final int[] dist = new int[nodeCount];
+		final boolean[] settled = new boolean[nodeCount];
+		Arrays.fill(dist, Integer.MAX_VALUE);
+		for (int k = graph.firstPlatform(source); k < graph.firstPlatform(source + 1); k++) {
+			final int node = graph.getPlatform(k);
+			if (closed == null || !closed.get(node)) {
+				dist[node] = 0;
+			}
+		}
+		while (true) {
+			int node = -1;
+			for (int candidate = 0; candidate < nodeCount; candidate++) {
+				if (!settled[candidate] && dist[candidate] != Integer.MAX_VALUE && (node < 0 || dist[candidate] < dist[node])) {
+					node = candidate;
+				}
+			}
+			if (node < 0) {
+				return dist;
+			}
+			settled[node] = true;
+			for (int edge = graph.firstEdge(node); edge < graph.firstEdge(node + 1); edge++) {
+				final int next = graph.getTarget(edge);
+				if (closed == null || !closed.get(next)) {
+					dist[next] = Math.min(dist[next], dist[node] + graph.getTravelTime(edge, band));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns travel time to closest platform of given station
+	 * @param dist: travel time of every node
+	 * @param station: station index
+	 * @return travel time, -1 if station is not reachable
+	 */
+	private static int stationTime(int[] dist, int station) {
+		int best = Integer.MAX_VALUE;
+		for (int k = graph.firstPlatform(station); k < graph.firstPlatform(station + 1); k++) {
+			best = Math.min(best, dist[graph.getPlatform(k)]);
+		}
+		return best == Integer.MAX_VALUE ? -1 : best;
+	}
+
+	/**
+	 * Checks a route leads from source to destination over graph edges and open platforms only
+	 * @return travel time of the route
+	 */
+	private static int travelTime(int band, int source, int destination, List<MrtStation> route, BitSet closed) {
+		assertFalse(route.isEmpty(), pair(band, source, destination));
+		final int[] nodes = new int[route.size()];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = graph.getNodeIndex(route.get(i).getId());
+			assertTrue(closed == null || !closed.get(nodes[i]), () -> pair(band, source, destination) + " passes closed " + route);
+		}
+		assertEquals(source, graph.getNodeStation(nodes[0]), pair(band, source, destination));
+		assertEquals(destination, graph.getNodeStation(nodes[nodes.length - 1]), pair(band, source, destination));
+
+		int time = 0;
+		for (int i = 1; i < nodes.length; i++) {
+			time += edgeTime(band, nodes[i - 1], nodes[i], route);
+		}
+		return time;
+	}
+
+	private static int edgeTime(int band, int from, int to, List<MrtStation> route) {
+		for (int edge = graph.firstEdge(from); edge < graph.firstEdge(from + 1); edge++) {
+			if (graph.getTarget(edge) == to) {
+				return graph.getTravelTime(edge, band);
+			}
+		}
+		return fail("No edge from " + graph.getNode(from).getId() + " to " + graph.getNode(to).getId() + " in " + route);
+	}
+
+	private static String pair(int band, int source, int destination) {
+		return TimeBand.values()[band] + " " + graph.getStationName(source) + " to " + graph.getStationName(destination);
+	}
+
+	/**
+	 * Check of routes from one source station
+	 */
+	@FunctionalInterface
+	private interface SourceCheck {
+
+		void accept(int band, int source, int[] reference);
+	}
+}